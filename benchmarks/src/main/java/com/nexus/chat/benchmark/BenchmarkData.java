@@ -0,0 +1,30 @@
+package com.nexus.chat.benchmark;
+
+import com.nexus.chat.dto.MessageDTO;
+import com.nexus.chat.model.Message;
+
+import java.time.LocalDateTime;
+
+/**
+ * Representative payloads shared by the benchmarks.
+ */
+public final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    public static MessageDTO textMessage() {
+        MessageDTO dto = new MessageDTO();
+        dto.setId(1_234_567L);
+        dto.setChatId(42L);
+        dto.setSenderId(1001L);
+        dto.setSenderNickname("Alice");
+        dto.setSenderAvatar("/api/avatars/1001/128.webp");
+        dto.setContent("好的，明天下午三点在会议室见。Bring the slides & the Q3 numbers, thanks!");
+        dto.setMessageType(Message.MessageType.text);
+        dto.setCreatedAt(LocalDateTime.of(2024, 5, 1, 15, 30, 12));
+        dto.setSequenceNumber(9876L);
+        dto.setClientMsgId("3f1c9a2e-7b4d-4e8f-9a61-2d5c8b0e4f17");
+        return dto;
+    }
+}
@@ -0,0 +1,27 @@
+package com.nexus.chat.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar.
+ * Runs JMH with the given arguments and, unless a result format is given,
+ * writes machine-readable results to jmh-result.json for CI to compare.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf")) {
+            jmhArgs.addAll(List.of("-rf", "json"));
+        }
+        if (!jmhArgs.contains("-rff")) {
+            jmhArgs.addAll(List.of("-rff", "jmh-result.json"));
+        }
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,76 @@
+package com.nexus.chat.benchmark;
+
+import com.nexus.chat.model.CompressedTextConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CompressedTextConverter on every message write and read: a short message (below the threshold,
+ * stored plain), a long message, and an inline base64 avatar.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressedTextBenchmark {
+
+    private final CompressedTextConverter converter = new CompressedTextConverter(true, 256, 6);
+
+    private final String shortText = BenchmarkData.textMessage().getContent();
+
+    private final String longText = "会议纪要：Q3 目标回顾、预算调整和招聘计划，请大家在周五前反馈意见。"
+            + "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ".repeat(30);
+
+    private String inlineAvatar;
+    private byte[] longTextColumn;
+    private byte[] inlineAvatarColumn;
+
+    @Setup
+    public void setup() {
+        // Random bytes stand in for already-compressed image data
+        byte[] image = new byte[48 * 1024];
+        new Random(42).nextBytes(image);
+        inlineAvatar = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(image);
+        longTextColumn = converter.convertToDatabaseColumn(longText);
+        inlineAvatarColumn = converter.convertToDatabaseColumn(inlineAvatar);
+    }
+
+    @Benchmark
+    public byte[] writeShortText() {
+        return converter.convertToDatabaseColumn(shortText);
+    }
+
+    @Benchmark
+    public byte[] writeLongText() {
+        return converter.convertToDatabaseColumn(longText);
+    }
+
+    @Benchmark
+    public String readLongText() {
+        return converter.convertToEntityAttribute(longTextColumn);
+    }
+
+    @Benchmark
+    public byte[] writeInlineAvatar() {
+        return converter.convertToDatabaseColumn(inlineAvatar);
+    }
+
+    @Benchmark
+    public String readInlineAvatar() {
+        return converter.convertToEntityAttribute(inlineAvatarColumn);
+    }
+}
@@ -0,0 +1,78 @@
+package com.nexus.chat.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nexus.chat.dto.WebSocketMessage;
+import com.nexus.chat.service.DeliveryTracer;
+import com.nexus.chat.service.MessagingMetrics;
+import com.nexus.chat.service.RedisCacheService;
+import com.nexus.chat.service.RedisMessageRelay;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cross-instance relay envelope: encode on the publishing instance ({@code broadcast})
+ * and decode on every receiving instance ({@code onMessage}). Redis and the STOMP broker
+ * are stubbed out, so only the envelope work is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RelayEnvelopeBenchmark {
+
+    private RedisMessageRelay relay;
+    private WebSocketMessage payload;
+    private DefaultMessage envelope;
+
+    @Setup
+    public void setup() throws Exception {
+        relay = new RedisMessageRelay(
+                Mockito.mock(RedisMessageListenerContainer.class, Mockito.withSettings().stubOnly()),
+                Mockito.mock(RedisCacheService.class, Mockito.withSettings().stubOnly()),
+                Mockito.mock(SimpMessagingTemplate.class, Mockito.withSettings().stubOnly()),
+                Mockito.mock(SimpUserRegistry.class, Mockito.withSettings().stubOnly()),
+                Mockito.mock(MessagingMetrics.class, Mockito.withSettings().stubOnly()),
+                Mockito.mock(DeliveryTracer.class, Mockito.withSettings().stubOnly()));
+        payload = new WebSocketMessage(WebSocketMessage.MessageType.CHAT_MESSAGE, BenchmarkData.textMessage());
+
+        // An envelope published by another instance, addressed to a user connected here
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        RedisMessageRelay.RelayMessage relayMessage = new RedisMessageRelay.RelayMessage();
+        relayMessage.setOriginInstance("remote01");
+        relayMessage.setTargetUserId(1002L);
+        relayMessage.setDestination("/topic/user.1002.messages");
+        relayMessage.setPayload(mapper.writeValueAsString(payload));
+        envelope = new DefaultMessage("ws:broadcast".getBytes(StandardCharsets.UTF_8),
+                mapper.writeValueAsBytes(relayMessage));
+    }
+
+    @Benchmark
+    public void encode() {
+        relay.broadcast(1002L, "/topic/user.1002.messages", payload);
+    }
+
+    @Benchmark
+    public void decode() {
+        relay.onMessage(envelope, null);
+    }
+}
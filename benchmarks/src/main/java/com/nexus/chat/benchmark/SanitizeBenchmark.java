@@ -0,0 +1,48 @@
+package com.nexus.chat.benchmark;
+
+import com.nexus.chat.config.MessageValidationInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jsoup-based XSS sanitization applied to every text message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SanitizeBenchmark {
+
+    private final String plainText = "好的，明天下午三点在会议室见。Bring the slides & the Q3 numbers, thanks!";
+
+    private final String markup = "<p>Check <b>this</b> out: <a href=\"https://example.com\" onclick=\"steal()\">link</a>"
+            + "<script>alert('x')</script><img src=x onerror=alert(1)> and &lt;escaped&gt; text</p>";
+
+    private final String longText = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ".repeat(70);
+
+    @Benchmark
+    public String plainText() {
+        return MessageValidationInterceptor.sanitizeContent(plainText);
+    }
+
+    @Benchmark
+    public String markup() {
+        return MessageValidationInterceptor.sanitizeContent(markup);
+    }
+
+    @Benchmark
+    public String longText() {
+        return MessageValidationInterceptor.sanitizeContent(longText);
+    }
+}
@@ -0,0 +1,68 @@
+package com.nexus.chat.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nexus.chat.dto.WebSocketMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the frames pushed to STOMP subscribers
+ * (configured like Spring Boot's ObjectMapper).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebSocketMessageSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private WebSocketMessage chatMessage;
+    private WebSocketMessage ackMessage;
+    private String chatMessageJson;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        chatMessage = new WebSocketMessage(WebSocketMessage.MessageType.CHAT_MESSAGE, BenchmarkData.textMessage());
+        ackMessage = new WebSocketMessage(WebSocketMessage.MessageType.MESSAGE_ACK, Map.of(
+                "clientMsgId", "3f1c9a2e-7b4d-4e8f-9a61-2d5c8b0e4f17",
+                "serverMsgId", 1_234_567L,
+                "chatId", 42L,
+                "sequenceNumber", 9876L));
+        chatMessageJson = objectMapper.writeValueAsString(chatMessage);
+    }
+
+    @Benchmark
+    public String serializeChatMessage() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(chatMessage);
+    }
+
+    @Benchmark
+    public String serializeAck() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(ackMessage);
+    }
+
+    @Benchmark
+    public WebSocketMessage deserializeChatMessage() throws JsonProcessingException {
+        return objectMapper.readValue(chatMessageJson, WebSocketMessage.class);
+    }
+}
@@ -0,0 +1,78 @@
+package com.nexus.chat.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT verification on CONNECT and on every authenticated HTTP request:
+ * a cache hit (token seen recently) and a full HS512 signature check.
+ * Lives in the security package because init() is package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtParseBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-that-is-long-enough-for-hs512-signing-0123456789abcdef";
+
+    private JwtTokenProvider cachingProvider;
+    private JwtTokenProvider verifyingProvider;
+    private String token;
+    private String[] alternatingTokens;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        cachingProvider = provider(10_000);
+        // A one-entry cache fed two alternating tokens never hits, so every parse verifies the signature
+        verifyingProvider = provider(1);
+
+        token = cachingProvider.generateToken(1001L, "alice");
+        alternatingTokens = new String[]{
+                verifyingProvider.generateToken(1001L, "alice"),
+                verifyingProvider.generateToken(1002L, "bob")
+        };
+        cachingProvider.parse(token);
+    }
+
+    @Benchmark
+    public Optional<JwtTokenProvider.TokenClaims> parseCached() {
+        return cachingProvider.parse(token);
+    }
+
+    @Benchmark
+    public Optional<JwtTokenProvider.TokenClaims> parseAndVerify() {
+        next ^= 1;
+        return verifyingProvider.parse(alternatingTokens[next]);
+    }
+
+    private static JwtTokenProvider provider(int cacheSize) throws Exception {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        set(provider, "jwtSecret", SECRET);
+        set(provider, "jwtExpiration", TimeUnit.HOURS.toMillis(24));
+        set(provider, "claimsCacheSize", cacheSize);
+        provider.init();
+        return provider;
+    }
+
+    private static void set(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
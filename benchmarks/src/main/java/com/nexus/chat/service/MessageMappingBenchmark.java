@@ -0,0 +1,111 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.dto.MessageDTO;
+import com.nexus.chat.model.FileUpload;
+import com.nexus.chat.model.Message;
+import com.nexus.chat.model.User;
+import com.nexus.chat.repository.ChatMemberRepository;
+import com.nexus.chat.repository.FileUploadRepository;
+import com.nexus.chat.repository.MessageReadStatusRepository;
+import com.nexus.chat.repository.MessageRepository;
+import com.nexus.chat.repository.UserRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code MessageService.mapToDTO} with stubbed repositories: the in-process cost of turning
+ * a stored message into the DTO that is pushed and returned, excluding the database round trips.
+ * Lives in the service package because mapToDTO is package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageMappingBenchmark {
+
+    private MessageService messageService;
+    private Message textMessage;
+    private Message fileMessage;
+
+    @Setup
+    public void setup() {
+        User sender = new User();
+        sender.setId(1001L);
+        sender.setUsername("alice");
+        sender.setNickname("Alice");
+        sender.setAvatarUrl("/api/avatars/1001/128.webp");
+
+        FileUpload upload = new FileUpload();
+        upload.setFileId("9b2f4c1e-0d7a-4f3b-8e6c-5a1d2b3c4d5e");
+        upload.setOriginalName("Q3-report.png");
+        upload.setFileSize(482_133L);
+        upload.setMimeType("image/png");
+
+        UserRepository userRepository = stub(UserRepository.class);
+        Mockito.when(userRepository.findById(1001L)).thenReturn(Optional.of(sender));
+        FileUploadRepository fileUploadRepository = stub(FileUploadRepository.class);
+        Mockito.when(fileUploadRepository.findByFileId(upload.getFileId())).thenReturn(Optional.of(upload));
+
+        messageService = new MessageService(
+                stub(MessageRepository.class),
+                userRepository,
+                stub(ChatMemberRepository.class),
+                stub(MessageReadStatusRepository.class),
+                fileUploadRepository,
+                stub(MessageSequenceService.class),
+                stub(MessageSearchService.class),
+                stub(UserStatsService.class),
+                stub(ChannelService.class),
+                stub(RecentMessageCache.class),
+                stub(MessagingMetrics.class),
+                stub(SnowflakeIdGenerator.class),
+                stub(MessageArchiveService.class),
+                stub(MessageShardRouter.class));
+
+        textMessage = message(Message.MessageType.text, "好的，明天下午三点在会议室见。", null);
+        fileMessage = message(Message.MessageType.image, null, "/api/files/download/" + upload.getFileId());
+    }
+
+    @Benchmark
+    public MessageDTO mapTextMessage() {
+        return messageService.mapToDTO(textMessage);
+    }
+
+    @Benchmark
+    public MessageDTO mapFileMessage() {
+        return messageService.mapToDTO(fileMessage);
+    }
+
+    private static Message message(Message.MessageType type, String content, String fileUrl) {
+        Message message = new Message();
+        message.setId(1_234_567L);
+        message.setChatId(42L);
+        message.setSenderId(1001L);
+        message.setContent(content);
+        message.setMessageType(type);
+        message.setFileUrl(fileUrl);
+        message.setCreatedAt(LocalDateTime.of(2024, 5, 1, 15, 30, 12));
+        message.setSequenceNumber(9876L);
+        message.setClientMessageId("3f1c9a2e-7b4d-4e8f-9a61-2d5c8b0e4f17");
+        return message;
+    }
+
+    private static <T> T stub(Class<T> type) {
+        return Mockito.mock(type, Mockito.withSettings().stubOnly());
+    }
+}
@@ -0,0 +1,133 @@
+package com.nexus.chat.loadtest;
+
+import com.nexus.chat.NexusChatApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MySQL and Redis in throwaway containers, with the application booted in-process against them.
+ * With --replica a second MySQL replicates from the first (GTID auto-positioning) and serves
+ * the application's read-only transactions.
+ */
+@Slf4j
+public class EmbeddedEnvironment implements AutoCloseable {
+
+    private static final String PRIMARY_ALIAS = "mysql-primary";
+    private static final String REPLICATION_USER = "repl";
+
+    private final Network network = Network.newNetwork();
+    private final MySQLContainer<?> mysql;
+    private final MySQLContainer<?> replica;
+    private final GenericContainer<?> redis;
+    private final ConfigurableApplicationContext app;
+
+    public EmbeddedEnvironment(LoadTestOptions options) throws Exception {
+        mysql = mysql(1).withNetworkAliases(PRIMARY_ALIAS);
+        replica = options.replica() ? mysql(2) : null;
+        redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine")).withExposedPorts(6379);
+        log.info("Starting MySQL{} and Redis containers", replica != null ? " (primary and replica)" : "");
+        mysql.start();
+        redis.start();
+        if (replica != null) {
+            replica.start();
+            startReplication();
+        }
+
+        Path dataDir = Files.createTempDirectory("nexus-loadtest");
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.datasource.url", mysql.getJdbcUrl() + "?useSSL=false&allowPublicKeyRetrieval=true");
+        properties.put("spring.datasource.username", mysql.getUsername());
+        properties.put("spring.datasource.password", mysql.getPassword());
+        properties.put("spring.datasource.hikari.maximum-pool-size", "50");
+        if (replica != null) {
+            properties.put("datasource.replica.enabled", "true");
+            properties.put("datasource.replica.urls[0]", replica.getJdbcUrl() + "?useSSL=false&allowPublicKeyRetrieval=true");
+            properties.put("datasource.replica.username", replica.getUsername());
+            properties.put("datasource.replica.password", replica.getPassword());
+            properties.put("datasource.replica.hikari.maximum-pool-size", "50");
+        }
+        properties.put("spring.data.redis.host", redis.getHost());
+        properties.put("spring.data.redis.port", String.valueOf(redis.getMappedPort(6379)));
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("storage.local.root", dataDir.resolve("uploads").toString());
+        properties.put("storage.staging-dir", dataDir.resolve("chunks").toString());
+        properties.put("search.message.index-dir", dataDir.resolve("message-index").toString());
+        properties.put("search.user.index-dir", dataDir.resolve("user-index").toString());
+        // The generator spreads load across many users; keep per-user limits from masking server capacity
+        properties.put("ratelimit.policies.message.capacity", "1000");
+        properties.put("ratelimit.policies.typing.capacity", "1000");
+
+        log.info("Booting the application against the containers");
+        app = new SpringApplicationBuilder(NexusChatApplication.class)
+                .properties(properties)
+                .run();
+    }
+
+    private MySQLContainer<?> mysql(int serverId) {
+        return new MySQLContainer<>(DockerImageName.parse("mysql:8.0"))
+                .withDatabaseName("nexus_chat")
+                .withNetwork(network)
+                .withCommand("--max-connections=500", "--server-id=" + serverId,
+                        "--gtid-mode=ON", "--enforce-gtid-consistency=ON");
+    }
+
+    /**
+     * Replicate the primary into the replica from the start of its binlog, then make the replica read-only.
+     * The container entrypoints create the database and test user on each server without logging it.
+     */
+    private void startReplication() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(mysql.getJdbcUrl(), "root", mysql.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE USER '" + REPLICATION_USER + "'@'%' IDENTIFIED BY '" + REPLICATION_USER + "'");
+            statement.execute("GRANT REPLICATION SLAVE ON *.* TO '" + REPLICATION_USER + "'@'%'");
+        }
+        try (Connection connection = DriverManager.getConnection(replica.getJdbcUrl(), "root", replica.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("CHANGE REPLICATION SOURCE TO SOURCE_HOST='" + PRIMARY_ALIAS + "', SOURCE_PORT=3306, "
+                    + "SOURCE_USER='" + REPLICATION_USER + "', SOURCE_PASSWORD='" + REPLICATION_USER + "', "
+                    + "SOURCE_AUTO_POSITION=1, GET_SOURCE_PUBLIC_KEY=1");
+            statement.execute("START REPLICA");
+            statement.execute("SET GLOBAL super_read_only = ON");
+        }
+        log.info("Replica is replicating from {}", PRIMARY_ALIAS);
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+    }
+
+    public DataSource dataSource() {
+        return app.getBean(DataSource.class);
+    }
+
+    public String jwtSecret() {
+        return app.getEnvironment().getProperty("jwt.secret");
+    }
+
+    @Override
+    public void close() {
+        app.close();
+        redis.stop();
+        if (replica != null) {
+            replica.stop();
+        }
+        mysql.stop();
+        network.close();
+    }
+}
@@ -0,0 +1,134 @@
+package com.nexus.chat.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Send-to-deliver and send-to-ACK latency, recorded from the receiving threads and
+ * drained once per report interval.
+ */
+@Slf4j
+public class LatencyStats {
+
+    private final Recorder deliveryRecorder = new Recorder(3);
+    private final Recorder ackRecorder = new Recorder(3);
+    private final Histogram delivery = new Histogram(3);
+    private final Histogram ack = new Histogram(3);
+    private Histogram deliveryInterval;
+    private Histogram ackInterval;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder typing = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+
+    public void recordSend() {
+        sent.increment();
+    }
+
+    public void recordDelivery(long latencyNanos) {
+        delivered.increment();
+        deliveryRecorder.recordValue(Math.max(0, latencyNanos));
+    }
+
+    public void recordAck(long latencyNanos) {
+        acked.increment();
+        ackRecorder.recordValue(Math.max(0, latencyNanos));
+    }
+
+    public void recordFailure() {
+        failed.increment();
+    }
+
+    public void recordTyping() {
+        typing.increment();
+    }
+
+    public void recordRead() {
+        reads.increment();
+    }
+
+    /**
+     * Drop everything recorded so far (end of warm-up).
+     */
+    public synchronized void reset() {
+        deliveryInterval = deliveryRecorder.getIntervalHistogram(deliveryInterval);
+        ackInterval = ackRecorder.getIntervalHistogram(ackInterval);
+        delivery.reset();
+        ack.reset();
+        sent.reset();
+        delivered.reset();
+        acked.reset();
+        failed.reset();
+        typing.reset();
+        reads.reset();
+    }
+
+    /**
+     * Log the interval since the previous call and fold it into the run totals.
+     */
+    public synchronized void reportInterval(String phase, Duration interval) {
+        deliveryInterval = deliveryRecorder.getIntervalHistogram(deliveryInterval);
+        ackInterval = ackRecorder.getIntervalHistogram(ackInterval);
+        delivery.add(deliveryInterval);
+        ack.add(ackInterval);
+        double seconds = interval.toMillis() / 1000.0;
+        log.info("[{}] deliveries {}/s p50={} p99={} max={} | acks p50={} p99={} | failed={}",
+                phase,
+                Math.round(deliveryInterval.getTotalCount() / seconds),
+                millis(deliveryInterval.getValueAtPercentile(50)),
+                millis(deliveryInterval.getValueAtPercentile(99)),
+                millis(deliveryInterval.getMaxValue()),
+                millis(ackInterval.getValueAtPercentile(50)),
+                millis(ackInterval.getValueAtPercentile(99)),
+                failed.sum());
+    }
+
+    public synchronized Map<String, Object> summary(Duration measured) {
+        double seconds = measured.toMillis() / 1000.0;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("durationSeconds", seconds);
+        result.put("sent", sent.sum());
+        result.put("sendThroughput", sent.sum() / seconds);
+        result.put("delivered", delivered.sum());
+        result.put("deliveryThroughput", delivered.sum() / seconds);
+        result.put("acked", acked.sum());
+        result.put("failed", failed.sum());
+        result.put("typingEvents", typing.sum());
+        result.put("readReceipts", reads.sum());
+        result.put("deliveryLatencyMs", percentiles(delivery));
+        result.put("ackLatencyMs", percentiles(ack));
+        return result;
+    }
+
+    public void write(Map<String, Object> summary, Path output) throws IOException {
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), summary);
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", histogram.getTotalCount());
+        result.put("p50", millis(histogram.getValueAtPercentile(50)));
+        result.put("p99", millis(histogram.getValueAtPercentile(99)));
+        result.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+        result.put("max", millis(histogram.getMaxValue()));
+        return result;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / (double) TimeUnit.MILLISECONDS.toNanos(1) * 100) / 100.0;
+    }
+}
@@ -0,0 +1,142 @@
+package com.nexus.chat.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end STOMP load test: seed users and chats, open one session per user, then drive
+ * sends, typing indicators and read receipts at fixed rates and report delivery latency.
+ *
+ * @see LoadTestOptions for the arguments
+ */
+@Slf4j
+public class LoadTestMain {
+
+    private static final long TICK_MILLIS = 5;
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        EmbeddedEnvironment environment = options.embedded() ? new EmbeddedEnvironment(options) : null;
+        LatencyStats stats = new LatencyStats();
+        try {
+            String baseUrl = environment != null ? environment.baseUrl() : options.target();
+            DataSource dataSource = environment != null
+                    ? environment.dataSource()
+                    : new DriverManagerDataSource(options.jdbcUrl(), options.jdbcUser(), options.jdbcPassword());
+            String jwtSecret = environment != null ? environment.jwtSecret() : options.jwtSecret();
+
+            Topology topology = new Seeder(dataSource).seed(options);
+            try (StompLoadClient client = new StompLoadClient(baseUrl, jwtSecret, stats)) {
+                client.connectAll(topology.userIds(), options.connectRate());
+
+                log.info("Warming up for {}s", options.warmup().toSeconds());
+                drive(client, topology, options, stats, options.warmup(), "warmup");
+                stats.reset();
+
+                log.info("Measuring for {}s", options.duration().toSeconds());
+                long start = System.nanoTime();
+                drive(client, topology, options, stats, options.duration(), "measure");
+                Duration measured = Duration.ofNanos(System.nanoTime() - start);
+
+                // Let in-flight deliveries land before the final numbers
+                Thread.sleep(2000);
+                stats.reportInterval("drain", Duration.ofSeconds(2));
+
+                Map<String, Object> summary = stats.summary(measured);
+                summary.put("workload", Map.of(
+                        "users", options.users(),
+                        "directChats", options.directChats(),
+                        "groups", options.groups(),
+                        "groupSize", options.groupSize(),
+                        "groupShare", options.groupShare(),
+                        "sendRate", options.sendRate(),
+                        "typingRate", options.typingRate(),
+                        "readRate", options.readRate(),
+                        "replica", options.replica()));
+                stats.write(summary, Path.of(options.output()));
+                log.info("Result: {}", summary);
+                log.info("Written to {}", Path.of(options.output()).toAbsolutePath());
+            }
+        } finally {
+            if (environment != null) {
+                environment.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Issue operations on a fixed schedule for {@code duration}: each tick catches the issued count
+     * up to rate × elapsed, so a slow tick is followed by a burst rather than lost load.
+     * Sends go through a worker pool so a blocked session write does not stall the schedule.
+     */
+    private static void drive(StompLoadClient client, Topology topology, LoadTestOptions options,
+                              LatencyStats stats, Duration duration, String phase) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long nextReport = start + options.reportInterval().toNanos();
+        long sends = 0, typings = 0, reads = 0;
+        try {
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                double elapsed = (now - start) / 1_000_000_000.0;
+                for (; sends < (long) (elapsed * options.sendRate()); sends++) {
+                    Target target = pick(client, topology, options);
+                    if (target != null) {
+                        workers.execute(() -> client.sendMessage(target.chatId(), target.userId()));
+                    }
+                }
+                for (; typings < (long) (elapsed * options.typingRate()); typings++) {
+                    Target target = pick(client, topology, options);
+                    if (target != null) {
+                        workers.execute(() -> client.typing(target.chatId(), target.userId()));
+                    }
+                }
+                for (; reads < (long) (elapsed * options.readRate()); reads++) {
+                    Target target = pick(client, topology, options);
+                    if (target != null) {
+                        workers.execute(() -> client.read(target.chatId(), target.userId()));
+                    }
+                }
+                if (now >= nextReport) {
+                    stats.reportInterval(phase, options.reportInterval());
+                    nextReport += options.reportInterval().toNanos();
+                }
+                Thread.sleep(TICK_MILLIS);
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private record Target(long chatId, long userId) {
+    }
+
+    /**
+     * A random chat (a group with probability group-share) and a random connected member of it.
+     */
+    private static Target pick(StompLoadClient client, Topology topology, LoadTestOptions options) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean group = !topology.groups().isEmpty()
+                && (topology.directChats().isEmpty() || random.nextDouble() < options.groupShare());
+        List<Topology.Chat> chats = group ? topology.groups() : topology.directChats();
+        if (chats.isEmpty()) {
+            return null;
+        }
+        Topology.Chat chat = chats.get(random.nextInt(chats.size()));
+        long userId = chat.memberIds()[random.nextInt(chat.memberIds().length)];
+        return client.isConnected(userId) ? new Target(chat.id(), userId) : null;
+    }
+}
@@ -0,0 +1,125 @@
+package com.nexus.chat.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test options, given as --name=value arguments.
+ *
+ * <pre>
+ * target          base URL of a running deployment; omitted = boot the app against Testcontainers
+ * jdbc-url        database of the target deployment, used for seeding (target mode only)
+ * jdbc-user       database user (default root)
+ * jdbc-password   database password
+ * jwt-secret      jwt.secret of the target deployment (target mode only)
+ * users           connected users / STOMP sessions (default 2000)
+ * direct-chats    direct chats between random pairs of users (default 1000)
+ * groups          group chats (default 5)
+ * group-size      members per group (default 200)
+ * group-share     fraction of sends that go to groups (default 0.2)
+ * send-rate       /app/chat.sendMessage per second, all users combined (default 200)
+ * typing-rate     /app/chat.typing per second (default 100)
+ * read-rate       /app/message.read per second (default 100)
+ * connect-rate    new STOMP sessions per second while connecting (default 200)
+ * warmup          load before measuring starts (default 10s)
+ * duration        measured load (default 60s)
+ * report-interval interval between progress lines (default 5s)
+ * output          JSON result file (default loadtest-result.json)
+ * replica         also start a MySQL replica and route read-only transactions to it (default false, embedded only)
+ * </pre>
+ */
+public record LoadTestOptions(
+        String target,
+        String jdbcUrl,
+        String jdbcUser,
+        String jdbcPassword,
+        String jwtSecret,
+        int users,
+        int directChats,
+        int groups,
+        int groupSize,
+        double groupShare,
+        double sendRate,
+        double typingRate,
+        double readRate,
+        double connectRate,
+        Duration warmup,
+        Duration duration,
+        Duration reportInterval,
+        String output,
+        boolean replica) {
+
+    private static final String DEFAULT_JWT_SECRET =
+            "nexus-chat-secret-key-change-this-in-production-please-make-it-long-enough";
+
+    public boolean embedded() {
+        return target == null;
+    }
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions(
+                values.remove("target"),
+                values.remove("jdbc-url"),
+                values.getOrDefault("jdbc-user", "root"),
+                values.getOrDefault("jdbc-password", ""),
+                values.getOrDefault("jwt-secret", DEFAULT_JWT_SECRET),
+                Integer.parseInt(values.getOrDefault("users", "2000")),
+                Integer.parseInt(values.getOrDefault("direct-chats", "1000")),
+                Integer.parseInt(values.getOrDefault("groups", "5")),
+                Integer.parseInt(values.getOrDefault("group-size", "200")),
+                Double.parseDouble(values.getOrDefault("group-share", "0.2")),
+                Double.parseDouble(values.getOrDefault("send-rate", "200")),
+                Double.parseDouble(values.getOrDefault("typing-rate", "100")),
+                Double.parseDouble(values.getOrDefault("read-rate", "100")),
+                Double.parseDouble(values.getOrDefault("connect-rate", "200")),
+                duration(values.getOrDefault("warmup", "10s")),
+                duration(values.getOrDefault("duration", "60s")),
+                duration(values.getOrDefault("report-interval", "5s")),
+                values.getOrDefault("output", "loadtest-result.json"),
+                Boolean.parseBoolean(values.getOrDefault("replica", "false")));
+
+        values.keySet().removeAll(List.of("jdbc-user", "jdbc-password", "jwt-secret", "users",
+                "direct-chats", "groups", "group-size", "group-share", "send-rate", "typing-rate", "read-rate",
+                "connect-rate", "warmup", "duration", "report-interval", "output", "replica"));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + values.keySet());
+        }
+        if (!options.embedded() && options.jdbcUrl() == null) {
+            throw new IllegalArgumentException("--jdbc-url is required with --target (users and chats are seeded through it)");
+        }
+        if (!options.embedded() && options.replica()) {
+            throw new IllegalArgumentException("--replica only applies without --target");
+        }
+        if (options.groups() > 0 && options.groupSize() > options.users()) {
+            throw new IllegalArgumentException("--group-size cannot exceed --users");
+        }
+        return options;
+    }
+
+    /**
+     * 90s, 5m, 500ms or plain seconds.
+     */
+    private static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value));
+    }
+}
@@ -0,0 +1,93 @@
+package com.nexus.chat.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Inserts users and chats straight into the database (registration goes through email
+ * verification, and thousands of REST calls would dominate start-up).
+ * Names carry a per-run prefix so runs against the same database do not collide.
+ */
+@Slf4j
+public class Seeder {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbc;
+    private final Random random = new Random(42);
+    private final String prefix = "lt" + Long.toString(System.currentTimeMillis(), 36) + "_";
+
+    public Seeder(DataSource dataSource) {
+        this.jdbc = new JdbcTemplate(dataSource);
+    }
+
+    public Topology seed(LoadTestOptions options) {
+        List<Long> userIds = insertUsers(options.users());
+
+        List<Topology.Chat> directChats = new ArrayList<>();
+        for (int i = 0; i < options.directChats(); i++) {
+            long a = userIds.get(random.nextInt(userIds.size()));
+            long b;
+            do {
+                b = userIds.get(random.nextInt(userIds.size()));
+            } while (b == a);
+            directChats.add(new Topology.Chat(insertChat("direct", null, a, 2), new long[]{a, b}));
+        }
+
+        List<Topology.Chat> groups = new ArrayList<>();
+        for (int i = 0; i < options.groups(); i++) {
+            List<Long> shuffled = new ArrayList<>(userIds);
+            Collections.shuffle(shuffled, random);
+            long[] members = shuffled.subList(0, options.groupSize()).stream().mapToLong(Long::longValue).toArray();
+            groups.add(new Topology.Chat(insertChat("group", prefix + "group" + i, members[0], members.length), members));
+        }
+
+        List<Object[]> memberRows = new ArrayList<>();
+        for (Topology.Chat chat : directChats) {
+            for (long userId : chat.memberIds()) {
+                memberRows.add(new Object[]{chat.id(), userId, "member", false});
+            }
+        }
+        for (Topology.Chat chat : groups) {
+            long[] members = chat.memberIds();
+            for (int i = 0; i < members.length; i++) {
+                memberRows.add(new Object[]{chat.id(), members[i], i == 0 ? "owner" : "member", i == 0});
+            }
+        }
+        batch("INSERT INTO chat_members (chat_id, user_id, role, is_admin, unread_count, last_read_seq, joined_at) "
+                + "VALUES (?, ?, ?, ?, 0, 0, NOW())", memberRows);
+
+        log.info("Seeded {} users, {} direct chats, {} groups of {} ({} memberships)",
+                userIds.size(), directChats.size(), groups.size(), options.groupSize(), memberRows.size());
+        return new Topology(userIds, directChats, groups);
+    }
+
+    private List<Long> insertUsers(int count) {
+        List<Object[]> rows = IntStream.range(0, count)
+                .mapToObj(i -> new Object[]{prefix + i, prefix + i + "@loadtest.local", "{noop}x", "Load " + i})
+                .collect(Collectors.toList());
+        batch("INSERT INTO users (username, email, password_hash, nickname, is_online, created_at, last_seen) "
+                + "VALUES (?, ?, ?, ?, false, NOW(), NOW())", rows);
+        return jdbc.queryForList("SELECT id FROM users WHERE username LIKE ? ORDER BY id", Long.class, prefix + "%");
+    }
+
+    private long insertChat(String type, String name, long createdBy, int memberCount) {
+        jdbc.update("INSERT INTO chats (type, name, is_private, created_by, member_count, created_at, last_message_at) "
+                + "VALUES (?, ?, false, ?, ?, NOW(), NOW())", type, name, createdBy, memberCount);
+        return jdbc.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbc.batchUpdate(sql, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.nexus.chat.loadtest;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+
+/**
+ * One STOMP session per seeded user on /ws-native, each subscribed to its own
+ * /topic/user.{id}.messages channel.
+ *
+ * Sent messages carry the sender's System.nanoTime() in their content, so a CHAT_MESSAGE
+ * arriving at any recipient yields the send-to-deliver latency; the MESSAGE_ACK back to the
+ * sender is matched through clientMsgId.
+ */
+@Slf4j
+public class StompLoadClient implements AutoCloseable {
+
+    private static final String CONTENT_PREFIX = "lt ";
+
+    private final WebSocketStompClient stompClient;
+    private final String url;
+    private final SecretKey signingKey;
+    private final LatencyStats stats;
+
+    private final Map<Long, StompSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Long> pendingAcks = new ConcurrentHashMap<>();
+
+    public StompLoadClient(String baseUrl, String jwtSecret, LatencyStats stats) {
+        this.stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        this.stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        this.url = baseUrl.replaceFirst("^http", "ws") + "/ws-native";
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.stats = stats;
+    }
+
+    /**
+     * Open a session for every user, at most {@code perSecond} new sessions per second.
+     */
+    public void connectAll(List<Long> userIds, double perSecond) throws InterruptedException {
+        long start = System.nanoTime();
+        List<CompletableFuture<StompSession>> futures = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            long dueNanos = (long) (i / perSecond * 1_000_000_000L);
+            long waitNanos = start + dueNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+            futures.add(connect(userIds.get(i)));
+        }
+
+        int failed = 0;
+        for (CompletableFuture<StompSession> future : futures) {
+            try {
+                future.get(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+        log.info("Connected {} of {} sessions in {} ms ({} failed)", sessions.size(), userIds.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failed);
+    }
+
+    private CompletableFuture<StompSession> connect(Long userId) {
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token(userId));
+        return stompClient.connectAsync(url, new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {
+            @Override
+            public void afterConnected(StompSession session, StompHeaders headers) {
+                session.subscribe("/topic/user." + userId + ".messages", new UserChannelHandler());
+                sessions.put(userId, session);
+            }
+
+            @Override
+            public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+                                        byte[] payload, Throwable exception) {
+                log.warn("STOMP error for user {}: {}", userId, exception.getMessage());
+            }
+
+            @Override
+            public void handleTransportError(StompSession session, Throwable exception) {
+                if (sessions.remove(userId) != null) {
+                    log.warn("Session of user {} lost: {}", userId, exception.getMessage());
+                }
+            }
+        });
+    }
+
+    public boolean isConnected(long userId) {
+        return sessions.containsKey(userId);
+    }
+
+    public void sendMessage(long chatId, long senderId) {
+        String clientMsgId = UUID.randomUUID().toString();
+        long now = System.nanoTime();
+        pendingAcks.put(clientMsgId, now);
+        if (send(senderId, "/app/chat.sendMessage", Map.of(
+                "chatId", chatId,
+                "senderId", senderId,
+                "content", CONTENT_PREFIX + now,
+                "messageType", "text",
+                "clientMsgId", clientMsgId))) {
+            stats.recordSend();
+        } else {
+            pendingAcks.remove(clientMsgId);
+        }
+    }
+
+    public void typing(long chatId, long userId) {
+        if (send(userId, "/app/chat.typing", Map.of("chatId", chatId, "userId", userId, "isTyping", true))) {
+            stats.recordTyping();
+        }
+    }
+
+    public void read(long chatId, long userId) {
+        if (send(userId, "/app/message.read", Map.of("chatId", chatId, "userId", userId))) {
+            stats.recordRead();
+        }
+    }
+
+    private boolean send(long userId, String destination, Map<String, Object> payload) {
+        StompSession session = sessions.get(userId);
+        if (session == null) {
+            return false;
+        }
+        try {
+            session.send(destination, payload);
+            return true;
+        } catch (Exception e) {
+            stats.recordFailure();
+            return false;
+        }
+    }
+
+    private String token(Long userId) {
+        Date now = new Date();
+        return Jwts.builder()
+                .claims(Map.of("userId", userId, "username", "loadtest" + userId))
+                .subject("loadtest" + userId)
+                .issuedAt(now)
+                .expiration(new Date(now.getTime() + TimeUnit.DAYS.toMillis(1)))
+                .signWith(signingKey, Jwts.SIG.HS512)
+                .compact();
+    }
+
+    @Override
+    public void close() {
+        for (StompSession session : sessions.values()) {
+            try {
+                session.disconnect();
+            } catch (Exception ignored) {
+                // shutting down
+            }
+        }
+        sessions.clear();
+        stompClient.stop();
+    }
+
+    private class UserChannelHandler implements StompFrameHandler {
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Map.class;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void handleFrame(StompHeaders headers, Object frame) {
+            long now = System.nanoTime();
+            Map<String, Object> message = (Map<String, Object>) frame;
+            Object type = message.get("type");
+            if (!(message.get("payload") instanceof Map<?, ?> payload)) {
+                return;
+            }
+            if ("CHAT_MESSAGE".equals(type)) {
+                Object content = payload.get("content");
+                if (content instanceof String text && text.startsWith(CONTENT_PREFIX)) {
+                    stats.recordDelivery(now - Long.parseLong(text.substring(CONTENT_PREFIX.length())));
+                }
+            } else if ("MESSAGE_ACK".equals(type)) {
+                Long sentAt = pendingAcks.remove(String.valueOf(payload.get("clientMsgId")));
+                if (sentAt != null) {
+                    stats.recordAck(now - sentAt);
+                }
+            } else if ("MESSAGE_DELIVERY_FAILED".equals(type)) {
+                pendingAcks.remove(String.valueOf(payload.get("clientMsgId")));
+                stats.recordFailure();
+            }
+        }
+    }
+}
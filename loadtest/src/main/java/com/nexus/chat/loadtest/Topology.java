@@ -0,0 +1,12 @@
+package com.nexus.chat.loadtest;
+
+import java.util.List;
+
+/**
+ * Seeded users and chats. Every chat lists its member user IDs.
+ */
+public record Topology(List<Long> userIds, List<Chat> directChats, List<Chat> groups) {
+
+    public record Chat(long id, long[] memberIds) {
+    }
+}
@@ -0,0 +1,136 @@
+package com.nexus.chat.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Background worker pools.
+ * Each pool is bounded so a burst of uploads can never starve request threads.
+ */
+@Slf4j
+@Configuration
+public class AsyncConfig {
+
+    @Value("${file.thumbnail.workers:2}")
+    private int thumbnailWorkers;
+
+    @Value("${file.thumbnail.queue-capacity:500}")
+    private int thumbnailQueueCapacity;
+
+    @Value("${file.cleanup.workers:4}")
+    private int cleanupWorkers;
+
+    @Value("${message-shard.query-workers:8}")
+    private int shardQueryWorkers;
+
+    /**
+     * Thumbnail generation pool.
+     * Tasks rejected when the queue is full are dropped: the thumbnail endpoint
+     * re-schedules generation lazily on first request.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor thumbnailExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(thumbnailWorkers);
+        executor.setMaxPoolSize(thumbnailWorkers);
+        executor.setQueueCapacity(thumbnailQueueCapacity);
+        executor.setThreadNamePrefix("thumbnail-");
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setRejectedExecutionHandler((task, pool) ->
+                log.warn("缩略图队列已满，丢弃任务 (queue={})", pool.getQueue().size()));
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * File cleanup pool: the cleanup scan plus file.cleanup.workers threads deleting
+     * physical files in parallel (the scan waits on them, so it gets a thread of its own).
+     * The queue only holds one batch; when it is full the cleanup thread runs the
+     * deletion itself, which throttles the scan instead of dropping work.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor cleanupExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(cleanupWorkers + 1);
+        executor.setMaxPoolSize(cleanupWorkers + 1);
+        executor.setQueueCapacity(cleanupWorkers * 50);
+        executor.setThreadNamePrefix("file-cleanup-");
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Message search indexing pool.
+     * A single writer thread keeps the send path free of index work. Tasks that do not fit
+     * in the queue are rejected rather than run by the caller (a WebSocket send thread or
+     * the Redis listener thread); MessageSearchService catches up on them later.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor messageIndexExecutor() {
+        return indexExecutor("message-index-", 10000);
+    }
+
+    /**
+     * User directory indexing pool, so profile updates do not queue behind message indexing.
+     * Rejected tasks are retried by UserSearchService.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor userIndexExecutor() {
+        return indexExecutor("user-index-", 1000);
+    }
+
+    /**
+     * Long-running index rebuilds (message catch-up, user directory rebuild), one thread each,
+     * so they never hold up incremental indexing.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor searchRebuildExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(10);
+        executor.setThreadNamePrefix("search-rebuild-");
+        executor.setThreadPriority(Thread.MIN_PRIORITY);
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    private static ThreadPoolTaskExecutor indexExecutor(String threadNamePrefix, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Scatter-gather pool for message queries that span several shards.
+     * When it is saturated the requesting thread queries the shard itself.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor shardQueryExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(shardQueryWorkers);
+        executor.setMaxPoolSize(shardQueryWorkers);
+        executor.setQueueCapacity(shardQueryWorkers * 10);
+        executor.setThreadNamePrefix("shard-query-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,100 @@
+package com.nexus.chat.config;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * Size-bounded local cache for lookups on hot paths (verified tokens, channel flags, message
+ * windows, contact lists).
+ *
+ * Reads and writes go straight to a ConcurrentHashMap, so they never wait on each other; each
+ * entry only records when it was last read. Once the map has grown a slack past maxEntries, one
+ * writer drops the least recently read entries, while the other writers carry on without waiting.
+ * The bound is therefore approximate: the map can briefly hold up to maxEntries plus the slack.
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxEntries;
+    private final int slack;
+    private final ConcurrentHashMap<K, Node<V>> map;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public BoundedCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.slack = Math.max(16, this.maxEntries / 16);
+        this.map = new ConcurrentHashMap<>(Math.min(this.maxEntries, 1024));
+    }
+
+    public V get(K key) {
+        Node<V> node = map.get(key);
+        if (node == null) {
+            return null;
+        }
+        node.readAt = System.nanoTime();
+        return node.value;
+    }
+
+    public void put(K key, V value) {
+        map.put(key, new Node<>(value));
+        if (map.size() > maxEntries + slack) {
+            evict();
+        }
+    }
+
+    public void remove(K key) {
+        map.remove(key);
+    }
+
+    /**
+     * Replace the value of a cached key atomically; returning null from the function removes the entry.
+     */
+    public void computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+        map.computeIfPresent(key, (k, node) -> {
+            V value = function.apply(k, node.value);
+            return value != null ? new Node<>(value) : null;
+        });
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int excess = map.size() - maxEntries;
+            if (excess <= 0) {
+                return;
+            }
+            // Find the read time below which the excess entries lie, then drop those
+            long[] readTimes = map.values().stream().mapToLong(node -> node.readAt).toArray();
+            if (readTimes.length <= maxEntries) {
+                return;
+            }
+            Arrays.sort(readTimes);
+            long cutoff = readTimes[Math.min(excess, readTimes.length) - 1];
+            int[] removed = {0};
+            map.forEach((key, node) -> {
+                // remove(key, node) keeps an entry that was replaced meanwhile
+                if (removed[0] < excess && node.readAt <= cutoff && map.remove(key, node)) {
+                    removed[0]++;
+                }
+            });
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Node<V> {
+        final V value;
+        volatile long readAt = System.nanoTime();
+
+        Node(V value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.nexus.chat.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routed data sources, enabled with datasource.replica.enabled=true and/or message-shard.enabled=true.
+ *
+ * The primary pool is configured as before (spring.datasource.*, spring.datasource.hikari.*).
+ * - Replicas: each datasource.replica.urls entry gets its own pool (datasource.replica.hikari.*),
+ *   and the main database routes read-only transactions to them (ReplicaRoutingDataSource).
+ * - Message shards: each message-shard.shards entry gets its own pool (message-shard.hikari.*),
+ *   selected while MessageShardRouter has a shard bound (ShardRoutingDataSource).
+ * The application DataSource is a LazyConnectionDataSourceProxy over the outermost router.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnExpression("${datasource.replica.enabled:false} or ${message-shard.enabled:false}")
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariConfig replicaHikariConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties("message-shard.hikari")
+    public HikariConfig shardHikariConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             HikariConfig replicaHikariConfig,
+                                                             DataSourceProperties dataSourceProperties,
+                                                             ReplicaDataSourceProperties replicaProperties,
+                                                             ReadYourWritesTracker readYourWritesTracker,
+                                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaProperties.getUrls()) {
+            HikariDataSource replica = pool(replicaHikariConfig, "replica-" + replicas.size(), url,
+                    replicaProperties.getUsername(), replicaProperties.getPassword(),
+                    dataSourceProperties, meterRegistry);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        if (replicas.isEmpty()) {
+            log.warn("datasource.replica.enabled=true 但未配置 datasource.replica.urls, 所有读取走主库");
+        } else {
+            log.info("只读事务路由到 {} 个从库, 写入后 {} 内读主库", replicas.size(), replicaProperties.getMaxLag());
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, readYourWritesTracker);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "message-shard.enabled", havingValue = "true")
+    public ShardRoutingDataSource shardRoutingDataSource(HikariDataSource primaryDataSource,
+                                                         ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource,
+                                                         HikariConfig shardHikariConfig,
+                                                         DataSourceProperties dataSourceProperties,
+                                                         MessageShardProperties shardProperties,
+                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        shardProperties.getShards().forEach((name, shard) -> {
+            HikariDataSource pool = pool(shardHikariConfig, "shard-" + name, shard.getUrl(),
+                    shard.getUsername(), shard.getPassword(), dataSourceProperties, meterRegistry);
+            if (shardProperties.isInitializeSchema()) {
+                new ResourceDatabasePopulator(new ClassPathResource("db/message-shard-schema.sql")).execute(pool);
+            }
+            pools.put(name, pool);
+        });
+        log.info("消息分片: {} 个分片库, ring={}, migration-ring={}",
+                pools.size(), shardProperties.getRing(), shardProperties.getMigrationRing());
+
+        ReplicaRoutingDataSource replicas = replicaRoutingDataSource.getIfAvailable();
+        DataSource main = replicas != null ? replicas : primaryDataSource;
+        return new ShardRoutingDataSource(main, pools);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource,
+                                 ObjectProvider<ShardRoutingDataSource> shardRoutingDataSource) {
+        DataSource target = shardRoutingDataSource.getIfAvailable();
+        if (target == null) {
+            target = replicaRoutingDataSource.getIfAvailable();
+        }
+        return new LazyConnectionDataSourceProxy(target != null ? target : primaryDataSource);
+    }
+
+    private static HikariDataSource pool(HikariConfig template, String poolName, String url,
+                                         String username, String password,
+                                         DataSourceProperties dataSourceProperties,
+                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource pool = new HikariDataSource();
+        template.copyStateTo(pool);
+        pool.setPoolName(poolName);
+        pool.setJdbcUrl(url);
+        pool.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        pool.setUsername(username != null ? username : dataSourceProperties.determineUsername());
+        pool.setPassword(password != null ? password : dataSourceProperties.determinePassword());
+        meterRegistry.ifAvailable(registry ->
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+        return pool;
+    }
+}
@@ -0,0 +1,27 @@
+package com.nexus.chat.config;
+
+import com.nexus.chat.service.FileCleanupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 文件清理进度指标（/actuator/filecleanup）
+ *
+ * 只在内部管理端口上暴露，供运维查看，不对普通用户开放。
+ */
+@Component
+@Endpoint(id = "filecleanup")
+@RequiredArgsConstructor
+public class FileCleanupEndpoint {
+
+    private final FileCleanupService fileCleanupService;
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return fileCleanupService.getStats();
+    }
+}
@@ -0,0 +1,36 @@
+package com.nexus.chat.config;
+
+/**
+ * The message shard the current thread's next connection should come from
+ * (null = the main database). Bound by MessageShardRouter around shard transactions.
+ */
+public final class MessageShardContext {
+
+    public static final String MAIN = "main";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private MessageShardContext() {
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return the previously bound shard, to pass to {@link #restore}
+     */
+    public static String bind(String shard) {
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    public static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.nexus.chat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Message store shards (messages, messages_archive, message_read_status), placed by chat id
+ * on a consistent-hash ring. The shard named "main" is the application database itself.
+ *
+ * <pre>
+ * message-shard.enabled=true
+ * message-shard.shards.s1.url=jdbc:mysql://shard-1:3306/nexus_chat
+ * message-shard.shards.s2.url=jdbc:mysql://shard-2:3306/nexus_chat
+ * message-shard.ring=main
+ * # resharding: dual-write to the new owners and backfill, then make this the ring
+ * message-shard.migration-ring=main,s1,s2
+ * </pre>
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "message-shard")
+public class MessageShardProperties {
+
+    private boolean enabled = false;
+
+    /** Shard connections by name; username/password default to spring.datasource's. */
+    private Map<String, Shard> shards = new LinkedHashMap<>();
+
+    /** Shards that own chats; reads and writes go to the owner on this ring. */
+    private List<String> ring = new ArrayList<>(List.of(MessageShardContext.MAIN));
+
+    /** Target ring while resharding; empty when no migration is in progress. */
+    private List<String> migrationRing = new ArrayList<>();
+
+    /** Points per shard on the ring. */
+    private int virtualNodes = 160;
+
+    /** Create the message tables on the shards at startup (db/message-shard-schema.sql). */
+    private boolean initializeSchema = true;
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
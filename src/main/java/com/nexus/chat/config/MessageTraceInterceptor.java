@@ -0,0 +1,38 @@
+package com.nexus.chat.config;
+
+import com.nexus.chat.service.DeliveryTracer;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stamps each SEND frame with the time it entered the inbound channel (on the WebSocket thread,
+ * before it is queued for the inbound executor), so handlers can measure the inbound hop.
+ */
+@Component
+public class MessageTraceInterceptor implements ChannelInterceptor {
+
+    public static final String RECEIVED_AT_HEADER = "nexus.receivedAt";
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.SEND.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        long now = DeliveryTracer.nowMicros();
+        if (accessor.isMutable()) {
+            accessor.setHeader(RECEIVED_AT_HEADER, now);
+            return message;
+        }
+        StompHeaderAccessor copy = StompHeaderAccessor.wrap(message);
+        copy.setHeader(RECEIVED_AT_HEADER, now);
+        return MessageBuilder.createMessage(message.getPayload(), copy.getMessageHeaders());
+    }
+}
@@ -66,14 +66,8 @@ public class MessageValidationInterceptor implements ChannelInterceptor {
                 throw new MessageDeliveryException("Invalid user principal");
             }
 
-            if (destination.startsWith("/app/chat.sendMessage") || destination.startsWith("/app/chat.send")) {
-                if (!rateLimiter.allowMessage(userId)) {
-                    throw new MessageDeliveryException("Rate limit exceeded: too many messages");
-                }
-            } else if (destination.contains("typing")) {
-                if (!rateLimiter.allowTyping(userId)) {
-                    throw new MessageDeliveryException("Rate limit exceeded: typing indicators");
-                }
+            if (!rateLimiter.allow(userId, destination)) {
+                throw new MessageDeliveryException("Rate limit exceeded: " + destination);
             }
         }
 
@@ -0,0 +1,47 @@
+package com.nexus.chat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WebSocket rate limit policies, keyed by policy name.
+ *
+ * <pre>
+ * ratelimit.policies.message.destinations=/app/chat.sendMessage,/app/group.message
+ * ratelimit.policies.message.capacity=30
+ * ratelimit.policies.message.window=10s
+ * </pre>
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "ratelimit")
+public class RateLimitProperties {
+
+    /**
+     * Consult Redis only once the in-process bucket drops below this fraction
+     * of its capacity. 0 disables the local pre-check (every request hits Redis).
+     */
+    private double syncBelow = 0.5;
+
+    private Map<String, Policy> policies = new LinkedHashMap<>();
+
+    @Data
+    public static class Policy {
+
+        /** Ant-style STOMP destination patterns; the first matching policy applies. */
+        private List<String> destinations = new ArrayList<>();
+
+        /** Burst size: requests allowed back-to-back on a full bucket. */
+        private int capacity;
+
+        /** Time to refill the bucket from empty; sustained rate is capacity / window. */
+        private Duration window = Duration.ofSeconds(10);
+    }
+}
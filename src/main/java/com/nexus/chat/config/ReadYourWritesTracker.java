@@ -0,0 +1,70 @@
+package com.nexus.chat.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-your-writes for replica routing: once a user commits a write, their read-only
+ * transactions stay on the primary for datasource.replica.max-lag, long enough for the
+ * replicas to apply it.
+ *
+ * The last write is kept in Redis (rw:written:{userId}, expiring after max-lag) so it holds
+ * when the next request lands on another instance, plus a local copy so requests on the
+ * writing instance skip Redis.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReadYourWritesTracker {
+
+    private static final String WRITTEN_PREFIX = "rw:written:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ReplicaDataSourceProperties properties;
+
+    // userId -> 本实例上最近一次提交写事务的时间
+    private final Map<Long, Long> localWrittenAt = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(StringRedisTemplate redisTemplate, ReplicaDataSourceProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+    }
+
+    public void recordWrite(Long userId) {
+        long now = System.currentTimeMillis();
+        localWrittenAt.put(userId, now);
+        try {
+            redisTemplate.opsForValue().set(WRITTEN_PREFIX + userId, String.valueOf(now), properties.getMaxLag());
+        } catch (Exception e) {
+            log.error("记录用户写入失败: userId={}, {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the user's reads must go to the primary. Errs towards the primary when Redis is unavailable.
+     */
+    public boolean mustReadPrimary(Long userId) {
+        Long writtenAt = localWrittenAt.get(userId);
+        if (writtenAt != null && System.currentTimeMillis() - writtenAt < properties.getMaxLag().toMillis()) {
+            return true;
+        }
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(WRITTEN_PREFIX + userId));
+        } catch (Exception e) {
+            log.error("读取用户写入记录失败: userId={}, {}", userId, e.getMessage());
+            return true;
+        }
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - properties.getMaxLag().toMillis();
+        localWrittenAt.values().removeIf(writtenAt -> writtenAt < cutoff);
+    }
+}
@@ -0,0 +1,42 @@
+package com.nexus.chat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas for read-only transactions (see DataSourceConfig).
+ *
+ * <pre>
+ * datasource.replica.enabled=true
+ * datasource.replica.urls[0]=jdbc:mysql://replica-1:3306/nexus_chat
+ * datasource.replica.urls[1]=jdbc:mysql://replica-2:3306/nexus_chat
+ * datasource.replica.hikari.maximum-pool-size=20
+ * </pre>
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "datasource.replica")
+public class ReplicaDataSourceProperties {
+
+    private boolean enabled = false;
+
+    /** JDBC URLs of the replicas; reads are spread round-robin. */
+    private List<String> urls = new ArrayList<>();
+
+    /** Defaults to spring.datasource.username. */
+    private String username;
+
+    /** Defaults to spring.datasource.password. */
+    private String password;
+
+    /**
+     * How long a user's reads stay on the primary after they commit a write.
+     * Should exceed the usual replication lag.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+}
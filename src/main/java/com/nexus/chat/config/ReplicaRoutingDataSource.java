@@ -0,0 +1,99 @@
+package com.nexus.chat.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the pool per connection: read-only transactions go to a replica (round-robin),
+ * everything else to the primary. A user who committed a write within max-lag keeps reading
+ * from the primary (see ReadYourWritesTracker); the user is taken from the SecurityContext.
+ *
+ * Must sit behind a LazyConnectionDataSourceProxy, so that the connection is only fetched
+ * once the transaction's read-only flag is known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    static final String PRIMARY = "primary";
+
+    private final List<HikariDataSource> replicas;
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final ReadYourWritesTracker tracker;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, ReadYourWritesTracker tracker) {
+        this.replicas = replicas;
+        this.tracker = tracker;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (HikariDataSource replica : replicas) {
+            replicaKeys.add(replica.getPoolName());
+            targets.put(replica.getPoolName(), replica);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Long userId = currentUserId();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (userId != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                recordWriteOnCommit(userId);
+            }
+            return PRIMARY;
+        }
+        if (replicaKeys.isEmpty() || (userId != null && tracker.mustReadPrimary(userId))) {
+            return PRIMARY;
+        }
+        return replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+    }
+
+    /**
+     * Read-write transactions count as writes of the acting user once they commit.
+     */
+    private void recordWriteOnCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.getSynchronizations().stream()
+                        .anyMatch(s -> s instanceof WriteSynchronization)) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new WriteSynchronization(userId));
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof Long userId ? userId : null;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+    }
+
+    private class WriteSynchronization implements TransactionSynchronization {
+
+        private final Long userId;
+
+        WriteSynchronization(Long userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public void afterCommit() {
+            tracker.recordWrite(userId);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.nexus.chat.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Pool for @Scheduled jobs.
+ * Without it the jobs would share the single ws-heartbeat thread (the only TaskScheduler bean),
+ * so one long job (archive, reconcile, backfill) delays every other job and the STOMP heartbeats.
+ */
+@Configuration
+public class SchedulingConfig implements SchedulingConfigurer, DisposableBean {
+
+    @Value("${scheduling.pool-size:4}")
+    private int poolSize;
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduled-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(false);
+        scheduler.initialize();
+        registrar.setTaskScheduler(scheduler);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+}
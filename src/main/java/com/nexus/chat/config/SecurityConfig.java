@@ -32,6 +32,13 @@ public class SecurityConfig {
     @Value("${cors.allowed-origins:}")
     private String corsAllowedOrigins;
 
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    // Actuator endpoints are served on this internal port, not the public one
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -46,7 +53,11 @@ public class SecurityConfig {
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/**", "/ws/**", "/ws-native/**", "/error").permitAll()
-                .requestMatchers("/api/files/preview/**", "/api/files/download/**").permitAll()
+                .requestMatchers("/api/files/preview/**", "/api/files/download/**", "/api/files/thumbnail/**").permitAll()
+                .requestMatchers("/api/avatars/**").permitAll()
+                .requestMatchers(request -> managementPort > 0 && managementPort != serverPort
+                        && request.getLocalPort() == managementPort).permitAll()
+                .requestMatchers("/actuator/health", "/livez", "/readyz").permitAll()
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
@@ -0,0 +1,54 @@
+package com.nexus.chat.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Picks the message shard bound by {@link MessageShardContext}, or the main database when none is.
+ * Like ReplicaRoutingDataSource it sits behind the LazyConnectionDataSourceProxy, so the shard is
+ * chosen when a transaction's first statement runs.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private final Map<String, DataSource> shards = new LinkedHashMap<>();
+    private final Map<String, HikariDataSource> shardPools;
+
+    public ShardRoutingDataSource(DataSource main, Map<String, HikariDataSource> shardPools) {
+        this.shardPools = shardPools;
+        shards.put(MessageShardContext.MAIN, main);
+        shards.putAll(shardPools);
+
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(main);
+        // An unknown shard name is a configuration error, never a silent fallback to main
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String shard = MessageShardContext.current();
+        return shard != null ? shard : MessageShardContext.MAIN;
+    }
+
+    /**
+     * The shard's own data source, bypassing routing (backfill copies between shards).
+     */
+    public DataSource shard(String name) {
+        DataSource dataSource = shards.get(name);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Unknown message shard: " + name);
+        }
+        return dataSource;
+    }
+
+    @Override
+    public void close() {
+        shardPools.values().forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,47 @@
+package com.nexus.chat.config;
+
+import com.nexus.chat.storage.BlobStorage;
+import com.nexus.chat.storage.LocalBlobStorage;
+import com.nexus.chat.storage.S3BlobStorage;
+import com.nexus.chat.storage.ShardedBlobStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * File storage backend selection (storage.type = local | sharded | s3).
+ */
+@Slf4j
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.type", havingValue = "local", matchIfMissing = true)
+    public BlobStorage localBlobStorage(@Value("${storage.local.root:uploads}") String root) {
+        log.info("文件存储: local, root={}", root);
+        return new LocalBlobStorage(root);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.type", havingValue = "sharded")
+    public BlobStorage shardedBlobStorage(@Value("${storage.sharded.roots}") List<String> roots) {
+        log.info("文件存储: sharded, roots={}", roots);
+        return new ShardedBlobStorage(roots);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "storage.type", havingValue = "s3")
+    public BlobStorage s3BlobStorage(@Value("${storage.s3.endpoint:}") String endpoint,
+                                     @Value("${storage.s3.region:us-east-1}") String region,
+                                     @Value("${storage.s3.bucket}") String bucket,
+                                     @Value("${storage.s3.prefix:}") String prefix,
+                                     @Value("${storage.s3.access-key:}") String accessKey,
+                                     @Value("${storage.s3.secret-key:}") String secretKey) {
+        log.info("文件存储: s3, endpoint={}, bucket={}", endpoint.isBlank() ? "aws" : endpoint, bucket);
+        return new S3BlobStorage(endpoint, region, bucket, prefix, accessKey, secretKey);
+    }
+}
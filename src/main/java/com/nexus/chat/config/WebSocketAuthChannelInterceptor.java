@@ -1,6 +1,9 @@
 package com.nexus.chat.config;
 
+import com.nexus.chat.repository.ChatMemberRepository;
 import com.nexus.chat.security.JwtTokenProvider;
+import com.nexus.chat.service.ChannelService;
+import com.nexus.chat.service.ChannelSubscriptionRegistry;
 import com.nexus.chat.service.PresenceService;
 import com.nexus.chat.service.WebSocketSessionRegistry;
 import lombok.RequiredArgsConstructor;
@@ -15,10 +18,13 @@ import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.stereotype.Component;
 
 import java.security.Principal;
+import java.util.Optional;
 
 /**
  * WebSocket Channel Interceptor for JWT-based user authentication.
- * Also handles distributed session registration on CONNECT/DISCONNECT.
+ * Also handles distributed session registration on CONNECT/DISCONNECT,
+ * and restricts SUBSCRIBE to channel topics to the channel's members. Channel subscriptions
+ * are tracked so they can be revoked when the member leaves (ChannelSubscriptionRegistry).
  */
 @Slf4j
 @Component
@@ -28,6 +34,8 @@ public class WebSocketAuthChannelInterceptor implements ChannelInterceptor {
     private final JwtTokenProvider jwtTokenProvider;
     private final WebSocketSessionRegistry sessionRegistry;
     private final PresenceService presenceService;
+    private final ChatMemberRepository chatMemberRepository;
+    private final ChannelSubscriptionRegistry channelSubscriptionRegistry;
 
     @Override
     public Message<?> preSend(Message<?> message, MessageChannel channel) {
@@ -36,6 +44,10 @@ public class WebSocketAuthChannelInterceptor implements ChannelInterceptor {
 
         if (StompCommand.CONNECT.equals(accessor.getCommand())) {
             handleConnect(accessor);
+        } else if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            handleSubscribe(accessor);
+        } else if (StompCommand.UNSUBSCRIBE.equals(accessor.getCommand())) {
+            channelSubscriptionRegistry.unsubscribed(accessor.getSessionId(), accessor.getSubscriptionId());
         } else if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
             handleDisconnect(accessor);
         }
@@ -49,8 +61,9 @@ public class WebSocketAuthChannelInterceptor implements ChannelInterceptor {
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            if (jwtTokenProvider.validateToken(token)) {
-                userId = jwtTokenProvider.getUserIdFromToken(token);
+            Optional<JwtTokenProvider.TokenClaims> claims = jwtTokenProvider.parse(token);
+            if (claims.isPresent()) {
+                userId = claims.get().userId();
                 accessor.setUser(new StompPrincipal(String.valueOf(userId)));
                 log.info("WebSocket JWT 认证成功: userId={}", userId);
             } else {
@@ -77,7 +90,29 @@ public class WebSocketAuthChannelInterceptor implements ChannelInterceptor {
         }
     }
 
+    private void handleSubscribe(StompHeaderAccessor accessor) {
+        Long channelId = ChannelService.parseTopic(accessor.getDestination());
+        if (channelId == null) {
+            return;
+        }
+        Principal user = accessor.getUser();
+        if (user == null) {
+            throw new MessageDeliveryException("Not authenticated");
+        }
+        try {
+            Long userId = Long.parseLong(user.getName());
+            if (!chatMemberRepository.existsByChatIdAndUserId(channelId, userId)) {
+                log.warn("拒绝订阅频道: userId={}, channelId={}", userId, channelId);
+                throw new MessageDeliveryException("Not a member of channel " + channelId);
+            }
+            channelSubscriptionRegistry.subscribed(userId, accessor.getSessionId(), accessor.getSubscriptionId(), channelId);
+        } catch (NumberFormatException e) {
+            throw new MessageDeliveryException("Invalid user: " + user.getName());
+        }
+    }
+
     private void handleDisconnect(StompHeaderAccessor accessor) {
+        channelSubscriptionRegistry.sessionClosed(accessor.getSessionId());
         Principal user = accessor.getUser();
         if (user != null) {
             try {
@@ -20,6 +20,12 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Autowired
     private MessageValidationInterceptor messageValidationInterceptor;
 
+    @Autowired
+    private MessageTraceInterceptor messageTraceInterceptor;
+
+    @Autowired
+    private WebSocketSecurityContextInterceptor webSocketSecurityContextInterceptor;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         log.info("配置 WebSocket 消息代理: /topic, /queue");
@@ -72,7 +78,8 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
         log.debug("配置 WebSocket 入站通道拦截器");
-        registration.interceptors(webSocketAuthChannelInterceptor, messageValidationInterceptor);
+        registration.interceptors(messageTraceInterceptor, webSocketAuthChannelInterceptor, messageValidationInterceptor,
+                webSocketSecurityContextInterceptor);
     }
 
 }
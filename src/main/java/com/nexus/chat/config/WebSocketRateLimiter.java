@@ -1,74 +1,177 @@
 package com.nexus.chat.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Token-bucket rate limiter backed by Redis.
  * Limits WebSocket operations per user to prevent abuse.
+ *
+ * Each (policy, user) pair has an in-process bucket that admits requests on its
+ * own while it holds plenty of tokens. Once it drops below
+ * {@code ratelimit.sync-below} of capacity, the request is checked against the
+ * shared Redis bucket by a single atomic Lua script, which also charges the
+ * requests admitted locally since the last sync. Users far from their limit
+ * therefore never wait on Redis.
  */
 @Slf4j
 @Component
 public class WebSocketRateLimiter {
 
+    private static final String KEY_PREFIX = "ratelimit:tb:";
+
     private final StringRedisTemplate redisTemplate;
+    private final RateLimitProperties properties;
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> tokenBucketScript;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
 
-    // Rate limit configurations
-    private static final int MESSAGE_LIMIT = 30;          // max messages
-    private static final int MESSAGE_WINDOW_SECONDS = 10;  // per 10 seconds
-    private static final int TYPING_LIMIT = 5;
-    private static final int TYPING_WINDOW_SECONDS = 10;
-    private static final int STATUS_LIMIT = 2;
-    private static final int STATUS_WINDOW_SECONDS = 10;
+    // policy:userId -> local bucket
+    private final Map<String, LocalBucket> localBuckets = new ConcurrentHashMap<>();
 
-    public WebSocketRateLimiter(StringRedisTemplate redisTemplate) {
+    public WebSocketRateLimiter(StringRedisTemplate redisTemplate, RateLimitProperties properties) {
         this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.tokenBucketScript = RedisScript.of(new ClassPathResource("scripts/token_bucket.lua"), List.class);
     }
 
     /**
-     * Check if a message send is allowed for the user.
+     * Check if a SEND to the destination is allowed for the user.
+     * Destinations without a matching policy are not limited.
+     *
      * @return true if allowed, false if rate limited
      */
-    public boolean allowMessage(Long userId) {
-        return checkRate("ratelimit:msg:" + userId, MESSAGE_LIMIT, MESSAGE_WINDOW_SECONDS);
+    public boolean allow(Long userId, String destination) {
+        for (Map.Entry<String, RateLimitProperties.Policy> entry : properties.getPolicies().entrySet()) {
+            RateLimitProperties.Policy policy = entry.getValue();
+            for (String pattern : policy.getDestinations()) {
+                if (pathMatcher.match(pattern, destination)) {
+                    return checkRate(entry.getKey(), policy, userId);
+                }
+            }
+        }
+        return true;
     }
 
-    /**
-     * Check if a typing indicator is allowed for the user.
-     */
-    public boolean allowTyping(Long userId) {
-        return checkRate("ratelimit:typing:" + userId, TYPING_LIMIT, TYPING_WINDOW_SECONDS);
+    private boolean checkRate(String policyName, RateLimitProperties.Policy policy, Long userId) {
+        String key = policyName + ":" + userId;
+        long windowMs = policy.getWindow().toMillis();
+        LocalBucket bucket = localBuckets.computeIfAbsent(key,
+                k -> new LocalBucket(policy.getCapacity(), windowMs));
+
+        long now = System.currentTimeMillis();
+        int pending = bucket.tryLocal(now, policy.getCapacity() * properties.getSyncBelow());
+        if (pending < 0) {
+            return true;
+        }
+
+        try {
+            List<?> result = redisTemplate.execute(tokenBucketScript,
+                    List.of(KEY_PREFIX + key),
+                    String.valueOf(policy.getCapacity()),
+                    String.valueOf(windowMs),
+                    String.valueOf(now),
+                    String.valueOf(pending),
+                    "1");
+
+            boolean allowed = "1".equals(String.valueOf(result.get(0)));
+            bucket.sync(Double.parseDouble(String.valueOf(result.get(1))), now);
+            if (!allowed) {
+                log.warn("速率限制触发: policy={}, userId={}, capacity={}, window={}ms",
+                        policyName, userId, policy.getCapacity(), windowMs);
+            }
+            return allowed;
+        } catch (Exception e) {
+            // If Redis is down, fall back to the local bucket alone
+            log.error("速率限制检查失败，使用本地令牌桶: {}", e.getMessage());
+            return bucket.tryAcquire(now);
+        }
     }
 
     /**
-     * Check if a status update is allowed for the user.
+     * Drop local buckets that have been idle long enough to be full again.
      */
-    public boolean allowStatusUpdate(Long userId) {
-        return checkRate("ratelimit:status:" + userId, STATUS_LIMIT, STATUS_WINDOW_SECONDS);
+    @Scheduled(fixedRate = 60000)
+    public void evictIdleBuckets() {
+        long now = System.currentTimeMillis();
+        localBuckets.values().removeIf(bucket -> bucket.isIdle(now));
     }
 
     /**
-     * Simple sliding window counter using Redis INCR + TTL.
+     * Approximate per-instance token bucket.
      */
-    private boolean checkRate(String key, int limit, int windowSeconds) {
-        try {
-            Long count = redisTemplate.opsForValue().increment(key);
-            if (count != null && count == 1) {
-                // First request in window - set expiry
-                redisTemplate.expire(key, windowSeconds, TimeUnit.SECONDS);
+    private static final class LocalBucket {
+
+        private final int capacity;
+        private final long windowMs;
+        private double tokens;
+        private long lastRefill;
+        private long lastUsed;
+        // 本地放行但尚未计入 Redis 的请求数
+        private int pending;
+
+        LocalBucket(int capacity, long windowMs) {
+            this.capacity = capacity;
+            this.windowMs = windowMs;
+            this.tokens = capacity;
+            this.lastRefill = System.currentTimeMillis();
+            this.lastUsed = lastRefill;
+        }
+
+        /**
+         * Admit locally if the bucket stays at or above the threshold.
+         *
+         * @return -1 if admitted locally, otherwise the number of unsynced requests
+         *         to charge to Redis along with this one
+         */
+        synchronized int tryLocal(long now, double threshold) {
+            refill(now);
+            lastUsed = now;
+            if (threshold > 0 && tokens - 1 >= threshold) {
+                tokens -= 1;
+                pending++;
+                return -1;
             }
-            if (count != null && count > limit) {
-                log.warn("速率限制触发: key={}, count={}, limit={}", key, count, limit);
-                return false;
+            int unsynced = pending;
+            pending = 0;
+            return unsynced;
+        }
+
+        /**
+         * Adopt the authoritative token count returned by Redis.
+         */
+        synchronized void sync(double remoteTokens, long now) {
+            tokens = Math.min(remoteTokens, capacity);
+            lastRefill = now;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean isIdle(long now) {
+            return now - lastUsed > windowMs;
+        }
+
+        private void refill(long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(capacity, tokens + (double) (now - lastRefill) * capacity / windowMs);
+                lastRefill = now;
             }
-            return true;
-        } catch (Exception e) {
-            // If Redis is down, allow the request (fail-open)
-            log.error("速率限制检查失败，默认放行: {}", e.getMessage());
-            return true;
         }
     }
 }
@@ -0,0 +1,44 @@
+package com.nexus.chat.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.Collections;
+
+/**
+ * Binds the STOMP session's user to the SecurityContext while an inbound message is handled
+ * on the inbound executor thread, as JwtAuthenticationFilter does for HTTP requests
+ * (the principal is the user id). ReplicaRoutingDataSource relies on it for read-your-writes.
+ */
+@Component
+public class WebSocketSecurityContextInterceptor implements ExecutorChannelInterceptor {
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        Principal user = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+        if (user != null) {
+            try {
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(new UsernamePasswordAuthenticationToken(
+                        Long.valueOf(user.getName()), null, Collections.emptyList()));
+                SecurityContextHolder.setContext(context);
+            } catch (NumberFormatException e) {
+                // 非用户 id 的 principal，不绑定
+            }
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        SecurityContextHolder.clearContext();
+    }
+}
@@ -0,0 +1,75 @@
+package com.nexus.chat.controller;
+
+import com.nexus.chat.service.AvatarService;
+import com.nexus.chat.storage.BlobStorage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves content-hashed avatars.
+ * URLs never change meaning, so responses are cacheable by browsers and CDNs for a year.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/avatars")
+@RequiredArgsConstructor
+public class AvatarController {
+
+    private final AvatarService avatarService;
+    private final BlobStorage blobStorage;
+
+    /**
+     * Get avatar at the default size
+     * GET /api/avatars/{hash}
+     */
+    @GetMapping("/{hash}")
+    public ResponseEntity<Resource> getAvatar(@PathVariable String hash) {
+        return serve(hash, AvatarService.DEFAULT_SIZE);
+    }
+
+    /**
+     * Get avatar at the nearest rendered size
+     * GET /api/avatars/{hash}/{size}
+     */
+    @GetMapping("/{hash}/{size}")
+    public ResponseEntity<Resource> getAvatarSized(@PathVariable String hash, @PathVariable int size) {
+        return serve(hash, size);
+    }
+
+    private ResponseEntity<Resource> serve(String hash, int size) {
+        String key = avatarService.resolve(hash, size);
+        if (key == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Resource resource;
+        try {
+            resource = blobStorage.load(key);
+        } catch (IOException e) {
+            log.error("头像读取失败: key={}", key, e);
+            return ResponseEntity.internalServerError().build();
+        }
+        if (resource == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        MediaType type = key.endsWith(".png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG;
+
+        return ResponseEntity.ok()
+                .contentType(type)
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .eTag(key.substring(key.lastIndexOf('/') + 1))
+                .body(resource);
+    }
+}
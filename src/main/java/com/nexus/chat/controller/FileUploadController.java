@@ -2,10 +2,13 @@ package com.nexus.chat.controller;
 
 import com.nexus.chat.model.FileUpload;
 import com.nexus.chat.repository.FileUploadRepository;
+import com.nexus.chat.service.ThumbnailService;
+import com.nexus.chat.storage.BlobStorage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -14,20 +17,25 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RestController
@@ -35,11 +43,16 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class FileUploadController {
 
-    private static final String UPLOAD_DIR = "uploads/";
     private static final long MAX_FILE_SIZE = 100 * 1024 * 1024; // 100MB
     private static final int EXPIRY_DAYS = 30;
 
     private final FileUploadRepository fileUploadRepository;
+    private final ThumbnailService thumbnailService;
+    private final BlobStorage blobStorage;
+
+    // 分片上传的本地暂存目录（合并后写入存储后端）
+    @Value("${storage.staging-dir:uploads/chunks}")
+    private String stagingDir;
 
     /**
      * 单文件上传（小于5MB）
@@ -68,15 +81,12 @@ public class FileUploadController {
             if (existing.isPresent() && existing.get().getUploadComplete()) {
                 FileUpload existingFile = existing.get();
                 log.info("文件秒传: md5={}, fileId={}", md5Hash, existingFile.getFileId());
+                thumbnailService.scheduleThumbnail(existingFile);
                 return ResponseEntity.ok(buildResponse(existingFile));
             }
 
-            // 创建按日期分类的目录
+            // 按日期分类存储
             String dateDir = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-            File uploadDir = new File(UPLOAD_DIR + dateDir);
-            if (!uploadDir.exists()) {
-                uploadDir.mkdirs();
-            }
 
             // 生成唯一文件名
             String originalFilename = file.getOriginalFilename();
@@ -86,8 +96,9 @@ public class FileUploadController {
             String filePath = dateDir + "/" + storedName;
 
             // 保存文件
-            Path targetPath = Paths.get(UPLOAD_DIR + filePath);
-            Files.write(targetPath, file.getBytes());
+            try (InputStream in = file.getInputStream()) {
+                blobStorage.put(filePath, in, file.getSize(), file.getContentType());
+            }
 
             // 保存到数据库
             FileUpload fileUpload = new FileUpload();
@@ -105,6 +116,7 @@ public class FileUploadController {
             fileUpload.setExpiresAt(LocalDateTime.now().plusDays(EXPIRY_DAYS));
 
             FileUpload savedFile = fileUploadRepository.save(fileUpload);
+            thumbnailService.scheduleThumbnail(savedFile);
 
             log.info("文件上传成功: fileId={}, filename={}, size={}",
                     fileId, originalFilename, file.getSize());
@@ -134,14 +146,11 @@ public class FileUploadController {
 
         try {
             // 创建临时分片目录
-            File chunksDir = new File(UPLOAD_DIR + "chunks/" + fileId);
-            if (!chunksDir.exists()) {
-                chunksDir.mkdirs();
-            }
+            Path chunksDir = Paths.get(stagingDir, fileId);
+            Files.createDirectories(chunksDir);
 
             // 保存分片
-            Path chunkPath = Paths.get(chunksDir.getPath() + "/chunk_" + chunkIndex);
-            Files.write(chunkPath, chunk.getBytes());
+            chunk.transferTo(chunksDir.resolve("chunk_" + chunkIndex));
 
             Map<String, Object> response = new HashMap<>();
             response.put("chunkIndex", chunkIndex);
@@ -150,21 +159,21 @@ public class FileUploadController {
             // 如果是最后一个分片，合并文件
             if (chunkIndex == totalChunks - 1) {
                 String dateDir = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-                File uploadDir = new File(UPLOAD_DIR + dateDir);
-                if (!uploadDir.exists()) {
-                    uploadDir.mkdirs();
-                }
 
                 String extension = getExtension(filename);
                 String storedName = fileId + extension;
                 String filePath = dateDir + "/" + storedName;
 
-                // 合并分片
-                mergeChunks(fileId, totalChunks, UPLOAD_DIR + filePath);
+                // 在暂存目录合并分片（同时计算MD5），再写入存储后端
+                Path mergedPath = chunksDir.resolve("merged");
+                String md5Hash = mergeChunks(chunksDir, totalChunks, mergedPath);
+                long mergedSize = Files.size(mergedPath);
+                try (InputStream in = Files.newInputStream(mergedPath)) {
+                    blobStorage.put(filePath, in, mergedSize, getMimeType(filename));
+                }
 
-                // 计算合并后文件的MD5
-                byte[] fileBytes = Files.readAllBytes(Paths.get(UPLOAD_DIR + filePath));
-                String md5Hash = calculateMD5(fileBytes);
+                // 删除临时分片目录
+                deleteDirectory(chunksDir.toFile());
 
                 // 保存到数据库
                 FileUpload fileUpload = new FileUpload();
@@ -172,7 +181,7 @@ public class FileUploadController {
                 fileUpload.setFilename(filename);
                 fileUpload.setOriginalName(filename);
                 fileUpload.setStoredName(storedName);
-                fileUpload.setFileSize(totalSize != null ? totalSize : fileBytes.length);
+                fileUpload.setFileSize(totalSize != null ? totalSize : mergedSize);
                 fileUpload.setMimeType(getMimeType(filename));
                 fileUpload.setMd5Hash(md5Hash);
                 fileUpload.setUploaderId(uploaderId);
@@ -182,6 +191,7 @@ public class FileUploadController {
                 fileUpload.setExpiresAt(LocalDateTime.now().plusDays(EXPIRY_DAYS));
 
                 FileUpload savedFile = fileUploadRepository.save(fileUpload);
+                thumbnailService.scheduleThumbnail(savedFile);
 
                 response.put("complete", true);
                 response.putAll(buildResponse(savedFile));
@@ -230,10 +240,9 @@ public class FileUploadController {
         }
 
         try {
-            Path filePath = Paths.get(UPLOAD_DIR + file.getFilePath());
-            Resource resource = new UrlResource(filePath.toUri());
+            Resource resource = blobStorage.load(file.getFilePath());
 
-            if (!resource.exists()) {
+            if (resource == null) {
                 return ResponseEntity.notFound().build();
             }
 
@@ -274,10 +283,9 @@ public class FileUploadController {
         }
 
         try {
-            Path filePath = Paths.get(UPLOAD_DIR + file.getFilePath());
-            Resource resource = new UrlResource(filePath.toUri());
+            Resource resource = blobStorage.load(file.getFilePath());
 
-            if (!resource.exists()) {
+            if (resource == null) {
                 return ResponseEntity.notFound().build();
             }
 
@@ -294,6 +302,65 @@ public class FileUploadController {
         }
     }
 
+    /**
+     * 获取图片缩略图
+     * 缩略图尚未生成时重新提交生成任务，并先返回原图
+     */
+    @GetMapping("/thumbnail/{fileId}")
+    public ResponseEntity<Resource> getThumbnail(@PathVariable String fileId) {
+
+        Optional<FileUpload> fileOpt = fileUploadRepository.findByFileId(fileId);
+        if (fileOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        FileUpload file = fileOpt.get();
+
+        // 检查文件是否过期
+        if (file.getExpiresAt() != null && file.getExpiresAt().isBefore(LocalDateTime.now())) {
+            return ResponseEntity.status(410).build(); // Gone
+        }
+
+        if (!thumbnailService.supports(file)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
+            if (file.getThumbnailPath() != null) {
+                Resource thumbnail = blobStorage.load(file.getThumbnailPath());
+                if (thumbnail != null) {
+                    MediaType type = file.getThumbnailPath().endsWith(".png")
+                            ? MediaType.IMAGE_PNG
+                            : MediaType.IMAGE_JPEG;
+                    // 缩略图按 fileId 唯一且生成后不再变化
+                    return ResponseEntity.ok()
+                            .contentType(type)
+                            .cacheControl(CacheControl.maxAge(30, TimeUnit.DAYS).cachePublic())
+                            .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
+                            .body(thumbnail);
+                }
+                file.setThumbnailPath(null);
+            }
+
+            // 缩略图缺失：重新排队生成，本次先回退到原图
+            thumbnailService.scheduleThumbnail(file);
+
+            Resource original = blobStorage.load(file.getFilePath());
+            if (original == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(file.getMimeType()))
+                    .cacheControl(CacheControl.noCache())
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
+                    .body(original);
+
+        } catch (Exception e) {
+            log.error("缩略图获取失败: fileId={}", fileId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     // ==================== 辅助方法 ====================
 
     private Map<String, Object> buildResponse(FileUpload file) {
@@ -302,6 +369,9 @@ public class FileUploadController {
         response.put("fileUrl", "/uploads/" + file.getFilePath());
         response.put("downloadUrl", "/files/download/" + file.getFileId());
         response.put("previewUrl", "/files/preview/" + file.getFileId());
+        if (thumbnailService.supports(file)) {
+            response.put("thumbnailUrl", "/files/thumbnail/" + file.getFileId());
+        }
         response.put("filename", file.getOriginalName());
         response.put("originalName", file.getOriginalName());
         response.put("size", file.getFileSize());
@@ -357,19 +427,21 @@ public class FileUploadController {
         }
     }
 
-    private void mergeChunks(String fileId, int totalChunks, String targetPath) throws IOException {
-        Path mergedPath = Paths.get(targetPath);
-
-        for (int i = 0; i < totalChunks; i++) {
-            Path chunkPath = Paths.get(UPLOAD_DIR + "chunks/" + fileId + "/chunk_" + i);
-            byte[] chunkData = Files.readAllBytes(chunkPath);
-            Files.write(mergedPath, chunkData,
-                    java.nio.file.StandardOpenOption.CREATE,
-                    java.nio.file.StandardOpenOption.APPEND);
+    private String mergeChunks(Path chunksDir, int totalChunks, Path mergedPath) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
         }
 
-        // 删除临时分片目录
-        deleteDirectory(new File(UPLOAD_DIR + "chunks/" + fileId));
+        // 逐个分片流式追加，不把整个文件读入内存
+        try (OutputStream out = new DigestOutputStream(Files.newOutputStream(mergedPath), md)) {
+            for (int i = 0; i < totalChunks; i++) {
+                Files.copy(chunksDir.resolve("chunk_" + i), out);
+            }
+        }
+        return HexFormat.of().formatHex(md.digest());
     }
 
     private void deleteDirectory(File directory) {
@@ -106,12 +106,17 @@ public class GroupController {
     }
 
     /**
-     * Get group members
-     * GET /api/groups/{id}/members
+     * Get group members (all, or one page when size is given)
+     * GET /api/groups/{id}/members?page={page}&size={size}
      */
     @GetMapping("/{id}/members")
-    public ResponseEntity<List<GroupMemberDTO>> getGroupMembers(@PathVariable Long id) {
-        List<GroupMemberDTO> members = groupService.getGroupMembers(id);
+    public ResponseEntity<List<GroupMemberDTO>> getGroupMembers(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        List<GroupMemberDTO> members = size != null
+                ? groupService.getGroupMembers(id, page, size)
+                : groupService.getGroupMembers(id);
         return ResponseEntity.ok(members);
     }
 
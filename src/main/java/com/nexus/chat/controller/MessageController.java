@@ -54,6 +54,50 @@ public class MessageController {
         }
     }
 
+    @GetMapping("/chat/{chatId}/recent")
+    public ResponseEntity<List<MessageDTO>> getRecentMessages(
+            @PathVariable Long chatId,
+            @RequestParam Long userId,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            List<MessageDTO> messages = messageService.getRecentMessages(chatId, userId, limit);
+            return ResponseEntity.ok(messages);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/chat/{chatId}/since")
+    public ResponseEntity<List<MessageDTO>> getMessagesSince(
+            @PathVariable Long chatId,
+            @RequestParam Long userId,
+            @RequestParam(defaultValue = "0") long afterSeq,
+            @RequestParam(defaultValue = "100") int limit) {
+        try {
+            List<MessageDTO> messages = messageService.getMessagesAfterSequence(chatId, userId, afterSeq, limit);
+            return ResponseEntity.ok(messages);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<MessageDTO>> searchMessages(
+            @RequestParam Long userId,
+            @RequestParam("q") String query,
+            @RequestParam(required = false) Long chatId,
+            @RequestParam(defaultValue = "relevance") String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            List<MessageDTO> messages = messageService.searchMessages(
+                    userId, query, chatId, page, size, "recent".equalsIgnoreCase(sort));
+            return ResponseEntity.ok(messages);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PutMapping("/{messageId}/read")
     public ResponseEntity<Void> markMessageAsRead(
             @PathVariable Long messageId,
@@ -11,11 +11,16 @@ import com.nexus.chat.repository.MessageRepository;
 import com.nexus.chat.repository.UserRepository;
 import com.nexus.chat.model.ChatMember;
 import com.nexus.chat.model.User;
+import com.nexus.chat.service.ChannelService;
+import com.nexus.chat.service.MessageArchiveService;
+import com.nexus.chat.service.MessageShardRouter;
+import com.nexus.chat.service.RecentMessageCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -40,8 +45,12 @@ public class SyncController {
     private final ChatRepository chatRepository;
     private final ChatMemberRepository chatMemberRepository;
     private final MessageRepository messageRepository;
+    private final MessageShardRouter messageShardRouter;
     private final ContactRepository contactRepository;
     private final UserRepository userRepository;
+    private final ChannelService channelService;
+    private final RecentMessageCache recentMessageCache;
+    private final MessageArchiveService messageArchiveService;
 
     /**
      * GET /api/sync/delta?since={ISO timestamp}&types=messages,chats,contacts
@@ -49,6 +58,7 @@ public class SyncController {
      * Returns delta data since the given timestamp for the authenticated user.
      */
     @GetMapping("/delta")
+    @Transactional(readOnly = true)
     public ResponseEntity<SyncResponseDTO> getDelta(
             @RequestParam(required = false) String since,
             @RequestParam(defaultValue = "messages,chats,contacts") String types) {
@@ -79,12 +89,28 @@ public class SyncController {
                 .map(ChatMember::getChatId)
                 .collect(Collectors.toList());
 
-        // Delta messages
+        // Delta messages: chats with a current recent-message window on this instance are
+        // answered from memory, the rest with one query (per message shard, in parallel)
         if (typeSet.contains("messages") && sinceTime != null && !chatIds.isEmpty()) {
-            List<Message> deltaMessages = messageRepository.findByChatIdInAndCreatedAtAfter(chatIds, sinceTime);
-            response.setMessages(deltaMessages.stream()
-                    .map(this::toMessageDTO)
-                    .collect(Collectors.toList()));
+            List<MessageDTO> deltaMessages = new ArrayList<>();
+            List<Long> uncachedChatIds = new ArrayList<>();
+            Map<Long, RecentMessageCache.Window> windows = recentMessageCache.getLocal(chatIds);
+            for (Long chatId : chatIds) {
+                RecentMessageCache.Window window = windows.get(chatId);
+                List<MessageDTO> cached = window != null ? window.since(sinceTime) : null;
+                if (cached != null) {
+                    deltaMessages.addAll(cached);
+                } else {
+                    uncachedChatIds.add(chatId);
+                }
+            }
+            if (!uncachedChatIds.isEmpty()) {
+                messageArchiveService.findCreatedAfter(uncachedChatIds, sinceTime).stream()
+                        .map(this::toMessageDTO)
+                        .forEach(deltaMessages::add);
+            }
+            deltaMessages.sort(Comparator.comparing(MessageDTO::getCreatedAt));
+            response.setMessages(deltaMessages);
         } else {
             response.setMessages(Collections.emptyList());
         }
@@ -192,8 +218,11 @@ public class SyncController {
         dto.setCreatedAt(chat.getCreatedAt());
         dto.setLastMessageAt(chat.getLastMessageAt());
 
-        // Load members
-        List<ChatMember> members = chatMemberRepository.findByChatId(chat.getId());
+        // Load members (for channels only the current user's membership)
+        List<ChatMember> members = ChannelService.isChannel(chat)
+                ? chatMemberRepository.findByChatIdAndUserId(chat.getId(), currentUserId)
+                        .map(List::of).orElse(Collections.emptyList())
+                : chatMemberRepository.findByChatId(chat.getId());
         Set<Long> memberUserIds = members.stream().map(ChatMember::getUserId).collect(Collectors.toSet());
         List<User> users = userRepository.findAllByIdIn(memberUserIds);
         Map<Long, User> usersById = users.stream().collect(Collectors.toMap(User::getId, Function.identity()));
@@ -225,7 +254,7 @@ public class SyncController {
         }
 
         // Load last message
-        messageRepository.findFirstByChatIdOrderByCreatedAtDesc(chat.getId())
+        messageShardRouter.read(chat.getId(), () -> messageRepository.findFirstByChatIdOrderByCreatedAtDesc(chat.getId()))
                 .ifPresent(lastMsg -> {
                     User sender = usersById.get(lastMsg.getSenderId());
                     if (sender == null) {
@@ -251,7 +280,9 @@ public class SyncController {
         members.stream()
                 .filter(m -> m.getUserId().equals(currentUserId))
                 .findFirst()
-                .ifPresent(member -> dto.setUnreadCount(member.getUnreadCount()));
+                .ifPresent(member -> dto.setUnreadCount(ChannelService.isChannel(chat)
+                        ? channelService.unreadCount(member)
+                        : member.getUnreadCount()));
 
         return dto;
     }
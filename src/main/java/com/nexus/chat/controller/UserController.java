@@ -63,12 +63,20 @@ public class UserController {
 
     /**
      * Search users by query (username, nickname, or email)
-     * GET /api/users/search?query={query}
+     * GET /api/users/search?query={query}&cursor={cursor}&limit={limit}
+     * The cursor for the next page is returned in the X-Next-Cursor header.
      */
     @GetMapping("/search")
-    public ResponseEntity<List<UserDTO>> searchUsers(@RequestParam String query) {
-        List<UserDTO> users = userService.searchUsers(query);
-        return ResponseEntity.ok(users);
+    public ResponseEntity<List<UserDTO>> searchUsers(
+            @RequestParam String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        UserSearchResultDTO result = userService.searchUsers(query, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (result.getNextCursor() != null) {
+            response.header("X-Next-Cursor", result.getNextCursor());
+        }
+        return response.body(result.getUsers());
     }
 
     /**
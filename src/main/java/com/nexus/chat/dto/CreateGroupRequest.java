@@ -15,4 +15,6 @@ public class CreateGroupRequest {
     private String avatar;
     private Boolean isPrivate = false;
     private List<Long> memberIds;
+    // Large broadcast-style group: topic delivery, no per-member work on send
+    private Boolean channel = false;
 }
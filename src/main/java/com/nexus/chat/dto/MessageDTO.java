@@ -33,4 +33,5 @@ public class MessageDTO {
     private String mimeType;
     private String downloadUrl;
     private String previewUrl;
+    private String thumbnailUrl;
 }
@@ -0,0 +1,23 @@
+package com.nexus.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Delivery trace context of a chat message, carried from the sender's SEND frame to every recipient
+ * (in WebSocketMessage and across instances in the relay envelope).
+ * Timestamps are epoch microseconds on the instance that handled the send.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageTrace {
+    private String traceId;
+    // SEND frame entered the inbound channel
+    private long receivedAt;
+    // Controller started handling it
+    private long handledAt;
+    // Message transaction committed
+    private long committedAt;
+}
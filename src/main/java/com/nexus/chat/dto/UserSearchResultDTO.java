@@ -0,0 +1,18 @@
+package com.nexus.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for one page of user search results
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSearchResultDTO {
+    private List<UserDTO> users;
+    private String nextCursor;
+}
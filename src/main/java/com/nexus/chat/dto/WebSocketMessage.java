@@ -1,5 +1,6 @@
 package com.nexus.chat.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,6 +11,13 @@ import lombok.NoArgsConstructor;
 public class WebSocketMessage {
     private MessageType type;
     private Object payload;
+    // Set on chat messages only
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private MessageTrace trace;
+
+    public WebSocketMessage(MessageType type, Object payload) {
+        this(type, payload, null);
+    }
 
     public enum MessageType {
         // Chat messages
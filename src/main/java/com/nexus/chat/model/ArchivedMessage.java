@@ -0,0 +1,54 @@
+package com.nexus.chat.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cold message history: rows moved out of {@code messages} by MessageArchiveService.
+ * Same columns and ids as {@link Message}, no foreign keys, compressed row format (see schema.sql).
+ */
+@Entity
+@Table(name = "messages_archive", indexes = {
+        @Index(name = "idx_messages_archive_chat_seq", columnList = "chat_id, sequence_number"),
+        @Index(name = "idx_messages_archive_chat_id", columnList = "chat_id, id"),
+        @Index(name = "idx_messages_archive_sender", columnList = "sender_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedMessage {
+
+    @Id
+    private Long id;
+
+    @Column(name = "chat_id", nullable = false)
+    private Long chatId;
+
+    @Column(name = "sender_id", nullable = false)
+    private Long senderId;
+
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "BLOB")
+    private String content;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "message_type", nullable = false)
+    private Message.MessageType messageType;
+
+    @Column(name = "file_url", columnDefinition = "TEXT")
+    private String fileUrl;
+
+    @Column(name = "sequence_number")
+    private Long sequenceNumber;
+
+    @Column(name = "client_message_id", length = 36)
+    private String clientMessageId;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+}
@@ -30,7 +30,8 @@ public class Chat {
     @Column(length = 200)
     private String description;
 
-    @Column(name = "avatar_url", columnDefinition = "TEXT")
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "avatar_url", columnDefinition = "MEDIUMBLOB")
     private String avatarUrl;
 
     @Column(name = "is_private")
@@ -42,6 +43,10 @@ public class Chat {
     @Column(name = "member_count")
     private Integer memberCount = 1;
 
+    // Messages moved to messages_archive (see MessageArchiveService)
+    @Column(name = "archived_count")
+    private Long archivedCount = 0L;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -50,8 +55,13 @@ public class Chat {
     @Column(name = "last_message_at")
     private LocalDateTime lastMessageAt;
 
+    /**
+     * channel: large broadcast group. Messages are published once to a shared
+     * per-chat topic instead of being fanned out per member, and members catch up
+     * by sequence number (see ChannelService).
+     */
     public enum ChatType {
-        direct, group
+        direct, group, channel
     }
 
 }
@@ -41,6 +41,10 @@ public class ChatMember {
     @Column(name = "unread_count")
     private Integer unreadCount = 0;
 
+    // Channels only: highest sequence number the member has read (unread = chat seq - this)
+    @Column(name = "last_read_seq")
+    private Long lastReadSeq = 0L;
+
     @CreationTimestamp
     @Column(name = "joined_at", updatable = false)
     private LocalDateTime joinedAt;
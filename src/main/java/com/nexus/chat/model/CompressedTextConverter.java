@@ -0,0 +1,149 @@
+package com.nexus.chat.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores large text attributes (message bodies, inline images in avatar/profile fields) compressed
+ * in a binary column. Values below storage.compression.min-bytes, or that do not shrink, stay plain.
+ *
+ * Column format:
+ * <ul>
+ *   <li>no header: UTF-8 text (rows written before compression, small values)</li>
+ *   <li>{@code 0x00 0x00} + UTF-8: stored text that itself starts with NUL</li>
+ *   <li>{@code 0x00 0x01} + 4-byte original length + zlib/DEFLATE data</li>
+ * </ul>
+ * Anything that does not decode is read back as plain UTF-8, so old rows always read.
+ *
+ * The columns have to be binary (BLOB / MEDIUMBLOB, schema.sql section 16) before
+ * storage.compression.enabled is turned on; a compressed value is not valid text for a TEXT column.
+ * Hibernate creates the converter through Spring, which injects the settings.
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    private static final byte MAGIC = 0x00;
+    private static final byte STORED = 0x00;
+    private static final byte DEFLATE = 0x01;
+    private static final int HEADER_BYTES = 6;
+    // Guards the allocation when a legacy row merely looks like a header
+    private static final int MAX_INFLATED_BYTES = 64 * 1024 * 1024;
+
+    private final boolean enabled;
+    private final int minBytes;
+    private final int level;
+
+    public CompressedTextConverter() {
+        this(false, 256, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    @Autowired
+    public CompressedTextConverter(@Value("${storage.compression.enabled:false}") boolean enabled,
+                                   @Value("${storage.compression.min-bytes:256}") int minBytes,
+                                   @Value("${storage.compression.level:6}") int level) {
+        this.enabled = enabled;
+        this.minBytes = Math.max(minBytes, HEADER_BYTES + 2);
+        this.level = level;
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if (enabled && utf8.length >= minBytes) {
+            byte[] compressed = deflate(utf8);
+            if (compressed != null) {
+                return compressed;
+            }
+        }
+        if (utf8.length > 0 && utf8[0] == MAGIC) {
+            byte[] stored = new byte[utf8.length + 2];
+            stored[0] = MAGIC;
+            stored[1] = STORED;
+            System.arraycopy(utf8, 0, stored, 2, utf8.length);
+            return stored;
+        }
+        return utf8;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] column) {
+        if (column == null) {
+            return null;
+        }
+        if (column.length >= 2 && column[0] == MAGIC) {
+            if (column[1] == STORED) {
+                return new String(column, 2, column.length - 2, StandardCharsets.UTF_8);
+            }
+            if (column[1] == DEFLATE && column.length > HEADER_BYTES) {
+                String inflated = inflate(column);
+                if (inflated != null) {
+                    return inflated;
+                }
+            }
+        }
+        return new String(column, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Header + compressed data, or null when that is not smaller than the plain text.
+     */
+    private byte[] deflate(byte[] utf8) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(utf8);
+            deflater.finish();
+            byte[] out = new byte[utf8.length - 1];
+            int length = HEADER_BYTES;
+            while (!deflater.finished() && length < out.length) {
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            if (!deflater.finished()) {
+                return null;
+            }
+            out[0] = MAGIC;
+            out[1] = DEFLATE;
+            ByteBuffer.wrap(out, 2, 4).putInt(utf8.length);
+            return Arrays.copyOf(out, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(byte[] column) {
+        int length = ByteBuffer.wrap(column, 2, 4).getInt();
+        if (length < 0 || length > MAX_INFLATED_BYTES) {
+            return null;
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(column, HEADER_BYTES, column.length - HEADER_BYTES);
+            // One spare byte, so the inflater gets to read the checksum after the last byte of text
+            byte[] out = new byte[length + 1];
+            int read = 0;
+            while (read < out.length && !inflater.finished()
+                    && !inflater.needsInput() && !inflater.needsDictionary()) {
+                read += inflater.inflate(out, read, out.length - read);
+            }
+            if (read != length || !inflater.finished()) {
+                return null;
+            }
+            return new String(out, 0, length, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+}
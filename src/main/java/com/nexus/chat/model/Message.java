@@ -5,18 +5,21 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        @Index(name = "idx_messages_chat_seq", columnList = "chat_id, sequence_number")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class Message {
+public class Message implements Persistable<Long> {
 
+    // Assigned by SnowflakeIdGenerator before the insert
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(name = "chat_id", nullable = false)
@@ -25,7 +28,8 @@ public class Message {
     @Column(name = "sender_id", nullable = false)
     private Long senderId;
 
-    @Column(columnDefinition = "TEXT")
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(columnDefinition = "BLOB")
     private String content;
 
     @Enumerated(EnumType.STRING)
@@ -49,4 +53,18 @@ public class Message {
         text, image, file, emoji
     }
 
+    // The id is assigned up front, so "new" cannot be derived from it (save() would merge instead of insert)
+    private transient boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
 }
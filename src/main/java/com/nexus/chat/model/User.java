@@ -35,13 +35,15 @@ public class User {
     @Column(nullable = false, length = 100)
     private String nickname;
 
-    @Column(name = "avatar_url", columnDefinition = "TEXT")
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "avatar_url", columnDefinition = "MEDIUMBLOB")
     private String avatarUrl;
 
     @Column(length = 150)
     private String bio;
 
-    @Column(name = "profile_background", columnDefinition = "MEDIUMTEXT")
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "profile_background", columnDefinition = "MEDIUMBLOB")
     private String profileBackground = "linear-gradient(135deg, #667eea 0%, #764ba2 100%)";
 
     @Column(name = "is_online")
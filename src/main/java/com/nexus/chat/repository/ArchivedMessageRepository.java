@@ -0,0 +1,66 @@
+package com.nexus.chat.repository;
+
+import com.nexus.chat.model.ArchivedMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ArchivedMessageRepository extends JpaRepository<ArchivedMessage, Long> {
+
+    /**
+     * Copy messages into the archive (the archive step of MessageArchiveService)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO messages_archive " +
+                   "(id, chat_id, sender_id, content, message_type, file_url, sequence_number, client_message_id, created_at) " +
+                   "SELECT id, chat_id, sender_id, content, message_type, file_url, sequence_number, client_message_id, created_at " +
+                   "FROM messages WHERE id IN :ids",
+           nativeQuery = true)
+    int copyFromMessages(@Param("ids") List<Long> ids);
+
+    /**
+     * Archived messages of a chat in id order, by offset (the archived part of an ascending page)
+     */
+    @Query(value = "SELECT * FROM messages_archive WHERE chat_id = :chatId ORDER BY id LIMIT :limit OFFSET :offset",
+           nativeQuery = true)
+    List<ArchivedMessage> findPageByChatId(@Param("chatId") Long chatId,
+                                           @Param("offset") long offset,
+                                           @Param("limit") int limit);
+
+    /**
+     * One page of archived messages after a sequence number
+     */
+    List<ArchivedMessage> findByChatIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(
+            Long chatId, Long sequenceNumber, Pageable pageable);
+
+    @Query("SELECT a FROM ArchivedMessage a WHERE a.chatId IN :chatIds AND a.createdAt > :since ORDER BY a.createdAt ASC")
+    List<ArchivedMessage> findByChatIdInAndCreatedAtAfter(
+            @Param("chatIds") List<Long> chatIds,
+            @Param("since") LocalDateTime since);
+
+    long countBySenderId(Long senderId);
+
+    // Archived message count of a chat on its shard (chats.archived_count is only kept unsharded)
+    long countByChatId(Long chatId);
+
+    boolean existsByChatId(Long chatId);
+
+    /**
+     * Keyset scan by id (for rebuilding the search index)
+     */
+    List<ArchivedMessage> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ArchivedMessage a WHERE a.chatId = :chatId")
+    void deleteByChatId(@Param("chatId") Long chatId);
+
+}
@@ -0,0 +1,16 @@
+package com.nexus.chat.repository;
+
+import com.nexus.chat.model.ChatMember;
+
+import java.util.Collection;
+
+/**
+ * JDBC batch inserts for chat members (IDENTITY ids keep Hibernate from batching them).
+ */
+public interface ChatMemberBatchRepository {
+
+    /**
+     * Insert new members in one batched statement. Generated ids are not set on the given objects.
+     */
+    void insertAll(Collection<ChatMember> members);
+}
@@ -0,0 +1,43 @@
+package com.nexus.chat.repository;
+
+import com.nexus.chat.model.ChatMember;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * With rewriteBatchedStatements the driver sends each batch as a single multi-row INSERT.
+ * Runs on the connection of the surrounding JPA transaction.
+ */
+@RequiredArgsConstructor
+public class ChatMemberBatchRepositoryImpl implements ChatMemberBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO chat_members "
+            + "(chat_id, user_id, role, is_admin, unread_count, last_read_seq, joined_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(Collection<ChatMember> members) {
+        if (members.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = members.stream()
+                .map(member -> new Object[]{
+                        member.getChatId(),
+                        member.getUserId(),
+                        member.getRole() != null ? member.getRole().name() : ChatMember.MemberRole.member.name(),
+                        Boolean.TRUE.equals(member.getIsAdmin()),
+                        member.getUnreadCount() != null ? member.getUnreadCount() : 0,
+                        member.getLastReadSeq() != null ? member.getLastReadSeq() : 0L,
+                        now})
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+}
@@ -1,6 +1,7 @@
 package com.nexus.chat.repository;
 
 import com.nexus.chat.model.ChatMember;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,11 +9,12 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ChatMemberRepository extends JpaRepository<ChatMember, Long> {
+public interface ChatMemberRepository extends JpaRepository<ChatMember, Long>, ChatMemberBatchRepository {
 
     List<ChatMember> findByChatId(Long chatId);
 
@@ -74,4 +76,43 @@ public interface ChatMemberRepository extends JpaRepository<ChatMember, Long> {
            "WHERE cm.chatId = :chatId AND cm.userId != :senderId")
     void incrementUnreadForOthers(@Param("chatId") Long chatId, @Param("senderId") Long senderId);
 
+    /**
+     * Advance a channel member's read position (never moves it backwards)
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChatMember cm SET cm.lastReadSeq = :seq " +
+           "WHERE cm.chatId = :chatId AND cm.userId = :userId AND (cm.lastReadSeq IS NULL OR cm.lastReadSeq < :seq)")
+    int advanceLastReadSeq(@Param("chatId") Long chatId, @Param("userId") Long userId, @Param("seq") Long seq);
+
+    /**
+     * User ids of the chat's members other than the given user (read-status recipients on a message shard)
+     */
+    @Query("SELECT cm.userId FROM ChatMember cm WHERE cm.chatId = :chatId AND cm.userId <> :userId")
+    List<Long> findOtherMemberIds(@Param("chatId") Long chatId, @Param("userId") Long userId);
+
+    /**
+     * Which of the given users are already members of the chat (one query for a batch add)
+     */
+    @Query("SELECT cm.userId FROM ChatMember cm WHERE cm.chatId = :chatId AND cm.userId IN :userIds")
+    List<Long> findExistingMemberIds(@Param("chatId") Long chatId, @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Members of a chat joined with their users in a single query: rows of [ChatMember, User],
+     * in join order.
+     */
+    @Query("SELECT cm, u FROM ChatMember cm JOIN User u ON u.id = cm.userId " +
+           "WHERE cm.chatId = :chatId ORDER BY cm.id")
+    List<Object[]> findMembersWithUsers(@Param("chatId") Long chatId, Pageable pageable);
+
+    /**
+     * Users sharing group chats with the user, each with the number of shared groups:
+     * rows of [userId, sharedGroupCount]. Groups larger than maxGroupSize are ignored.
+     */
+    @Query("SELECT m2.userId, COUNT(m2) FROM ChatMember m1, ChatMember m2, Chat c " +
+           "WHERE m1.userId = :userId AND c.id = m1.chatId AND c.type = 'group' " +
+           "AND c.memberCount <= :maxGroupSize AND m2.chatId = m1.chatId AND m2.userId <> :userId " +
+           "GROUP BY m2.userId")
+    List<Object[]> countSharedGroupMembers(@Param("userId") Long userId, @Param("maxGroupSize") int maxGroupSize);
+
 }
@@ -1,7 +1,9 @@
 package com.nexus.chat.repository;
 
 import com.nexus.chat.model.Chat;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,13 +21,13 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
     /**
      * Find all group chats for a user
      */
-    @Query("SELECT c FROM Chat c JOIN ChatMember cm ON c.id = cm.chatId WHERE cm.userId = :userId AND c.type = 'group' ORDER BY c.lastMessageAt DESC")
+    @Query("SELECT c FROM Chat c JOIN ChatMember cm ON c.id = cm.chatId WHERE cm.userId = :userId AND c.type IN ('group', 'channel') ORDER BY c.lastMessageAt DESC")
     List<Chat> findUserGroups(@Param("userId") Long userId);
 
     /**
      * Count groups for a user
      */
-    @Query("SELECT COUNT(c) FROM Chat c JOIN ChatMember cm ON c.id = cm.chatId WHERE cm.userId = :userId AND c.type = 'group'")
+    @Query("SELECT COUNT(c) FROM Chat c JOIN ChatMember cm ON c.id = cm.chatId WHERE cm.userId = :userId AND c.type IN ('group', 'channel')")
     long countUserGroups(@Param("userId") Long userId);
 
     /**
@@ -62,4 +64,27 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
      */
     List<Chat> findByIdIn(List<Long> ids);
 
+    /**
+     * Number of the chat's messages moved to the archive (null for unknown chats)
+     */
+    @Query("SELECT COALESCE(c.archivedCount, 0L) FROM Chat c WHERE c.id = :chatId")
+    Long findArchivedCount(@Param("chatId") Long chatId);
+
+    /**
+     * Keyset scan of chats created before a cutoff (candidates for message archiving)
+     */
+    @Query("SELECT c.id FROM Chat c WHERE c.createdAt < :before AND c.id > :afterId ORDER BY c.id")
+    List<Long> findIdsCreatedBefore(@Param("before") LocalDateTime before,
+                                    @Param("afterId") Long afterId,
+                                    Pageable pageable);
+
+    /**
+     * Keeps last_message_at unchanged (the column auto-updates on UPDATE in schema.sql)
+     */
+    @Modifying
+    @Query(value = "UPDATE chats SET archived_count = COALESCE(archived_count, 0) + :count, " +
+                   "last_message_at = last_message_at WHERE id = :chatId",
+           nativeQuery = true)
+    int addArchivedCount(@Param("chatId") Long chatId, @Param("count") long count);
+
 }
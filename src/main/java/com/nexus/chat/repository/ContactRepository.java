@@ -2,6 +2,8 @@ package com.nexus.chat.repository;
 
 import com.nexus.chat.model.Contact;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -24,4 +26,21 @@ public interface ContactRepository extends JpaRepository<Contact, Long> {
      */
     List<Contact> findByContactUserId(Long contactUserId);
 
+    long countByUserId(Long userId);
+
+    /**
+     * Contact user IDs only (no entity hydration).
+     */
+    @Query("SELECT c.contactUserId FROM Contact c WHERE c.userId = :userId")
+    List<Long> findContactUserIds(@Param("userId") Long userId);
+
+    /**
+     * Friends-of-friends of the user, each with the number of mutual contacts
+     * it is reached through: rows of [userId, mutualCount].
+     */
+    @Query("SELECT c2.contactUserId, COUNT(c2) FROM Contact c1, Contact c2 " +
+           "WHERE c1.userId = :userId AND c2.userId = c1.contactUserId AND c2.contactUserId <> :userId " +
+           "GROUP BY c2.contactUserId")
+    List<Object[]> countFriendsOfFriends(@Param("userId") Long userId);
+
 }
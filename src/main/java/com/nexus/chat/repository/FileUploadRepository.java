@@ -1,12 +1,16 @@
 package com.nexus.chat.repository;
 
 import com.nexus.chat.model.FileUpload;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,4 +34,33 @@ public interface FileUploadRepository extends JpaRepository<FileUpload, Long> {
     @Query("SELECT f FROM FileUpload f JOIN Message m ON f.messageId = m.id WHERE m.chatId = :chatId")
     List<FileUpload> findByChatId(@Param("chatId") Long chatId);
 
+    // 缩略图生成完成后回写路径（单字段更新，不覆盖其他列）
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileUpload f SET f.thumbnailPath = :thumbnailPath WHERE f.id = :id")
+    int updateThumbnailPath(@Param("id") Long id, @Param("thumbnailPath") String thumbnailPath);
+
+    // 清理任务按主键分页扫描（keyset 分页，避免一次性加载全部过期记录）
+    @Query("SELECT f FROM FileUpload f WHERE f.expiresAt < :now AND f.id > :afterId ORDER BY f.id")
+    List<FileUpload> findExpiredBatch(@Param("now") LocalDateTime now,
+                                      @Param("afterId") Long afterId,
+                                      Pageable pageable);
+
+    @Query("SELECT f FROM FileUpload f WHERE f.uploadComplete = false AND f.createdAt < :before " +
+           "AND f.id > :afterId ORDER BY f.id")
+    List<FileUpload> findIncompleteBatch(@Param("before") LocalDateTime before,
+                                         @Param("afterId") Long afterId,
+                                         Pageable pageable);
+
+    // 消息归档前解除关联（messages 上的外键为级联删除）
+    @Modifying
+    @Query("UPDATE FileUpload f SET f.messageId = NULL WHERE f.messageId IN :messageIds")
+    int detachMessages(@Param("messageIds") Collection<Long> messageIds);
+
+    // 批量删除，每批一个短事务
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM FileUpload f WHERE f.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
 }
@@ -0,0 +1,23 @@
+package com.nexus.chat.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * JDBC batch inserts for read statuses on a message shard, where chat_members is not available
+ * for the INSERT ... SELECT in {@link MessageReadStatusRepository#insertUnreadForOthers}.
+ */
+public interface MessageReadStatusBatchRepository {
+
+    /**
+     * Insert an unread row per user for the message in one batched statement.
+     */
+    void insertUnread(Long messageId, Collection<Long> userIds);
+
+    /**
+     * Mark the user's rows for the messages read, creating them when missing (one batched upsert).
+     * Used on a chat's new owner shard while resharding: a row the backfill copies later with
+     * INSERT IGNORE can then never undo the read.
+     */
+    void upsertRead(Collection<Long> messageIds, Long userId, LocalDateTime readAt);
+}
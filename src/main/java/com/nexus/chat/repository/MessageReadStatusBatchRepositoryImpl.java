@@ -0,0 +1,48 @@
+package com.nexus.chat.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * With rewriteBatchedStatements the driver sends each batch as a single multi-row INSERT.
+ * Runs on the connection of the surrounding JPA transaction (the bound message shard).
+ */
+@RequiredArgsConstructor
+public class MessageReadStatusBatchRepositoryImpl implements MessageReadStatusBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO message_read_status "
+            + "(message_id, user_id, is_read) VALUES (?, ?, false)";
+    private static final String UPSERT_READ_SQL = "INSERT INTO message_read_status "
+            + "(message_id, user_id, is_read, read_at) VALUES (?, ?, true, ?) "
+            + "ON DUPLICATE KEY UPDATE is_read = true, read_at = COALESCE(read_at, VALUES(read_at))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertUnread(Long messageId, Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = userIds.stream()
+                .map(userId -> new Object[]{messageId, userId})
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    @Override
+    public void upsertRead(Collection<Long> messageIds, Long userId, LocalDateTime readAt) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(readAt);
+        List<Object[]> rows = messageIds.stream()
+                .map(messageId -> new Object[]{messageId, userId, timestamp})
+                .toList();
+        jdbcTemplate.batchUpdate(UPSERT_READ_SQL, rows);
+    }
+}
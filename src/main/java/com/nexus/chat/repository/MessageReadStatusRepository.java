@@ -13,7 +13,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface MessageReadStatusRepository extends JpaRepository<MessageReadStatus, Long> {
+public interface MessageReadStatusRepository extends JpaRepository<MessageReadStatus, Long>, MessageReadStatusBatchRepository {
 
     Optional<MessageReadStatus> findByMessageIdAndUserId(Long messageId, Long userId);
 
@@ -35,4 +35,42 @@ public interface MessageReadStatusRepository extends JpaRepository<MessageReadSt
                        @Param("userId") Long userId,
                        @Param("readAt") LocalDateTime readAt);
 
+    /**
+     * Ids of the messages in a chat the user has not read yet (those bulkMarkAsRead would mark).
+     */
+    @Query("SELECT mrs.messageId FROM MessageReadStatus mrs " +
+           "WHERE mrs.userId = :userId AND mrs.isRead = false AND mrs.messageId IN " +
+           "(SELECT m.id FROM Message m WHERE m.chatId = :chatId AND m.senderId != :userId)")
+    List<Long> findUnreadMessageIds(@Param("chatId") Long chatId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE MessageReadStatus mrs SET mrs.isRead = true, mrs.readAt = :readAt " +
+           "WHERE mrs.userId = :userId AND mrs.isRead = false AND mrs.messageId IN :messageIds")
+    int markAsRead(@Param("messageIds") List<Long> messageIds,
+                   @Param("userId") Long userId,
+                   @Param("readAt") LocalDateTime readAt);
+
+    /**
+     * Unread rows for every member except the sender, in one INSERT ... SELECT
+     * (replaces loading the members and inserting one row per member).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO message_read_status (message_id, user_id, is_read) " +
+                   "SELECT :messageId, cm.user_id, false FROM chat_members cm " +
+                   "WHERE cm.chat_id = :chatId AND cm.user_id <> :senderId",
+           nativeQuery = true)
+    int insertUnreadForOthers(@Param("messageId") Long messageId,
+                              @Param("chatId") Long chatId,
+                              @Param("senderId") Long senderId);
+
+    @Modifying
+    @Query("DELETE FROM MessageReadStatus mrs WHERE mrs.messageId IN :messageIds")
+    int deleteByMessageIdIn(@Param("messageIds") List<Long> messageIds);
+
+    @Modifying
+    @Query(value = "DELETE rs FROM message_read_status rs JOIN messages m ON m.id = rs.message_id " +
+                   "WHERE m.chat_id = :chatId",
+           nativeQuery = true)
+    int deleteByChatId(@Param("chatId") Long chatId);
+
 }
@@ -4,6 +4,7 @@ import com.nexus.chat.model.Message;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -64,4 +65,54 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
             @Param("chatId") Long chatId,
             @Param("fromSeq") Long fromSeq);
 
+    /**
+     * The newest messages of a chat, newest first (recent-message cache warm-up)
+     */
+    List<Message> findByChatIdOrderByIdDesc(Long chatId, Pageable pageable);
+
+    /**
+     * One page of messages after a sequence number (pull-based catch-up for channels)
+     */
+    List<Message> findByChatIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(
+            Long chatId, Long sequenceNumber, Pageable pageable);
+
+    /**
+     * Keyset scan by id (for rebuilding the search index)
+     */
+    List<Message> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Hot messages of a chat in id order, by offset (ascending pages, continuing after the archive)
+     */
+    @Query(value = "SELECT * FROM messages WHERE chat_id = :chatId ORDER BY id LIMIT :limit OFFSET :offset",
+           nativeQuery = true)
+    List<Message> findPageByChatId(@Param("chatId") Long chatId,
+                                   @Param("offset") long offset,
+                                   @Param("limit") int limit);
+
+    /**
+     * Ids of a chat's messages created before the cutoff, excluding its newest {@code keep} messages
+     * (those always stay in the hot table)
+     */
+    @Query(value = "SELECT m.id FROM messages m WHERE m.chat_id = :chatId AND m.created_at < :cutoff " +
+                   "AND m.id <= (SELECT k.id FROM messages k WHERE k.chat_id = :chatId " +
+                   "ORDER BY k.id DESC LIMIT 1 OFFSET :keep) " +
+                   "ORDER BY m.id LIMIT :limit",
+           nativeQuery = true)
+    List<Long> findArchivableIds(@Param("chatId") Long chatId,
+                                 @Param("cutoff") LocalDateTime cutoff,
+                                 @Param("keep") int keep,
+                                 @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM Message m WHERE m.id IN :ids")
+    int deleteByIdIn(@Param("ids") List<Long> ids);
+
+    /**
+     * Delete a chat's messages (on a message shard there is no foreign key to cascade from chats)
+     */
+    @Modifying
+    @Query("DELETE FROM Message m WHERE m.chatId = :chatId")
+    int deleteByChatId(@Param("chatId") Long chatId);
+
 }
@@ -1,10 +1,15 @@
 package com.nexus.chat.repository;
 
 import com.nexus.chat.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
 import java.util.List;
@@ -24,19 +29,28 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
 
     /**
-     * Search users by username, nickname or email (case-insensitive)
+     * Search users by username, nickname or email (case-insensitive).
+     * Full scan; only used while the search index is being built.
      */
     @Query("SELECT u FROM User u WHERE " +
             "LOWER(u.username) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
             "LOWER(u.nickname) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-            "LOWER(u.email) LIKE LOWER(CONCAT('%', :query, '%'))")
-    List<User> searchUsers(@Param("query") String query);
+            "LOWER(u.email) LIKE LOWER(CONCAT('%', :query, '%')) " +
+            "ORDER BY u.id")
+    List<User> searchUsers(@Param("query") String query, Pageable pageable);
 
     /**
-     * Get recommended users (random selection excluding current user)
+     * Keyset-paged searchable columns (id, username, nickname, email) for building the user index.
      */
-    @Query(value = "SELECT * FROM users WHERE id != :userId ORDER BY RAND() LIMIT :limit", nativeQuery = true)
-    List<User> findRecommendedUsers(@Param("userId") Long userId, @Param("limit") int limit);
+    @Query("SELECT u.id, u.username, u.nickname, u.email FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Object[]> findSearchFieldsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Most recently registered users (walks the primary key backwards).
+     * Used to top up recommendations for users with no social graph yet.
+     */
+    @Query("SELECT u.id FROM User u WHERE u.id <> :userId ORDER BY u.id DESC")
+    List<Long> findNewestUserIds(@Param("userId") Long userId, Pageable pageable);
 
     /**
      * Find online users
@@ -53,4 +67,30 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     List<User> findAllByIdIn(Collection<Long> ids);
 
+    /**
+     * Keyset-paged IDs of users whose avatar is still stored inline as base64.
+     * Only IDs are selected so the avatar column is not dragged into memory. Compressed values
+     * (CompressedTextConverter header 0x00 0x01) are candidates too; callers check the decoded value.
+     */
+    @Query(value = "SELECT u.id FROM users u " +
+                   "WHERE (u.avatar_url LIKE 'data:%' OR LEFT(u.avatar_url, 2) = X'0001') " +
+                   "AND u.id > :afterId ORDER BY u.id",
+           nativeQuery = true)
+    List<Long> findInlineAvatarUserIds(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Load a user with a row lock, to update a column only if it still holds the value read earlier.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Update only the avatar column (does not touch last_seen).
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.avatarUrl = :avatarUrl WHERE u.id = :id")
+    int updateAvatarUrl(@Param("id") Long id, @Param("avatarUrl") String avatarUrl);
+
 }
@@ -1,14 +1,24 @@
 package com.nexus.chat.security;
 
+import com.nexus.chat.config.BoundedCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @Component
 public class JwtTokenProvider {
@@ -19,8 +29,33 @@ public class JwtTokenProvider {
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
-    private javax.crypto.SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    // 已验证 token 的缓存条数上限
+    @Value("${jwt.claims-cache-size:10000}")
+    private int claimsCacheSize;
+
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    // token 哈希 -> 已验证的 claims（LRU，条目在 token 过期后失效）
+    private BoundedCache<String, TokenClaims> verifiedTokens;
+
+    /**
+     * Claims of a verified token.
+     */
+    public record TokenClaims(Long userId, String username, long expiresAtMillis) {
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAtMillis;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        // 签名密钥和解析器都是不可变且线程安全的，启动时构建一次
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        jwtParser = Jwts.parser().verifyWith(signingKey).build();
+
+        verifiedTokens = new BoundedCache<>(claimsCacheSize);
     }
 
     public String generateToken(Long userId, String username) {
@@ -36,39 +71,68 @@ public class JwtTokenProvider {
                 .subject(username)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey(), Jwts.SIG.HS512)
+                .signWith(signingKey, Jwts.SIG.HS512)
                 .compact();
     }
 
-    public Long getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    /**
+     * Verify the token and return its claims.
+     * Recently verified tokens are served from a bounded cache until they expire,
+     * so repeated requests with the same token skip the signature check.
+     *
+     * @return the claims, or empty if the token is malformed, forged or expired
+     */
+    public Optional<TokenClaims> parse(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
 
-        return claims.get("userId", Long.class);
+        String cacheKey = hash(token);
+        TokenClaims cached = verifiedTokens.get(cacheKey);
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return Optional.of(cached);
+            }
+            verifiedTokens.remove(cacheKey);
+            return Optional.empty();
+        }
+
+        try {
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+            Date expiration = claims.getExpiration();
+            TokenClaims parsed = new TokenClaims(
+                    claims.get("userId", Long.class),
+                    claims.getSubject(),
+                    expiration != null ? expiration.getTime() : Long.MAX_VALUE);
+            verifiedTokens.put(cacheKey, parsed);
+            return Optional.of(parsed);
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
     }
 
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    public Long getUserIdFromToken(String token) {
+        return parse(token)
+                .map(TokenClaims::userId)
+                .orElseThrow(() -> new JwtException("Invalid JWT token"));
+    }
 
-        return claims.getSubject();
+    public String getUsernameFromToken(String token) {
+        return parse(token)
+                .map(TokenClaims::username)
+                .orElseThrow(() -> new JwtException("Invalid JWT token"));
     }
 
     public boolean validateToken(String token) {
+        return parse(token).isPresent();
+    }
+
+    private String hash(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 
@@ -0,0 +1,28 @@
+package com.nexus.chat.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Side effects of a write (cache invalidation, index updates, cross-instance notifications)
+ * that must only be seen once the data has committed: inside a transaction the task runs
+ * after commit and is dropped on rollback, outside one it runs immediately.
+ */
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    static void run(Runnable task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+}
@@ -23,6 +23,7 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
     private final VerificationCodeService verificationCodeService;
+    private final UserSearchService userSearchService;
 
     @Transactional
     public AuthResponse register(RegisterRequest request) {
@@ -62,6 +63,7 @@ public class AuthService {
         user.setIsOnline(true);
 
         User savedUser = userRepository.save(user);
+        userSearchService.indexAfterCommit(savedUser);
 
         // Generate JWT token
         String token = jwtTokenProvider.generateToken(savedUser.getId(), savedUser.getUsername());
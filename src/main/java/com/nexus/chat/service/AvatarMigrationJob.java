@@ -0,0 +1,161 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.exception.BusinessException;
+import com.nexus.chat.model.User;
+import com.nexus.chat.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * One-off migration that converts base64 avatars stored in users.avatar_url
+ * into content-hashed files served from /api/avatars/.
+ *
+ * Enable with avatar.migration.enabled=true; the job runs in the background, one batch
+ * per scheduled tick, so start-up is not held up and the load stays spread out. Each batch
+ * runs on one instance at a time under a Redis lock, and the cursor is kept in Redis so the
+ * instances share one pass and a restart continues where it stopped.
+ *
+ * A row is only replaced if it still holds the value that was converted, so an avatar
+ * uploaded meanwhile is kept. Data that is not base64 at all is cleared; images that cannot
+ * be converted (too large, a format the scaler does not read) are logged and left as they are.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "avatar.migration.enabled", havingValue = "true")
+public class AvatarMigrationJob {
+
+    private static final String MIGRATION_LOCK = "lock:avatar-migration";
+    private static final String STATE_KEY = "avatar-migration";
+
+    private final UserRepository userRepository;
+    private final AvatarService avatarService;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RedisScript<Long> unlockScript;
+
+    @Value("${avatar.migration.batch-size:100}")
+    private int batchSize;
+
+    private volatile boolean done = false;
+
+    public AvatarMigrationJob(UserRepository userRepository,
+                              AvatarService avatarService,
+                              StringRedisTemplate redisTemplate,
+                              PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.avatarService = avatarService;
+        this.redisTemplate = redisTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.unlockScript = RedisScript.of(new ClassPathResource("scripts/lock_release.lua"), Long.class);
+    }
+
+    @Scheduled(initialDelayString = "${avatar.migration.interval-ms:1000}",
+               fixedDelayString = "${avatar.migration.interval-ms:1000}")
+    public void migrateBatch() {
+        if (done) {
+            return;
+        }
+        String token = UUID.randomUUID().toString();
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(MIGRATION_LOCK, token, Duration.ofMinutes(10));
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+
+        HashOperations<String, Object, Object> state = redisTemplate.opsForHash();
+        try {
+            if ("true".equals(state.get(STATE_KEY, "done"))) {
+                done = true;
+                return;
+            }
+            Object cursor = state.get(STATE_KEY, "cursor");
+            long afterId = cursor != null ? Long.parseLong(cursor.toString()) : 0L;
+            if (afterId == 0L) {
+                log.info("[AvatarMigration] 开始迁移内联 base64 头像");
+            }
+
+            List<Long> ids = userRepository.findInlineAvatarUserIds(afterId, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                state.put(STATE_KEY, "done", "true");
+                done = true;
+                log.info("[AvatarMigration] 迁移完成: 已迁移 {}, 已清除 {}, 跳过 {}",
+                        count(state, "migrated"), count(state, "cleared"), count(state, "skipped"));
+                return;
+            }
+
+            for (Long id : ids) {
+                state.increment(STATE_KEY, migrate(id), 1);
+            }
+
+            afterId = ids.get(ids.size() - 1);
+            state.put(STATE_KEY, "cursor", String.valueOf(afterId));
+            log.info("[AvatarMigration] 进度: 已迁移 {}, 已清除 {}, 跳过 {}, lastUserId={}",
+                    count(state, "migrated"), count(state, "cleared"), count(state, "skipped"), afterId);
+        } catch (Exception e) {
+            log.error("[AvatarMigration] 本批迁移失败，下次继续", e);
+        } finally {
+            redisTemplate.execute(unlockScript, List.of(MIGRATION_LOCK), token);
+        }
+    }
+
+    /**
+     * Convert one user's inline avatar; returns the counter to bump (migrated, cleared or skipped).
+     */
+    private String migrate(Long id) {
+        String inline = userRepository.findById(id).map(User::getAvatarUrl).orElse(null);
+        if (!AvatarService.isInlineImage(inline)) {
+            return "skipped";
+        }
+        try {
+            String avatarUrl = avatarService.storeBase64Avatar(inline);
+            return replaceIfUnchanged(id, inline, avatarUrl) ? "migrated" : "skipped";
+        } catch (BusinessException e) {
+            if (AvatarService.INVALID_BASE64.equals(e.getMessageKey())) {
+                // Not an image at all: clear it so it no longer bloats every payload
+                log.warn("[AvatarMigration] 无法解码的头像数据，已清除: userId={}", id);
+                return replaceIfUnchanged(id, inline, null) ? "cleared" : "skipped";
+            }
+            log.warn("[AvatarMigration] 无法转换的头像，保留原值: userId={}, reason={}", id, e.getMessageKey());
+            return "skipped";
+        } catch (Exception e) {
+            log.error("[AvatarMigration] 迁移失败，保留原值: userId={}", id, e);
+            return "skipped";
+        }
+    }
+
+    /**
+     * Compare-and-set on the avatar column. The value is compared after loading it under a row lock
+     * rather than in the UPDATE, because the column is stored through CompressedTextConverter and
+     * the same text may be stored compressed or plain.
+     */
+    private boolean replaceIfUnchanged(Long id, String expected, String avatarUrl) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            User user = userRepository.findByIdForUpdate(id).orElse(null);
+            if (user == null || !Objects.equals(user.getAvatarUrl(), expected)) {
+                log.info("[AvatarMigration] 头像在迁移期间已被修改，跳过: userId={}", id);
+                return false;
+            }
+            userRepository.updateAvatarUrl(id, avatarUrl);
+            return true;
+        }));
+    }
+
+    private static Object count(HashOperations<String, Object, Object> state, String field) {
+        Object value = state.get(STATE_KEY, field);
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,162 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.exception.BusinessException;
+import com.nexus.chat.storage.BlobStorage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Avatar image processing.
+ *
+ * Uploaded avatars are decoded, center-cropped and resized to a fixed set of
+ * square sizes, then written once under a content hash. The stored avatar URL is
+ * the short, immutable {@code /api/avatars/{hash}} instead of the raw image, so
+ * user payloads stay small and the image itself can be cached forever.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AvatarService {
+
+    private static final String AVATAR_DIR = "avatars/";
+    private static final String URL_PREFIX = "/api/avatars/";
+
+    /** Square sizes rendered for every avatar, smallest first. */
+    public static final int[] SIZES = {64, 160, 480};
+    public static final int DEFAULT_SIZE = 160;
+
+    private static final int MAX_AVATAR_BYTES = 10 * 1024 * 1024; // 10MB
+    private static final int HASH_LENGTH = 24;
+    // Message key of an inline image whose data is not base64 at all
+    static final String INVALID_BASE64 = "error.user.file.invalid.base64";
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{" + HASH_LENGTH + "}");
+
+    private final ImageScaler imageScaler;
+    private final BlobStorage blobStorage;
+
+    /**
+     * Process raw image bytes and return the immutable avatar URL.
+     * Identical images map to the same files and are only rendered once.
+     */
+    public String storeAvatar(byte[] imageBytes) throws IOException {
+        if (imageBytes == null || imageBytes.length == 0) {
+            throw new BusinessException("error.user.file.empty");
+        }
+        if (imageBytes.length > MAX_AVATAR_BYTES) {
+            throw new BusinessException("error.user.file.too.large");
+        }
+
+        String hash = contentHash(imageBytes);
+        if (resolve(hash, SIZES[SIZES.length - 1]) != null) {
+            log.debug("头像已存在，复用: hash={}", hash);
+            return URL_PREFIX + hash;
+        }
+
+        BufferedImage source = imageScaler.read(new ByteArrayInputStream(imageBytes), SIZES[SIZES.length - 1]);
+        if (source == null) {
+            throw new BusinessException("error.user.file.image.only");
+        }
+
+        // Write the largest size last so its presence marks a complete set
+        for (int size : SIZES) {
+            BufferedImage rendered = imageScaler.square(source, size);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            String format = imageScaler.write(rendered, out);
+            blobStorage.put(keyFor(hash, size, format), out.toByteArray(),
+                    "png".equals(format) ? "image/png" : "image/jpeg");
+        }
+
+        log.info("头像处理完成: hash={}, sourceBytes={}", hash, imageBytes.length);
+        return URL_PREFIX + hash;
+    }
+
+    /**
+     * Process a base64 image, with or without a {@code data:image/...;base64,} prefix.
+     */
+    public String storeBase64Avatar(String base64Image) throws IOException {
+        return storeAvatar(decodeBase64(base64Image));
+    }
+
+    /**
+     * Locate the rendered file for a hash, using the smallest size that is at least
+     * the requested size (or the largest available).
+     *
+     * @return the storage key, or null when the hash is unknown or malformed
+     */
+    public String resolve(String hash, int requestedSize) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            return null;
+        }
+        int size = SIZES[SIZES.length - 1];
+        for (int candidate : SIZES) {
+            if (candidate >= requestedSize) {
+                size = candidate;
+                break;
+            }
+        }
+        for (String format : new String[]{"jpg", "png"}) {
+            String key = keyFor(hash, size, format);
+            if (blobStorage.exists(key)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether the stored value is an inline base64 image rather than a URL.
+     */
+    public static boolean isInlineImage(String avatarUrl) {
+        return avatarUrl != null && avatarUrl.startsWith("data:");
+    }
+
+    /**
+     * Whether the stored value points at a content-hashed avatar.
+     */
+    public static boolean isHashedAvatar(String avatarUrl) {
+        return avatarUrl != null && avatarUrl.startsWith(URL_PREFIX);
+    }
+
+    private String keyFor(String hash, int size, String format) {
+        return AVATAR_DIR + hash.substring(0, 2) + "/" + hash + "_" + size + "." + format;
+    }
+
+    private byte[] decodeBase64(String base64Image) {
+        if (base64Image == null || base64Image.isBlank()) {
+            throw new BusinessException("error.user.file.empty");
+        }
+        String data = base64Image.trim();
+        if (data.startsWith("data:")) {
+            int comma = data.indexOf(',');
+            if (comma < 0 || !data.substring(0, comma).contains("image/")) {
+                throw new BusinessException("error.user.file.image.only");
+            }
+            data = data.substring(comma + 1);
+        }
+        try {
+            return Base64.getMimeDecoder().decode(data);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(INVALID_BASE64);
+        }
+    }
+
+    private String contentHash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest).substring(0, HASH_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
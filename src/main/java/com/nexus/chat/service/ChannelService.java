@@ -0,0 +1,146 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.config.BoundedCache;
+import com.nexus.chat.model.Chat;
+import com.nexus.chat.model.ChatMember;
+import com.nexus.chat.repository.ChatMemberRepository;
+import com.nexus.chat.repository.ChatRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 频道（超大群）模式
+ *
+ * 普通群发送一条消息要为每个成员写一行已读状态、更新未读数并逐个投递，
+ * 成本随成员数线性增长。频道在发送时不做任何按成员的工作：
+ * - 在线成员订阅共享主题 /topic/channel.{chatId}，每条消息每个实例只发布一次；
+ * - 离线成员不入离线队列，重新上线后按序列号从历史中拉取（见 MessageService.getMessagesAfterSequence）；
+ * - 未读数 = 频道当前序列号 - 成员的 last_read_seq，已读只需更新自己的一行。
+ *
+ * 会话类型创建后不会改变，因此本地缓存无需失效。
+ */
+@Slf4j
+@Service
+public class ChannelService {
+
+    private static final String TOPIC_PREFIX = "/topic/channel.";
+
+    private final ChatRepository chatRepository;
+    private final ChatMemberRepository chatMemberRepository;
+    private final RedisCacheService redisCacheService;
+    private final RedisMessageRelay redisMessageRelay;
+
+    @Value("${channel.type-cache-size:10000}")
+    private int typeCacheSize;
+
+    // chatId -> 是否为频道
+    private BoundedCache<Long, Boolean> channelFlags;
+
+    public ChannelService(ChatRepository chatRepository,
+                          ChatMemberRepository chatMemberRepository,
+                          RedisCacheService redisCacheService,
+                          RedisMessageRelay redisMessageRelay) {
+        this.chatRepository = chatRepository;
+        this.chatMemberRepository = chatMemberRepository;
+        this.redisCacheService = redisCacheService;
+        this.redisMessageRelay = redisMessageRelay;
+    }
+
+    @PostConstruct
+    void init() {
+        channelFlags = new BoundedCache<>(typeCacheSize);
+    }
+
+    public boolean isChannel(Long chatId) {
+        Boolean cached = channelFlags.get(chatId);
+        if (cached != null) {
+            return cached;
+        }
+        boolean channel = chatRepository.findById(chatId)
+                .map(chat -> chat.getType() == Chat.ChatType.channel)
+                .orElse(false);
+        channelFlags.put(chatId, channel);
+        return channel;
+    }
+
+    public static boolean isChannel(Chat chat) {
+        return chat.getType() == Chat.ChatType.channel;
+    }
+
+    /**
+     * STOMP destination shared by all subscribers of the channel.
+     */
+    public static String topic(Long chatId) {
+        return TOPIC_PREFIX + chatId;
+    }
+
+    /**
+     * Channel id of a channel topic destination, or null when the destination is not one.
+     */
+    public static Long parseTopic(String destination) {
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(destination.substring(TOPIC_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Deliver to every online subscriber of the channel, on all instances.
+     */
+    public void publish(Long chatId, Object payload) {
+        redisMessageRelay.sendToTopic(topic(chatId), payload);
+    }
+
+    /**
+     * Latest sequence number issued in the channel.
+     */
+    public long currentSequence(Long chatId) {
+        return redisCacheService.getCurrentSequenceNumbers(List.of(chatId)).get(0);
+    }
+
+    /**
+     * Advance the member's read position; never moves it backwards.
+     */
+    public void markRead(Long chatId, Long userId, long sequenceNumber) {
+        chatMemberRepository.advanceLastReadSeq(chatId, userId, sequenceNumber);
+    }
+
+    public void markAllRead(Long chatId, Long userId) {
+        markRead(chatId, userId, currentSequence(chatId));
+    }
+
+    public int unreadCount(ChatMember member) {
+        return unreadCount(member, currentSequence(member.getChatId()));
+    }
+
+    /**
+     * Unread counts of the user's memberships in the given channels, with a single MGET.
+     */
+    public Map<Long, Integer> unreadCounts(List<ChatMember> memberships) {
+        Map<Long, Integer> result = new HashMap<>();
+        if (memberships.isEmpty()) {
+            return result;
+        }
+        List<Long> chatIds = memberships.stream().map(ChatMember::getChatId).toList();
+        List<Long> sequences = redisCacheService.getCurrentSequenceNumbers(chatIds);
+        for (int i = 0; i < memberships.size(); i++) {
+            result.put(chatIds.get(i), unreadCount(memberships.get(i), sequences.get(i)));
+        }
+        return result;
+    }
+
+    private int unreadCount(ChatMember member, long currentSequence) {
+        long lastRead = member.getLastReadSeq() != null ? member.getLastReadSeq() : 0L;
+        return (int) Math.min(Math.max(currentSequence - lastRead, 0), Integer.MAX_VALUE);
+    }
+}
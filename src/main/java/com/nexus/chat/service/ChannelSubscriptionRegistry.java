@@ -0,0 +1,129 @@
+package com.nexus.chat.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本实例上的频道主题订阅
+ *
+ * 频道成员资格只在 SUBSCRIBE 时校验（WebSocketAuthChannelInterceptor），被移出或退出频道的成员
+ * 已有的 /topic/channel.{id} 订阅需要主动撤销。这里记录每个会话的频道订阅，成员移除时通过
+ * Redis 频道通知所有实例，各实例从本地 broker 注销该用户在该频道上的订阅。
+ */
+@Slf4j
+@Service
+public class ChannelSubscriptionRegistry implements MessageListener {
+
+    private static final String REVOKE_CHANNEL = "ws:channel-revoke";
+
+    private final RedisCacheService redisCacheService;
+    private final RedisMessageListenerContainer listenerContainer;
+    // The broker handler is created after the inbound channel interceptors that use this registry
+    private final ObjectProvider<SimpleBrokerMessageHandler> brokerHandler;
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+
+    // sessionId -> subscriptions of that session to channel topics
+    private final Map<String, SessionSubscriptions> sessions = new ConcurrentHashMap<>();
+
+    public ChannelSubscriptionRegistry(RedisCacheService redisCacheService,
+                                       RedisMessageListenerContainer listenerContainer,
+                                       ObjectProvider<SimpleBrokerMessageHandler> brokerHandler) {
+        this.redisCacheService = redisCacheService;
+        this.listenerContainer = listenerContainer;
+        this.brokerHandler = brokerHandler;
+    }
+
+    @PostConstruct
+    void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(REVOKE_CHANNEL));
+    }
+
+    public void subscribed(Long userId, String sessionId, String subscriptionId, Long channelId) {
+        sessions.computeIfAbsent(sessionId, id -> new SessionSubscriptions(userId))
+                .channels.put(subscriptionId, channelId);
+    }
+
+    public void unsubscribed(String sessionId, String subscriptionId) {
+        SessionSubscriptions subscriptions = sessions.get(sessionId);
+        if (subscriptions != null) {
+            subscriptions.channels.remove(subscriptionId);
+        }
+    }
+
+    public void sessionClosed(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    /**
+     * Drop the user's subscriptions to the channel topic on every instance, once the
+     * membership removal has committed (a re-subscribe after that is rejected).
+     */
+    public void revoke(Long channelId, Long userId) {
+        AfterCommit.run(() -> {
+            revokeLocal(channelId, userId);
+            redisCacheService.publishMessage(REVOKE_CHANNEL, instanceId + ":" + channelId + ":" + userId);
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(":");
+        if (parts.length != 3 || instanceId.equals(parts[0])) {
+            return;
+        }
+        try {
+            revokeLocal(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            log.warn("无效的频道订阅撤销消息: {}", new String(message.getBody(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private void revokeLocal(Long channelId, Long userId) {
+        SimpleBrokerMessageHandler broker = brokerHandler.getIfAvailable();
+        if (broker == null) {
+            return;
+        }
+        sessions.forEach((sessionId, subscriptions) -> {
+            if (!subscriptions.userId.equals(userId)) {
+                return;
+            }
+            subscriptions.channels.entrySet().removeIf(entry -> {
+                if (!entry.getValue().equals(channelId)) {
+                    return false;
+                }
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+                accessor.setSessionId(sessionId);
+                accessor.setSubscriptionId(entry.getKey());
+                broker.getSubscriptionRegistry().unregisterSubscription(
+                        MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+                log.info("撤销频道订阅: userId={}, channelId={}, sessionId={}", userId, channelId, sessionId);
+                return true;
+            });
+        });
+    }
+
+    private static class SessionSubscriptions {
+        final Long userId;
+        // subscriptionId -> channelId
+        final Map<String, Long> channels = new ConcurrentHashMap<>();
+
+        SessionSubscriptions(Long userId) {
+            this.userId = userId;
+        }
+    }
+}
@@ -32,8 +32,10 @@ public class ChatService {
     private final ChatRepository chatRepository;
     private final ChatMemberRepository chatMemberRepository;
     private final MessageRepository messageRepository;
+    private final MessageShardRouter messageShardRouter;
     private final UserRepository userRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final ChannelService channelService;
 
     @Transactional
     public ChatDTO createDirectChat(Long userId, Long contactId) {
@@ -125,14 +127,16 @@ public class ChatService {
         creatorMember.setIsAdmin(true);
         chatMemberRepository.save(creatorMember);
 
-        // Add other members
-        for (Long memberId : otherMemberIds) {
-            ChatMember member = new ChatMember();
-            member.setChatId(savedChat.getId());
-            member.setUserId(memberId);
-            member.setIsAdmin(false);
-            chatMemberRepository.save(member);
-        }
+        // Add other members (one batched insert)
+        chatMemberRepository.insertAll(otherMemberIds.stream()
+                .map(memberId -> {
+                    ChatMember member = new ChatMember();
+                    member.setChatId(savedChat.getId());
+                    member.setUserId(memberId);
+                    member.setIsAdmin(false);
+                    return member;
+                })
+                .collect(Collectors.toList()));
 
         ChatDTO chatDTO = mapToDTO(savedChat, userId);
 
@@ -152,7 +156,9 @@ public class ChatService {
      * Optimized: Batch-loads all data in 4 queries instead of ~120.
      * Before: For 20 chats x 5 members = ~120 queries (N+1 problem)
      * After: 4 queries total (chats, members, users, lastMessages)
+     * Channels never load their member list; only the user's own membership is read.
      */
+    @Transactional(readOnly = true)
     public List<ChatDTO> getUserChats(Long userId) {
         // Query 1: Get all chats for the user
         List<Chat> chats = chatRepository.findByUserIdOrderByLastMessageAtDesc(userId);
@@ -161,25 +167,40 @@ public class ChatService {
         }
 
         List<Long> chatIds = chats.stream().map(Chat::getId).collect(Collectors.toList());
+        Set<Long> channelIds = chats.stream()
+                .filter(ChannelService::isChannel)
+                .map(Chat::getId)
+                .collect(Collectors.toSet());
+        List<Long> memberListChatIds = chatIds.stream()
+                .filter(id -> !channelIds.contains(id))
+                .collect(Collectors.toList());
 
-        // Query 2: Batch load all members for all chats
-        List<ChatMember> allMembers = chatMemberRepository.findByChatIdIn(chatIds);
+        // Query 2: Batch load all members for all non-channel chats
+        List<ChatMember> allMembers = memberListChatIds.isEmpty()
+                ? new ArrayList<>()
+                : chatMemberRepository.findByChatIdIn(memberListChatIds);
         Map<Long, List<ChatMember>> membersByChatId = allMembers.stream()
                 .collect(Collectors.groupingBy(ChatMember::getChatId));
+        List<ChatMember> channelMemberships = channelIds.isEmpty()
+                ? Collections.emptyList()
+                : chatMemberRepository.findByUserId(userId).stream()
+                        .filter(cm -> channelIds.contains(cm.getChatId()))
+                        .collect(Collectors.toList());
+
+        // Query 3: Batch load last messages for all chats (one query per message shard, in parallel)
+        List<Message> lastMessages = messageShardRouter.readByChats(chatIds, messageRepository::findLastMessagesByChatIds);
+        Map<Long, Message> lastMessageByChatId = lastMessages.stream()
+                .collect(Collectors.toMap(Message::getChatId, Function.identity()));
 
-        // Query 3: Batch load all user details for all members
+        // Query 4: Batch load all user details for all members and last-message senders
         Set<Long> allUserIds = allMembers.stream()
                 .map(ChatMember::getUserId)
                 .collect(Collectors.toSet());
+        lastMessages.forEach(m -> allUserIds.add(m.getSenderId()));
         List<User> allUsers = userRepository.findAllByIdIn(allUserIds);
         Map<Long, User> usersById = allUsers.stream()
                 .collect(Collectors.toMap(User::getId, Function.identity()));
 
-        // Query 4: Batch load last messages for all chats
-        List<Message> lastMessages = messageRepository.findLastMessagesByChatIds(chatIds);
-        Map<Long, Message> lastMessageByChatId = lastMessages.stream()
-                .collect(Collectors.toMap(Message::getChatId, Function.identity()));
-
         // Build unread count map from the members we already loaded
         Map<Long, Integer> unreadCountByChatId = new HashMap<>();
         for (ChatMember cm : allMembers) {
@@ -187,6 +208,8 @@ public class ChatService {
                 unreadCountByChatId.put(cm.getChatId(), cm.getUnreadCount());
             }
         }
+        // Channel unread counts come from sequence numbers (one MGET)
+        unreadCountByChatId.putAll(channelService.unreadCounts(channelMemberships));
 
         // Assemble DTOs in memory (no more queries)
         return chats.stream().map(chat -> {
@@ -285,8 +308,11 @@ public class ChatService {
         dto.setCreatedAt(chat.getCreatedAt());
         dto.setLastMessageAt(chat.getLastMessageAt());
 
-        // Get chat members
-        List<ChatMember> members = chatMemberRepository.findByChatId(chat.getId());
+        // Get chat members (for channels only the current user's membership)
+        List<ChatMember> members = ChannelService.isChannel(chat)
+                ? chatMemberRepository.findByChatIdAndUserId(chat.getId(), currentUserId)
+                        .map(List::of).orElse(Collections.emptyList())
+                : chatMemberRepository.findByChatId(chat.getId());
         Set<Long> memberUserIds = members.stream().map(ChatMember::getUserId).collect(Collectors.toSet());
         List<User> users = userRepository.findAllByIdIn(memberUserIds);
         Map<Long, User> usersById = users.stream().collect(Collectors.toMap(User::getId, Function.identity()));
@@ -318,7 +344,7 @@ public class ChatService {
         }
 
         // Get only the last message (was loading ALL messages before)
-        messageRepository.findFirstByChatIdOrderByCreatedAtDesc(chat.getId())
+        messageShardRouter.read(chat.getId(), () -> messageRepository.findFirstByChatIdOrderByCreatedAtDesc(chat.getId()))
                 .ifPresent(lastMsg -> {
                     User sender = usersById.get(lastMsg.getSenderId());
                     // If sender not in members (e.g., left group), fetch individually
@@ -344,7 +370,9 @@ public class ChatService {
         members.stream()
                 .filter(m -> m.getUserId().equals(currentUserId))
                 .findFirst()
-                .ifPresent(member -> dto.setUnreadCount(member.getUnreadCount()));
+                .ifPresent(member -> dto.setUnreadCount(ChannelService.isChannel(chat)
+                        ? channelService.unreadCount(member)
+                        : member.getUnreadCount()));
 
         return dto;
     }
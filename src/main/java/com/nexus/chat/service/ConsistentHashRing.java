@@ -0,0 +1,66 @@
+package com.nexus.chat.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring of shard names with virtual nodes. Adding a shard to an N-shard ring
+ * moves about 1/(N+1) of the keys, all of them to the new shard.
+ */
+class ConsistentHashRing {
+
+    private final List<String> shards;
+    private final NavigableMap<Long, String> points = new TreeMap<>();
+
+    ConsistentHashRing(List<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one shard");
+        }
+        this.shards = List.copyOf(shards);
+        for (String shard : this.shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(pointHash(shard + "#" + i), shard);
+            }
+        }
+    }
+
+    String owner(long key) {
+        Map.Entry<Long, String> entry = points.ceilingEntry(mix(key));
+        return entry != null ? entry.getValue() : points.firstEntry().getValue();
+    }
+
+    List<String> shards() {
+        return shards;
+    }
+
+    /**
+     * First 8 bytes of the MD5 digest (ketama-style point placement).
+     */
+    private static long pointHash(String point) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(point.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * SplitMix64 finalizer: spreads sequential chat ids over the whole ring.
+     */
+    private static long mix(long key) {
+        long z = key + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -23,8 +23,11 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -39,6 +42,10 @@ public class ContactService {
     private final ChatRepository chatRepository;
     private final ChatMemberRepository chatMemberRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final RecommendationService recommendationService;
+    private final SocialGraphService socialGraphService;
+    private final UserStatsService userStatsService;
+    private final RedisCacheService redisCacheService;
 
     /**
      * Add a contact - 根据目标用户的隐私设置决定是直接添加还是发送申请
@@ -94,6 +101,9 @@ public class ContactService {
         contact.setUserId(userId);
         contact.setContactUserId(contactUserId);
         Contact savedContact = contactRepository.save(contact);
+        recommendationService.onContactsChanged(userId, contactUserId);
+        socialGraphService.invalidateAfterCommit(userId, contactUserId);
+        userStatsService.contactsChanged(userId, 1);
 
         // Build contact DTO
         ContactDTO contactDTO = mapToContactDTO(savedContact, contactUser);
@@ -136,6 +146,8 @@ public class ContactService {
         request.setStatus(RequestStatus.PENDING);
 
         ContactRequest saved = contactRequestRepository.save(request);
+        userStatsService.pendingRequestsChanged(toUserId, 1);
+        invalidatePendingRequestsAfterCommit(toUserId);
 
         // Build DTO
         ContactRequestDTO dto = mapToContactRequestDTO(saved, fromUser, toUser);
@@ -168,6 +180,8 @@ public class ContactService {
         // Update request status
         request.setStatus(RequestStatus.ACCEPTED);
         contactRequestRepository.save(request);
+        userStatsService.pendingRequestsChanged(userId, -1);
+        invalidatePendingRequestsAfterCommit(userId);
 
         // Add contact for both users (双向添加)
         User fromUser = userRepository.findById(request.getFromUserId())
@@ -186,6 +200,10 @@ public class ContactService {
         contact2.setUserId(request.getFromUserId());
         contact2.setContactUserId(request.getToUserId());
         contactRepository.save(contact2);
+        recommendationService.onContactsChanged(request.getFromUserId(), request.getToUserId());
+        socialGraphService.invalidateAfterCommit(request.getFromUserId(), request.getToUserId());
+        userStatsService.contactsChanged(request.getToUserId(), 1);
+        userStatsService.contactsChanged(request.getFromUserId(), 1);
 
         // Build DTOs for WebSocket notifications
         ContactDTO contactDTOForTo = mapToContactDTO(contact1, fromUser);
@@ -224,6 +242,8 @@ public class ContactService {
         // Update request status
         request.setStatus(RequestStatus.REJECTED);
         contactRequestRepository.save(request);
+        userStatsService.pendingRequestsChanged(userId, -1);
+        invalidatePendingRequestsAfterCommit(userId);
 
         // Notify the requester
         WebSocketMessage wsMessage = new WebSocketMessage(
@@ -233,44 +253,78 @@ public class ContactService {
     }
 
     /**
-     * 获取用户收到的待处理好友申请
+     * 获取用户收到的待处理好友申请（优先读缓存，未命中时批量加载用户后写入缓存）
      */
     public List<ContactRequestDTO> getPendingRequests(Long userId) {
-        List<ContactRequest> requests = contactRequestRepository
-                .findByToUserIdAndStatusOrderByCreatedAtDesc(userId, RequestStatus.PENDING);
+        List<ContactRequestDTO> cached = redisCacheService.getCachedPendingRequests(userId);
+        if (cached != null) {
+            return cached;
+        }
 
-        return requests.stream()
-                .map(request -> {
-                    User fromUser = userRepository.findById(request.getFromUserId()).orElse(null);
-                    User toUser = userRepository.findById(request.getToUserId()).orElse(null);
-                    return mapToContactRequestDTO(request, fromUser, toUser);
-                })
-                .filter(dto -> dto != null)
-                .collect(Collectors.toList());
+        List<ContactRequestDTO> requests = mapToContactRequestDTOs(contactRequestRepository
+                .findByToUserIdAndStatusOrderByCreatedAtDesc(userId, RequestStatus.PENDING));
+        redisCacheService.cachePendingRequests(userId, requests);
+        return requests;
     }
 
     /**
      * 获取用户发出的待处理好友申请
      */
     public List<ContactRequestDTO> getSentRequests(Long userId) {
-        List<ContactRequest> requests = contactRequestRepository
-                .findByFromUserIdAndStatusOrderByCreatedAtDesc(userId, RequestStatus.PENDING);
+        return mapToContactRequestDTOs(contactRequestRepository
+                .findByFromUserIdAndStatusOrderByCreatedAtDesc(userId, RequestStatus.PENDING));
+    }
+
+    /**
+     * 获取待处理申请数量（Redis 计数器，不查库）
+     */
+    public long getPendingRequestCount(Long userId) {
+        return userStatsService.getPendingRequestCount(userId);
+    }
+
+    /**
+     * Map requests to DTOs with one batched user load for both sides.
+     * Before: 2 findById per request
+     * After: 1 findAllByIdIn
+     */
+    private List<ContactRequestDTO> mapToContactRequestDTOs(List<ContactRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        for (ContactRequest request : requests) {
+            userIds.add(request.getFromUserId());
+            userIds.add(request.getToUserId());
+        }
+        Map<Long, User> usersById = userRepository.findAllByIdIn(userIds).stream()
+                .collect(Collectors.toMap(User::getId, u -> u));
 
         return requests.stream()
-                .map(request -> {
-                    User fromUser = userRepository.findById(request.getFromUserId()).orElse(null);
-                    User toUser = userRepository.findById(request.getToUserId()).orElse(null);
-                    return mapToContactRequestDTO(request, fromUser, toUser);
-                })
+                .map(request -> mapToContactRequestDTO(request,
+                        usersById.get(request.getFromUserId()),
+                        usersById.get(request.getToUserId())))
                 .filter(dto -> dto != null)
                 .collect(Collectors.toList());
     }
 
     /**
-     * 获取待处理申请数量
+     * 申请列表缓存在事务提交后失效，避免提交前被并发读取重新写入旧数据
      */
-    public long getPendingRequestCount(Long userId) {
-        return contactRequestRepository.countByToUserIdAndStatus(userId, RequestStatus.PENDING);
+    private void invalidatePendingRequestsAfterCommit(Long userId) {
+        AfterCommit.run(() -> redisCacheService.invalidatePendingRequests(userId));
+    }
+
+    /**
+     * 删除 from 发给 to 的好友申请；仍待处理的申请同时从 to 的待处理计数中扣除
+     */
+    private void deleteRequests(Long fromUserId, Long toUserId) {
+        boolean pending = contactRequestRepository.existsByFromUserIdAndToUserIdAndStatus(
+                fromUserId, toUserId, RequestStatus.PENDING);
+        contactRequestRepository.deleteByFromUserIdAndToUserId(fromUserId, toUserId);
+        if (pending) {
+            userStatsService.pendingRequestsChanged(toUserId, -1);
+        }
     }
 
     /**
@@ -306,14 +360,22 @@ public class ContactService {
         Contact contact = contactRepository.findByUserIdAndContactUserId(userId, contactUserId)
                 .orElseThrow(() -> new BusinessException("error.contact.not.found"));
         contactRepository.delete(contact);
+        userStatsService.contactsChanged(userId, -1);
 
         // 也删除对方的联系人记录
         contactRepository.findByUserIdAndContactUserId(contactUserId, userId)
-                .ifPresent(contactRepository::delete);
+                .ifPresent(reverse -> {
+                    contactRepository.delete(reverse);
+                    userStatsService.contactsChanged(contactUserId, -1);
+                });
+        recommendationService.onContactsChanged(userId, contactUserId);
+        socialGraphService.invalidateAfterCommit(userId, contactUserId);
 
-        // 删除双方之间的好友申请记录（允许将来重新添加好友）
-        contactRequestRepository.deleteByFromUserIdAndToUserId(userId, contactUserId);
-        contactRequestRepository.deleteByFromUserIdAndToUserId(contactUserId, userId);
+        // 删除双方之间的好友申请记录（允许将来重新添加好友），删除的待处理申请从接收方的计数中扣除
+        deleteRequests(userId, contactUserId);
+        deleteRequests(contactUserId, userId);
+        invalidatePendingRequestsAfterCommit(userId);
+        invalidatePendingRequestsAfterCommit(contactUserId);
 
         // 查找双方的私聊并禁用
         chatRepository.findDirectChatBetweenUsers(userId, contactUserId)
@@ -425,36 +487,27 @@ public class ContactService {
      * Check if a user is a contact
      */
     public boolean isContact(Long userId, Long contactUserId) {
-        return contactRepository.existsByUserIdAndContactUserId(userId, contactUserId);
+        return socialGraphService.isContact(userId, contactUserId);
     }
 
     /**
-     * Get mutual contacts between two users
+     * Get mutual contacts between two users (sorted-array intersection + one batch user lookup)
      */
     public List<UserDTO> getMutualContacts(Long userId1, Long userId2) {
-        List<Contact> user1Contacts = contactRepository.findByUserId(userId1);
-        List<Contact> user2Contacts = contactRepository.findByUserId(userId2);
-
-        List<Long> user1ContactIds = user1Contacts.stream()
-                .map(Contact::getContactUserId)
-                .collect(Collectors.toList());
+        long[] mutualIds = socialGraphService.getMutualContactIds(userId1, userId2);
+        if (mutualIds.length == 0) {
+            return List.of();
+        }
 
-        return user2Contacts.stream()
-                .filter(c -> user1ContactIds.contains(c.getContactUserId()))
-                .map(contact -> {
-                    User user = userRepository.findById(contact.getContactUserId()).orElse(null);
-                    if (user != null) {
-                        return new UserDTO(
-                                user.getId(),
-                                user.getUsername(),
-                                user.getNickname(),
-                                user.getAvatarUrl(),
-                                user.getIsOnline(),
-                                user.getLastSeen());
-                    }
-                    return null;
-                })
-                .filter(u -> u != null)
+        List<Long> ids = Arrays.stream(mutualIds).boxed().collect(Collectors.toList());
+        return userRepository.findAllByIdIn(ids).stream()
+                .map(user -> new UserDTO(
+                        user.getId(),
+                        user.getUsername(),
+                        user.getNickname(),
+                        user.getAvatarUrl(),
+                        user.getIsOnline(),
+                        user.getLastSeen()))
                 .collect(Collectors.toList());
     }
 
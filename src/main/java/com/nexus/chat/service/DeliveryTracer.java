@@ -0,0 +1,126 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.dto.MessageTrace;
+import com.nexus.chat.service.MessagingMetrics.DeliveryHop;
+import com.nexus.chat.service.MessagingMetrics.DeliveryPath;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 消息投递链路追踪
+ *
+ * 发送端在收到 SEND 帧时创建 {@link MessageTrace}，随 WebSocketMessage 和中继信封传到每个接收方，
+ * 在以下节点记录耗时（chat.delivery.hop）：
+ * - inbound：帧进入入站通道 → 控制器开始处理（入站线程池排队）
+ * - persist：控制器开始处理 → 消息事务提交
+ * - publish：事务提交 → 发布到 Redis 中继（仅跨实例；包含此前成员的逐个投递）
+ * - relay：发布 → 目标实例收到
+ * - outbound：提交（或收到中继）→ 交给接收方会话
+ * 以及端到端耗时（chat.delivery.latency）。按 traceId 抽样输出分段日志，各实例对同一条消息的抽样结果一致。
+ *
+ * 跨实例的分段依赖各实例时钟同步。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeliveryTracer {
+
+    private final MessagingMetrics metrics;
+
+    @Value("${tracing.delivery.sample-rate:0.01}")
+    private double sampleRate;
+
+    /**
+     * Epoch microseconds.
+     */
+    public static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+
+    /**
+     * Start a trace when a handler picks up a SEND frame.
+     *
+     * @param receivedAt when the frame entered the inbound channel, or null if it was not stamped
+     */
+    public MessageTrace start(Long receivedAt) {
+        long now = nowMicros();
+        String traceId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        MessageTrace trace = new MessageTrace(traceId, receivedAt != null ? receivedAt : now, now, 0L);
+        metrics.deliveryHop(DeliveryHop.INBOUND, trace.getHandledAt() - trace.getReceivedAt());
+        return trace;
+    }
+
+    public void committed(MessageTrace trace) {
+        trace.setCommittedAt(nowMicros());
+        metrics.deliveryHop(DeliveryHop.PERSIST, trace.getCommittedAt() - trace.getHandledAt());
+    }
+
+    /**
+     * The message was handed to this instance's broker on the sending instance.
+     */
+    public void delivered(MessageTrace trace, DeliveryPath path, String destination) {
+        if (trace == null || trace.getCommittedAt() == 0) {
+            return;
+        }
+        long now = nowMicros();
+        long outbound = now - trace.getCommittedAt();
+        long total = now - trace.getReceivedAt();
+        metrics.deliveryHop(DeliveryHop.OUTBOUND, outbound);
+        metrics.deliveryLatency(path, total);
+        if (sampled(trace)) {
+            log.info("[Trace] {} {} via {}: inbound={}us persist={}us outbound={}us total={}us",
+                    trace.getTraceId(), destination, path.tag,
+                    trace.getHandledAt() - trace.getReceivedAt(),
+                    trace.getCommittedAt() - trace.getHandledAt(),
+                    outbound, total);
+        }
+    }
+
+    /**
+     * The message arrived through the Redis relay and was handed to this instance's broker.
+     *
+     * @param publishedAtMillis when the origin instance published it (epoch millis)
+     * @param relayReceivedAt   when this instance received it (epoch micros)
+     */
+    public void relayed(MessageTrace trace, DeliveryPath path, long publishedAtMillis, long relayReceivedAt,
+                        String destination) {
+        if (trace == null || trace.getCommittedAt() == 0 || publishedAtMillis == 0) {
+            return;
+        }
+        long now = nowMicros();
+        long publishedAt = publishedAtMillis * 1_000;
+        long publish = publishedAt - trace.getCommittedAt();
+        long relay = relayReceivedAt - publishedAt;
+        long outbound = now - relayReceivedAt;
+        long total = now - trace.getReceivedAt();
+        metrics.deliveryHop(DeliveryHop.PUBLISH, publish);
+        metrics.deliveryHop(DeliveryHop.RELAY, relay);
+        metrics.deliveryHop(DeliveryHop.OUTBOUND, outbound);
+        metrics.deliveryLatency(path, total);
+        if (sampled(trace)) {
+            log.info("[Trace] {} {} via {}: inbound={}us persist={}us publish={}us relay={}us outbound={}us total={}us",
+                    trace.getTraceId(), destination, path.tag,
+                    trace.getHandledAt() - trace.getReceivedAt(),
+                    trace.getCommittedAt() - trace.getHandledAt(),
+                    publish, relay, outbound, total);
+        }
+    }
+
+    private boolean sampled(MessageTrace trace) {
+        if (sampleRate <= 0) {
+            return false;
+        }
+        try {
+            long bucket = Long.remainderUnsigned(Long.parseUnsignedLong(trace.getTraceId(), 16), 10_000);
+            return bucket < sampleRate * 10_000;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
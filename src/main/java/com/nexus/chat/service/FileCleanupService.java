@@ -2,116 +2,232 @@ package com.nexus.chat.service;
 
 import com.nexus.chat.model.FileUpload;
 import com.nexus.chat.repository.FileUploadRepository;
-import lombok.RequiredArgsConstructor;
+import com.nexus.chat.storage.BlobStorage;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.File;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 /**
  * 文件清理服务
  * 定期清理过期文件和未完成上传的临时文件
+ *
+ * 按主键 keyset 分页逐批处理：每批读取一页记录，在低优先级线程池中并行删除物理文件，
+ * 再用一条 DELETE ... WHERE id IN 批量删除记录（每批一个短事务），批次之间短暂停顿，
+ * 因此可以持续低频运行而不会产生长事务和集中的延迟尖峰。
+ * 扫描循环本身也在清理线程池中运行，定时任务只负责提交，不占用共享的调度线程。
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class FileCleanupService {
 
-    private static final String UPLOAD_DIR = "uploads/";
-
     private final FileUploadRepository fileUploadRepository;
+    private final BlobStorage blobStorage;
+    private final ThreadPoolTaskExecutor cleanupExecutor;
+
+    // 分片上传的本地暂存目录
+    @Value("${storage.staging-dir:uploads/chunks}")
+    private String stagingDir;
+
+    @Value("${file.cleanup.batch-size:200}")
+    private int batchSize;
+
+    @Value("${file.cleanup.batch-pause-ms:200}")
+    private long batchPauseMs;
+
+    // 防止定时任务与手动触发重叠执行
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    // 进度指标
+    private final AtomicLong totalDeleted = new AtomicLong();
+    private final AtomicLong totalFailed = new AtomicLong();
+    private final AtomicLong currentRunScanned = new AtomicLong();
+    private final AtomicLong currentRunDeleted = new AtomicLong();
+    private final AtomicLong currentRunFailed = new AtomicLong();
+    private final AtomicLong lastRunDurationMs = new AtomicLong();
+    private final AtomicReference<LocalDateTime> lastRunStartedAt = new AtomicReference<>();
+    private final AtomicReference<LocalDateTime> lastRunFinishedAt = new AtomicReference<>();
+
+    public FileCleanupService(FileUploadRepository fileUploadRepository,
+                              BlobStorage blobStorage,
+                              @Qualifier("cleanupExecutor") ThreadPoolTaskExecutor cleanupExecutor) {
+        this.fileUploadRepository = fileUploadRepository;
+        this.blobStorage = blobStorage;
+        this.cleanupExecutor = cleanupExecutor;
+    }
 
     /**
-     * 每天凌晨3点执行清理任务
+     * 定期提交清理任务（默认每15分钟），上一轮仍在执行时跳过
      */
-    @Scheduled(cron = "0 0 3 * * ?")
-    @Transactional
+    @Scheduled(fixedDelayString = "${file.cleanup.interval-ms:900000}",
+               initialDelayString = "${file.cleanup.interval-ms:900000}")
     public void cleanupExpiredFiles() {
-        log.info("开始执行文件清理任务...");
+        if (!running.compareAndSet(false, true)) {
+            log.info("文件清理任务正在执行中，跳过本次触发");
+            return;
+        }
+        try {
+            cleanupExecutor.execute(this::runCleanup);
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
 
-        int deletedCount = 0;
-        int failedCount = 0;
+    private void runCleanup() {
+        long start = System.currentTimeMillis();
+        lastRunStartedAt.set(LocalDateTime.now());
+        currentRunScanned.set(0);
+        currentRunDeleted.set(0);
+        currentRunFailed.set(0);
+        log.debug("开始执行文件清理任务...");
 
         try {
             // 1. 清理过期文件（超过30天）
-            List<FileUpload> expiredFiles = fileUploadRepository.findByExpiresAtBefore(LocalDateTime.now());
-            log.info("找到 {} 个过期文件待清理", expiredFiles.size());
-
-            for (FileUpload fileUpload : expiredFiles) {
-                try {
-                    // 删除物理文件
-                    File file = new File(UPLOAD_DIR + fileUpload.getFilePath());
-                    if (file.exists()) {
-                        if (file.delete()) {
-                            log.debug("已删除文件: {}", fileUpload.getFilePath());
-                        } else {
-                            log.warn("删除文件失败: {}", fileUpload.getFilePath());
-                            failedCount++;
-                            continue;
-                        }
-                    }
+            LocalDateTime now = LocalDateTime.now();
+            cleanupInBatches("过期文件",
+                    afterId -> fileUploadRepository.findExpiredBatch(now, afterId, PageRequest.of(0, batchSize)),
+                    this::deleteStoredFile);
 
-                    // 删除缩略图（如果有）
-                    if (fileUpload.getThumbnailPath() != null) {
-                        File thumbnail = new File(UPLOAD_DIR + fileUpload.getThumbnailPath());
-                        if (thumbnail.exists()) {
-                            thumbnail.delete();
-                        }
-                    }
+            // 2. 清理未完成上传的临时文件（超过24小时）
+            LocalDateTime oneDayAgo = now.minusDays(1);
+            cleanupInBatches("未完成上传",
+                    afterId -> fileUploadRepository.findIncompleteBatch(oneDayAgo, afterId, PageRequest.of(0, batchSize)),
+                    this::deleteChunks);
 
-                    // 删除数据库记录
-                    fileUploadRepository.delete(fileUpload);
-                    deletedCount++;
+            // 3. 清理孤立的临时分片目录
+            cleanupOrphanedChunks();
 
-                } catch (Exception e) {
-                    log.error("清理文件失败: fileId={}", fileUpload.getFileId(), e);
-                    failedCount++;
-                }
+        } catch (Exception e) {
+            log.error("文件清理任务执行异常", e);
+        } finally {
+            lastRunDurationMs.set(System.currentTimeMillis() - start);
+            lastRunFinishedAt.set(LocalDateTime.now());
+            running.set(false);
+        }
+
+        if (currentRunScanned.get() > 0) {
+            log.info("文件清理任务完成: 扫描 {} 条, 已删除 {} 个文件, 失败 {} 个, 耗时 {}ms",
+                    currentRunScanned.get(), currentRunDeleted.get(), currentRunFailed.get(),
+                    lastRunDurationMs.get());
+        }
+    }
+
+    /**
+     * 分批清理：keyset 分页读取 -> 并行删除物理文件 -> 批量删除记录
+     * 物理文件删除失败的记录保留，下一轮重试
+     */
+    private void cleanupInBatches(String label,
+                                  Function<Long, List<FileUpload>> batchLoader,
+                                  Function<FileUpload, Boolean> fileDeleter) {
+        long afterId = 0L;
+
+        while (true) {
+            List<FileUpload> batch = batchLoader.apply(afterId);
+            if (batch.isEmpty()) {
+                return;
             }
+            currentRunScanned.addAndGet(batch.size());
 
-            // 2. 清理未完成上传的临时文件（超过24小时）
-            LocalDateTime oneDayAgo = LocalDateTime.now().minusDays(1);
-            List<FileUpload> incompleteUploads = fileUploadRepository
-                    .findByUploadCompleteAndCreatedAtBefore(false, oneDayAgo);
-
-            log.info("找到 {} 个未完成上传待清理", incompleteUploads.size());
-
-            for (FileUpload fileUpload : incompleteUploads) {
-                try {
-                    // 删除临时分片目录
-                    File chunksDir = new File(UPLOAD_DIR + "chunks/" + fileUpload.getFileId());
-                    if (chunksDir.exists()) {
-                        deleteDirectory(chunksDir);
+            List<CompletableFuture<Long>> futures = new ArrayList<>(batch.size());
+            for (FileUpload fileUpload : batch) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return fileDeleter.apply(fileUpload) ? fileUpload.getId() : null;
+                    } catch (Exception e) {
+                        log.error("清理{}失败: fileId={}", label, fileUpload.getFileId(), e);
+                        return null;
                     }
+                }, cleanupExecutor));
+            }
 
-                    fileUploadRepository.delete(fileUpload);
-                    deletedCount++;
-
-                } catch (Exception e) {
-                    log.error("清理未完成上传失败: fileId={}", fileUpload.getFileId(), e);
-                    failedCount++;
+            List<Long> deletableIds = new ArrayList<>(batch.size());
+            for (CompletableFuture<Long> future : futures) {
+                Long id = future.join();
+                if (id != null) {
+                    deletableIds.add(id);
                 }
             }
 
-            // 3. 清理孤立的临时分片目录
-            cleanupOrphanedChunks();
+            int failed = batch.size() - deletableIds.size();
+            if (!deletableIds.isEmpty()) {
+                int deleted = fileUploadRepository.deleteByIdIn(deletableIds);
+                currentRunDeleted.addAndGet(deleted);
+                totalDeleted.addAndGet(deleted);
+            }
+            currentRunFailed.addAndGet(failed);
+            totalFailed.addAndGet(failed);
 
-        } catch (Exception e) {
-            log.error("文件清理任务执行异常", e);
+            afterId = batch.get(batch.size() - 1).getId();
+            log.debug("清理{}批次完成: size={}, deleted={}, failed={}, lastId={}",
+                    label, batch.size(), deletableIds.size(), failed, afterId);
+
+            if (batch.size() < batchSize) {
+                return;
+            }
+            pauseBetweenBatches();
+        }
+    }
+
+    /**
+     * 删除已上传文件及其缩略图，返回记录是否可以删除
+     */
+    private boolean deleteStoredFile(FileUpload fileUpload) {
+        if (fileUpload.getFilePath() != null && !blobStorage.delete(fileUpload.getFilePath())) {
+            log.warn("删除文件失败: {}", fileUpload.getFilePath());
+            return false;
+        }
+
+        // 删除缩略图（如果有）
+        if (fileUpload.getThumbnailPath() != null) {
+            blobStorage.delete(fileUpload.getThumbnailPath());
+        }
+        return true;
+    }
+
+    /**
+     * 删除未完成上传的临时分片目录
+     */
+    private boolean deleteChunks(FileUpload fileUpload) {
+        File chunksDir = new File(stagingDir, fileUpload.getFileId());
+        if (chunksDir.exists()) {
+            deleteDirectory(chunksDir);
         }
+        return true;
+    }
 
-        log.info("文件清理任务完成: 已删除 {} 个文件, 失败 {} 个", deletedCount, failedCount);
+    private void pauseBetweenBatches() {
+        if (batchPauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(batchPauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("文件清理任务被中断", e);
+        }
     }
 
     /**
      * 清理孤立的临时分片目录
      */
     private void cleanupOrphanedChunks() {
-        File chunksBaseDir = new File(UPLOAD_DIR + "chunks/");
+        File chunksBaseDir = new File(stagingDir);
         if (!chunksBaseDir.exists()) {
             return;
         }
@@ -138,11 +254,21 @@ public class FileCleanupService {
     }
 
     /**
-     * 手动触发清理（供管理员调用）
+     * 清理进度指标
      */
-    public void triggerCleanup() {
-        log.info("手动触发文件清理任务");
-        cleanupExpiredFiles();
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running.get());
+        stats.put("currentRunScanned", currentRunScanned.get());
+        stats.put("currentRunDeleted", currentRunDeleted.get());
+        stats.put("currentRunFailed", currentRunFailed.get());
+        stats.put("totalDeleted", totalDeleted.get());
+        stats.put("totalFailed", totalFailed.get());
+        stats.put("lastRunStartedAt", lastRunStartedAt.get());
+        stats.put("lastRunFinishedAt", lastRunFinishedAt.get());
+        stats.put("lastRunDurationMs", lastRunDurationMs.get());
+        stats.put("queuedDeletions", cleanupExecutor.getThreadPoolExecutor().getQueue().size());
+        return stats;
     }
 
     private void deleteDirectory(File directory) {
@@ -4,20 +4,26 @@ import com.nexus.chat.dto.*;
 import com.nexus.chat.exception.BusinessException;
 import com.nexus.chat.model.Chat;
 import com.nexus.chat.model.ChatMember;
-import com.nexus.chat.model.Message;
 import com.nexus.chat.model.User;
+import com.nexus.chat.repository.ArchivedMessageRepository;
 import com.nexus.chat.repository.ChatMemberRepository;
 import com.nexus.chat.repository.ChatRepository;
+import com.nexus.chat.repository.MessageReadStatusRepository;
 import com.nexus.chat.repository.MessageRepository;
 import com.nexus.chat.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -28,8 +34,18 @@ public class GroupService {
     private final ChatRepository chatRepository;
     private final ChatMemberRepository chatMemberRepository;
     private final MessageRepository messageRepository;
+    private final ArchivedMessageRepository archivedMessageRepository;
+    private final MessageReadStatusRepository messageReadStatusRepository;
+    private final MessageShardRouter messageShardRouter;
+    private final MessageSearchService messageSearchService;
     private final UserRepository userRepository;
     private final SimpMessagingTemplate messagingTemplate;
+    private final RecommendationService recommendationService;
+    private final UserStatsService userStatsService;
+    private final ChannelService channelService;
+    private final ChannelSubscriptionRegistry channelSubscriptionRegistry;
+
+    private static final int MAX_MEMBER_PAGE_SIZE = 200;
 
     /**
      * Create a new group
@@ -38,7 +54,7 @@ public class GroupService {
     public GroupDTO createGroup(Long creatorId, CreateGroupRequest request) {
         // Create group chat
         Chat chat = new Chat();
-        chat.setType(Chat.ChatType.group);
+        chat.setType(Boolean.TRUE.equals(request.getChannel()) ? Chat.ChatType.channel : Chat.ChatType.group);
         chat.setName(request.getName());
         chat.setDescription(request.getDescription());
         chat.setAvatarUrl(request.getAvatar());
@@ -54,22 +70,25 @@ public class GroupService {
         creatorMember.setRole(ChatMember.MemberRole.owner);
         creatorMember.setIsAdmin(true);
         chatMemberRepository.save(creatorMember);
+        userStatsService.groupsChanged(List.of(creatorId), 1);
 
-        // Add other members
+        // Add other members (one batch user check + one batched insert)
         if (request.getMemberIds() != null) {
-            for (Long memberId : request.getMemberIds()) {
-                if (!memberId.equals(creatorId)) {
-                    ChatMember member = new ChatMember();
-                    member.setChatId(savedChat.getId());
-                    member.setUserId(memberId);
-                    member.setRole(ChatMember.MemberRole.member);
-                    member.setIsAdmin(false);
-                    chatMemberRepository.save(member);
-                }
-            }
+            Set<Long> requestedIds = new LinkedHashSet<>(request.getMemberIds());
+            requestedIds.remove(creatorId);
+            List<Long> addedIds = userRepository.findAllByIdIn(requestedIds).stream()
+                    .map(User::getId)
+                    .collect(Collectors.toList());
+
+            chatMemberRepository.insertAll(addedIds.stream()
+                    .map(memberId -> newMember(savedChat.getId(), memberId, 0L))
+                    .collect(Collectors.toList()));
+
             // Update member count
-            savedChat.setMemberCount(request.getMemberIds().size() + 1);
+            savedChat.setMemberCount(addedIds.size() + 1);
             chatRepository.save(savedChat);
+            recommendationService.onGroupMembershipChanged(addedIds);
+            userStatsService.groupsChanged(addedIds, 1);
         }
 
         GroupDTO groupDTO = mapToGroupDTO(savedChat);
@@ -87,7 +106,7 @@ public class GroupService {
         Chat chat = chatRepository.findById(groupId)
                 .orElseThrow(() -> new BusinessException("error.group.not.found"));
 
-        if (chat.getType() != Chat.ChatType.group) {
+        if (chat.getType() != Chat.ChatType.group && chat.getType() != Chat.ChatType.channel) {
             throw new BusinessException("error.group.not.group.chat");
         }
 
@@ -150,7 +169,19 @@ public class GroupService {
         broadcastGroupEvent("group:deleted", Map.of("groupId", groupId), groupId);
 
         // Delete all members first
+        List<Long> memberIds = chatMemberRepository.findByChatId(groupId).stream()
+                .map(ChatMember::getUserId)
+                .collect(Collectors.toList());
         chatMemberRepository.deleteByChatId(groupId);
+        userStatsService.groupsChanged(memberIds, -1);
+
+        // Messages may live on a message shard, and archived messages have no foreign key to cascade from
+        messageShardRouter.run(groupId, () -> {
+            messageReadStatusRepository.deleteByChatId(groupId);
+            messageRepository.deleteByChatId(groupId);
+            archivedMessageRepository.deleteByChatId(groupId);
+        });
+        messageSearchService.deleteChatAfterCommit(groupId);
 
         // Delete group
         chatRepository.delete(chat);
@@ -172,35 +203,42 @@ public class GroupService {
             throw new BusinessException("error.group.admin.add.member");
         }
 
-        for (Long newUserId : userIds) {
-            if (!chatMemberRepository.existsByChatIdAndUserId(groupId, newUserId)) {
-                // Verify user exists
-                User user = userRepository.findById(newUserId)
-                        .orElseThrow(() -> new BusinessException("error.user.not.found"));
-
-                ChatMember member = new ChatMember();
-                member.setChatId(groupId);
-                member.setUserId(newUserId);
-                member.setRole(ChatMember.MemberRole.member);
-                member.setIsAdmin(false);
-                chatMemberRepository.save(member);
-            }
+        // Batch validation: one query for existing members, one for the users themselves
+        Set<Long> candidateIds = new LinkedHashSet<>(userIds);
+        chatMemberRepository.findExistingMemberIds(groupId, candidateIds).forEach(candidateIds::remove);
+        if (candidateIds.isEmpty()) {
+            return;
         }
 
+        List<User> newUsers = userRepository.findAllByIdIn(candidateIds);
+        if (newUsers.size() != candidateIds.size()) {
+            throw new BusinessException("error.user.not.found");
+        }
+        List<Long> addedIds = newUsers.stream().map(User::getId).collect(Collectors.toList());
+
+        // Channel members start at the current position instead of with the whole history unread
+        long lastReadSeq = ChannelService.isChannel(chat) ? channelService.currentSequence(groupId) : 0L;
+        chatMemberRepository.insertAll(addedIds.stream()
+                .map(newUserId -> newMember(groupId, newUserId, lastReadSeq))
+                .collect(Collectors.toList()));
+
         // Update member count
         int newMemberCount = (int) chatMemberRepository.countByChatId(groupId);
         chat.setMemberCount(newMemberCount);
         chatRepository.save(chat);
-
-        // Broadcast member joined for each new member
-        for (Long newUserId : userIds) {
-            User user = userRepository.findById(newUserId).orElse(null);
-            if (user != null) {
-                UserDTO userDTO = mapToUserDTO(user);
-                broadcastGroupEvent("group:member-joined",
-                        Map.of("groupId", groupId, "member", userDTO, "memberCount", newMemberCount), groupId);
-            }
+        recommendationService.onGroupMembershipChanged(addedIds);
+        userStatsService.groupsChanged(addedIds, 1);
+
+        // One combined event for all new members; a single join also carries the original "member" field
+        List<UserDTO> joined = newUsers.stream().map(this::mapToUserDTO).collect(Collectors.toList());
+        Map<String, Object> event = new HashMap<>();
+        event.put("groupId", groupId);
+        event.put("members", joined);
+        event.put("memberCount", newMemberCount);
+        if (joined.size() == 1) {
+            event.put("member", joined.get(0));
         }
+        broadcastGroupEvent("group:member-joined", event, groupId);
     }
 
     /**
@@ -225,6 +263,11 @@ public class GroupService {
         }
 
         chatMemberRepository.deleteByChatIdAndUserId(groupId, memberUserId);
+        if (ChannelService.isChannel(chat)) {
+            channelSubscriptionRegistry.revoke(groupId, memberUserId);
+        }
+        recommendationService.onGroupMembershipChanged(List.of(memberUserId));
+        userStatsService.groupsChanged(List.of(memberUserId), -1);
 
         // Update member count
         int newMemberCount = (int) chatMemberRepository.countByChatId(groupId);
@@ -254,6 +297,11 @@ public class GroupService {
         }
 
         chatMemberRepository.deleteByChatIdAndUserId(groupId, userId);
+        if (ChannelService.isChannel(chat)) {
+            channelSubscriptionRegistry.revoke(groupId, userId);
+        }
+        recommendationService.onGroupMembershipChanged(List.of(userId));
+        userStatsService.groupsChanged(List.of(userId), -1);
 
         // Update member count
         int newMemberCount = (int) chatMemberRepository.countByChatId(groupId);
@@ -266,19 +314,22 @@ public class GroupService {
     }
 
     /**
-     * Get group members with role information
+     * Get group members with role information (single join query)
      */
     public List<GroupMemberDTO> getGroupMembers(Long groupId) {
-        List<ChatMember> members = chatMemberRepository.findByChatId(groupId);
-        return members.stream()
-                .map(member -> {
-                    User user = userRepository.findById(member.getUserId()).orElse(null);
-                    if (user != null) {
-                        return mapToGroupMemberDTO(user, member);
-                    }
-                    return null;
-                })
-                .filter(m -> m != null)
+        return getGroupMembers(groupId, Pageable.unpaged());
+    }
+
+    /**
+     * Get one page of group members, in join order
+     */
+    public List<GroupMemberDTO> getGroupMembers(Long groupId, int page, int size) {
+        return getGroupMembers(groupId, PageRequest.of(page, Math.max(1, Math.min(size, MAX_MEMBER_PAGE_SIZE))));
+    }
+
+    private List<GroupMemberDTO> getGroupMembers(Long groupId, Pageable pageable) {
+        return chatMemberRepository.findMembersWithUsers(groupId, pageable).stream()
+                .map(row -> mapToGroupMemberDTO((User) row[1], (ChatMember) row[0]))
                 .collect(Collectors.toList());
     }
 
@@ -390,17 +441,18 @@ public class GroupService {
         dto.setMemberCount(chat.getMemberCount());
         dto.setCreatedAt(chat.getCreatedAt());
 
-        // Get members
-        List<GroupMemberDTO> members = getGroupMembers(chat.getId());
+        // Get members (channels only embed the first page; the rest is paged via /members)
+        List<GroupMemberDTO> members = ChannelService.isChannel(chat)
+                ? getGroupMembers(chat.getId(), 0, MAX_MEMBER_PAGE_SIZE)
+                : getGroupMembers(chat.getId());
         dto.setMembers(members);
 
         // Get last message
-        List<Message> messages = messageRepository.findByChatIdOrderByCreatedAtDesc(chat.getId());
-        if (!messages.isEmpty()) {
-            Message lastMsg = messages.get(0);
-            dto.setLastMessage(lastMsg.getContent());
-            dto.setLastMessageTime(lastMsg.getCreatedAt());
-        }
+        messageShardRouter.read(chat.getId(), () -> messageRepository.findFirstByChatIdOrderByCreatedAtDesc(chat.getId()))
+                .ifPresent(lastMsg -> {
+                    dto.setLastMessage(lastMsg.getContent());
+                    dto.setLastMessageTime(lastMsg.getCreatedAt());
+                });
 
         return dto;
     }
@@ -418,6 +470,16 @@ public class GroupService {
                 user.getLastSeen());
     }
 
+    private ChatMember newMember(Long groupId, Long userId, long lastReadSeq) {
+        ChatMember member = new ChatMember();
+        member.setChatId(groupId);
+        member.setUserId(userId);
+        member.setRole(ChatMember.MemberRole.member);
+        member.setIsAdmin(false);
+        member.setLastReadSeq(lastReadSeq);
+        return member;
+    }
+
     /**
      * Map User and ChatMember to GroupMemberDTO
      */
@@ -0,0 +1,121 @@
+package com.nexus.chat.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * JDK ImageIO based decoding and resizing shared by thumbnails and avatars.
+ */
+@Slf4j
+@Component
+public class ImageScaler {
+
+    // 解码前按像素数拒绝超大图片，防止解压炸弹耗尽内存
+    private static final long MAX_SOURCE_PIXELS = 50_000_000L;
+
+    /**
+     * Decode an image, subsampling during decode so that the shorter side stays
+     * at roughly twice the requested target size.
+     *
+     * @param source any input accepted by {@link ImageIO#createImageInputStream}
+     * @return the decoded image, or null if the format is unsupported or too large
+     */
+    public BufferedImage read(Object source, int targetSize) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_SOURCE_PIXELS) {
+                    log.warn("图片像素超限，拒绝解码: {}x{}", width, height);
+                    return null;
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.min(width, height) / (targetSize * 2));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale so that the longest side fits within maxSize, keeping aspect ratio.
+     * Images already smaller than maxSize are redrawn at their own size.
+     */
+    public BufferedImage fit(BufferedImage source, int maxSize) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        return draw(source, 0, 0, width, height, targetWidth, targetHeight);
+    }
+
+    /**
+     * Center-crop to a square and scale to exactly size x size.
+     */
+    public BufferedImage square(BufferedImage source, int size) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        int x = (source.getWidth() - side) / 2;
+        int y = (source.getHeight() - side) / 2;
+        return draw(source, x, y, side, side, size, size);
+    }
+
+    /**
+     * Preferred output format: PNG keeps transparency, JPEG otherwise.
+     */
+    public String formatFor(BufferedImage image) {
+        return image.getColorModel().hasAlpha() ? "png" : "jpg";
+    }
+
+    /**
+     * Encode with the format chosen by {@link #formatFor}.
+     *
+     * @return the format written
+     */
+    public String write(BufferedImage image, OutputStream output) throws IOException {
+        String format = formatFor(image);
+        if (!ImageIO.write(image, format, output)) {
+            throw new IOException("No ImageIO writer for format " + format);
+        }
+        return format;
+    }
+
+    private BufferedImage draw(BufferedImage source, int sx, int sy, int sw, int sh, int tw, int th) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage target = new BufferedImage(tw, th, type);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, tw, th, sx, sy, sx + sw, sy + sh, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+}
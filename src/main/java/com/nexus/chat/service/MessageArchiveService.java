@@ -0,0 +1,317 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.model.ArchivedMessage;
+import com.nexus.chat.model.Message;
+import com.nexus.chat.repository.ArchivedMessageRepository;
+import com.nexus.chat.repository.ChatRepository;
+import com.nexus.chat.repository.FileUploadRepository;
+import com.nexus.chat.repository.MessageReadStatusRepository;
+import com.nexus.chat.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * 冷消息归档（热/冷分离）
+ *
+ * messages 表只保存热数据：定时任务把创建时间早于 message-archive.age 的消息按会话分批移入
+ * messages_archive（压缩行格式、无外键）。每个会话最新的 keep-per-chat 条消息始终留在热表，
+ * 所以最近消息、会话列表的最后一条消息和最近消息缓存只读热表即可。
+ *
+ * 其余读取在这里透明地合并两张表：
+ * - 升序分页：会话的前 archived_count 条在归档表，之后的在热表；
+ * - 按序列号拉取：热表结果与 afterSeq 之间有缺口时先从归档表补齐；
+ * - 按时间增量同步、搜索结果回填：热表未覆盖的部分查归档表。
+ *
+ * 启用消息分片时两张表都在会话所在的分片上（MessageShardRouter）。主库和分片不能在一个事务里提交，
+ * 因此分片时不维护 chats.archived_count：归档条数在分片上按归档表计数，与分页查询在同一读事务内；
+ * 文件关联先在主库解除，之后复制/删除在分片上一个事务内完成，中途失败的批次下次归档时重做。
+ * 重新分片期间暂停归档。
+ */
+@Slf4j
+@Service
+public class MessageArchiveService {
+
+    private static final String ARCHIVE_LOCK = "lock:message-archive";
+    private static final int CHAT_BATCH_SIZE = 500;
+    // MessageService serves recent pages of up to 200 messages from the hot table only
+    private static final int MIN_KEEP_PER_CHAT = 200;
+
+    private final MessageRepository messageRepository;
+    private final ArchivedMessageRepository archivedMessageRepository;
+    private final ChatRepository chatRepository;
+    private final MessageReadStatusRepository messageReadStatusRepository;
+    private final FileUploadRepository fileUploadRepository;
+    private final RecentMessageCache recentMessageCache;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MessageShardRouter messageShardRouter;
+
+    @Value("${message-archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${message-archive.age:180d}")
+    private Duration age;
+
+    @Value("${message-archive.keep-per-chat:200}")
+    private int keepPerChat;
+
+    @Value("${message-archive.batch-size:500}")
+    private int batchSize;
+
+    public MessageArchiveService(MessageRepository messageRepository,
+                                 ArchivedMessageRepository archivedMessageRepository,
+                                 ChatRepository chatRepository,
+                                 MessageReadStatusRepository messageReadStatusRepository,
+                                 FileUploadRepository fileUploadRepository,
+                                 RecentMessageCache recentMessageCache,
+                                 StringRedisTemplate redisTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 MessageShardRouter messageShardRouter) {
+        this.messageRepository = messageRepository;
+        this.archivedMessageRepository = archivedMessageRepository;
+        this.chatRepository = chatRepository;
+        this.messageReadStatusRepository = messageReadStatusRepository;
+        this.fileUploadRepository = fileUploadRepository;
+        this.recentMessageCache = recentMessageCache;
+        this.redisTemplate = redisTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.messageShardRouter = messageShardRouter;
+    }
+
+    @PostConstruct
+    void init() {
+        // 最近消息窗口"少于 N 条即为全部历史"的判断依赖热表保留足够多的消息
+        int minimum = Math.max(MIN_KEEP_PER_CHAT, recentMessageCache.getCapacity());
+        if (keepPerChat < minimum) {
+            log.warn("message-archive.keep-per-chat={} 过小, 使用 {}", keepPerChat, minimum);
+            keepPerChat = minimum;
+        }
+    }
+
+    /**
+     * 定期归档冷消息（默认每天凌晨），同一时间只有一个实例执行
+     */
+    @Scheduled(cron = "${message-archive.cron:0 30 3 * * *}")
+    public void archiveColdMessages() {
+        // 重新分片期间不归档：回填按表复制，归档会在两张表之间移动行
+        if (!enabled || messageShardRouter.isMigrating()) {
+            return;
+        }
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(ARCHIVE_LOCK, "1", Duration.ofHours(6));
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minus(age);
+        long archived = 0;
+        int chats = 0;
+        long afterChatId = 0L;
+        try {
+            while (true) {
+                // 创建时间晚于截止时间的会话不可能有需要归档的消息
+                List<Long> chatIds = chatRepository.findIdsCreatedBefore(
+                        cutoff, afterChatId, PageRequest.of(0, CHAT_BATCH_SIZE));
+                if (chatIds.isEmpty()) {
+                    break;
+                }
+                for (Long chatId : chatIds) {
+                    long moved = archiveChat(chatId, cutoff);
+                    if (moved > 0) {
+                        archived += moved;
+                        chats++;
+                    }
+                }
+                afterChatId = chatIds.get(chatIds.size() - 1);
+            }
+            log.info("消息归档完成: {} 个会话, {} 条消息, 耗时 {}ms",
+                    chats, archived, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("消息归档失败: 已归档 {} 条, lastChatId={}", archived, afterChatId, e);
+        } finally {
+            redisTemplate.delete(ARCHIVE_LOCK);
+        }
+    }
+
+    /**
+     * 归档一个会话的冷消息，每批一个事务：解除文件关联 -> 复制到归档表 -> 删除已读状态 -> 删除热表行
+     * -> 更新 archived_count。分片时解除文件关联在主库单独提交，其余步骤在会话所在分片上一个事务内完成
+     */
+    private long archiveChat(Long chatId, LocalDateTime cutoff) {
+        long moved = 0;
+        try {
+            while (true) {
+                List<Long> ids = messageShardRouter.read(chatId,
+                        () -> messageRepository.findArchivableIds(chatId, cutoff, keepPerChat, batchSize));
+                if (ids.isEmpty()) {
+                    return moved;
+                }
+                if (messageShardRouter.isEnabled()) {
+                    // Detaching first is safe to repeat: the batch stays archivable until it is moved
+                    transactionTemplate.executeWithoutResult(status -> fileUploadRepository.detachMessages(ids));
+                    messageShardRouter.run(chatId, () -> moveToArchive(ids));
+                } else {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        fileUploadRepository.detachMessages(ids);
+                        moveToArchive(ids);
+                        chatRepository.addArchivedCount(chatId, ids.size());
+                    });
+                }
+                moved += ids.size();
+                if (ids.size() < batchSize) {
+                    return moved;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("会话消息归档失败: chatId={}, 本轮已归档 {} 条", chatId, moved, e);
+            return moved;
+        }
+    }
+
+    private void moveToArchive(List<Long> ids) {
+        archivedMessageRepository.copyFromMessages(ids);
+        messageReadStatusRepository.deleteByMessageIdIn(ids);
+        messageRepository.deleteByIdIn(ids);
+    }
+
+    /**
+     * Number of the chat's messages in the archive (counted on the shard when sharded).
+     */
+    private long archivedCount(Long chatId) {
+        if (messageShardRouter.isEnabled()) {
+            return archivedMessageRepository.countByChatId(chatId);
+        }
+        Long count = chatRepository.findArchivedCount(chatId);
+        return count != null ? count : 0L;
+    }
+
+    /**
+     * One page of a chat's messages, oldest first, across the archive and the hot table.
+     */
+    public List<Message> findPage(Long chatId, int page, int size) {
+        if (!messageShardRouter.isEnabled()) {
+            return findPage(chatId, page, size, archivedCount(chatId));
+        }
+        return messageShardRouter.read(chatId, () -> findPage(chatId, page, size, archivedCount(chatId)));
+    }
+
+    private List<Message> findPage(Long chatId, int page, int size, long archived) {
+        // Both tables are paged by id so pages line up across the archive boundary
+        long offset = (long) Math.max(page, 0) * size;
+        if (archived == 0) {
+            return messageRepository.findPageByChatId(chatId, offset, size);
+        }
+
+        List<Message> messages = new ArrayList<>(size);
+        if (offset < archived) {
+            archivedMessageRepository.findPageByChatId(chatId, offset, size).stream()
+                    .map(MessageArchiveService::toMessage)
+                    .forEach(messages::add);
+        }
+        if (messages.size() < size) {
+            messages.addAll(messageRepository.findPageByChatId(
+                    chatId, Math.max(0, offset - archived), size - messages.size()));
+        }
+        return messages;
+    }
+
+    /**
+     * Up to {@code limit} messages after a sequence number, ascending. The archive is only
+     * queried when the hot result does not start right after {@code afterSeq}.
+     */
+    public List<Message> findAfterSequence(Long chatId, long afterSeq, int limit) {
+        BooleanSupplier hasArchive = messageShardRouter.isEnabled()
+                ? () -> archivedMessageRepository.existsByChatId(chatId)
+                : () -> archivedCount(chatId) > 0;
+        return messageShardRouter.read(chatId, () -> findAfterSequence(chatId, afterSeq, limit, hasArchive));
+    }
+
+    private List<Message> findAfterSequence(Long chatId, long afterSeq, int limit, BooleanSupplier hasArchive) {
+        List<Message> hot = messageRepository.findByChatIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(
+                chatId, afterSeq, PageRequest.of(0, limit));
+        Long firstHotSeq = hot.isEmpty() ? null : hot.get(0).getSequenceNumber();
+        if ((firstHotSeq != null && firstHotSeq == afterSeq + 1) || !hasArchive.getAsBoolean()) {
+            return hot;
+        }
+
+        List<Message> messages = archivedMessageRepository
+                .findByChatIdAndSequenceNumberGreaterThanOrderBySequenceNumberAsc(
+                        chatId, afterSeq, PageRequest.of(0, limit)).stream()
+                .filter(a -> firstHotSeq == null || a.getSequenceNumber() < firstHotSeq)
+                .map(MessageArchiveService::toMessage)
+                .collect(Collectors.toCollection(ArrayList::new));
+        messages.addAll(hot);
+        return messages.size() > limit ? messages.subList(0, limit) : messages;
+    }
+
+    /**
+     * Messages of the chats created after {@code since} (delta sync). Archived messages were
+     * at least {@code age} old when moved, so the archive is only read for older cursors.
+     */
+    public List<Message> findCreatedAfter(List<Long> chatIds, LocalDateTime since) {
+        boolean includeArchive = since.isBefore(LocalDateTime.now().minus(age));
+        // Scatter-gather when sharded: each shard is queried for its own chats, in parallel
+        return messageShardRouter.readByChats(chatIds, shardChatIds -> {
+            List<Message> messages = new ArrayList<>(
+                    messageRepository.findByChatIdInAndCreatedAtAfter(shardChatIds, since));
+            if (includeArchive) {
+                archivedMessageRepository.findByChatIdInAndCreatedAtAfter(shardChatIds, since).stream()
+                        .map(MessageArchiveService::toMessage)
+                        .forEach(messages::add);
+            }
+            return messages;
+        });
+    }
+
+    /**
+     * Messages by id from either table (hydrating search hits), in no particular order.
+     */
+    public List<Message> findAllById(Collection<Long> ids) {
+        List<Message> messages = new ArrayList<>();
+        messageShardRouter.readAll(() -> findAllByIdOnShard(ids)).forEach(messages::addAll);
+        return messages;
+    }
+
+    private List<Message> findAllByIdOnShard(Collection<Long> ids) {
+        List<Message> messages = new ArrayList<>(messageRepository.findAllById(ids));
+        if (messages.size() < ids.size()) {
+            Set<Long> missing = new HashSet<>(ids);
+            messages.forEach(m -> missing.remove(m.getId()));
+            archivedMessageRepository.findAllById(missing).stream()
+                    .map(MessageArchiveService::toMessage)
+                    .forEach(messages::add);
+        }
+        return messages;
+    }
+
+    static Message toMessage(ArchivedMessage archived) {
+        Message message = new Message();
+        message.setId(archived.getId());
+        message.setChatId(archived.getChatId());
+        message.setSenderId(archived.getSenderId());
+        message.setContent(archived.getContent());
+        message.setMessageType(archived.getMessageType());
+        message.setFileUrl(archived.getFileUrl());
+        message.setSequenceNumber(archived.getSequenceNumber());
+        message.setClientMessageId(archived.getClientMessageId());
+        message.setCreatedAt(archived.getCreatedAt());
+        return message;
+    }
+
+}
@@ -0,0 +1,541 @@
+package com.nexus.chat.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nexus.chat.model.Message;
+import com.nexus.chat.repository.ArchivedMessageRepository;
+import com.nexus.chat.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cjk.CJKBigramFilter;
+import org.apache.lucene.analysis.cjk.CJKWidthFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.QueryBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * 消息全文检索服务（内嵌 Lucene，无外部依赖）
+ *
+ * 索引按 chatId 分片存放在本地磁盘，每个分片一个 IndexWriter；发送消息在事务提交后
+ * 由后台线程增量写入，SearcherManager 每秒刷新一次实现近实时检索。启动补齐在单独的线程上运行，
+ * 不阻塞增量写入；索引队列满时不在调用方线程上写索引，而是记下漏掉的部分稍后补齐。
+ * 每个实例各有一份索引：新消息和删除的会话通过 Redis 频道通知其他实例（消息内容随通知下发）。
+ * 归档只是换表、不换 id，命中结果从热表和归档表一起加载，因此索引无需改动。
+ *
+ * 启动时从数据库补齐索引中缺失的消息：其他实例的消息不按 id 顺序提交，
+ * 因此从索引中最大 id 的时间戳回退 catch-up-window 后按 id 续建（重复索引是幂等的）。
+ * 索引目录丢失或进程崩溃后可自愈；停机期间删除的会话残留的条目在加载结果时被过滤掉。
+ */
+@Slf4j
+@Service
+public class MessageSearchService implements MessageListener {
+
+    private static final String INDEX_CHANNEL = "message:index";
+    private static final ObjectMapper EVENT_MAPPER = new ObjectMapper();
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_ID_SORT = "idSort";
+    private static final String FIELD_CHAT_ID = "chatId";
+    private static final String FIELD_CONTENT = "content";
+    private static final String FIELD_CREATED_AT = "createdAt";
+
+    private static final int MAX_RESULT_WINDOW = 1000;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final MessageRepository messageRepository;
+    private final ArchivedMessageRepository archivedMessageRepository;
+    private final MessageShardRouter messageShardRouter;
+    private final RedisCacheService redisCacheService;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ThreadPoolTaskExecutor messageIndexExecutor;
+    private final ThreadPoolTaskExecutor searchRebuildExecutor;
+    // 索引同时保留单字和双字；查询只用双字（孤立单字仍输出单字），避免同位置多词元干扰匹配
+    private final Analyzer indexAnalyzer = new ChatTextAnalyzer(true);
+    private final Analyzer queryAnalyzer = new ChatTextAnalyzer(false);
+
+    @Value("${search.message.index-dir:data/message-index}")
+    private String indexDir;
+
+    @Value("${search.message.shards:4}")
+    private int shardCount;
+
+    @Value("${search.message.catch-up-window-ms:300000}")
+    private long catchUpWindowMillis;
+
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+
+    private final List<IndexWriter> writers = new ArrayList<>();
+    private final List<SearcherManager> searcherManagers = new ArrayList<>();
+
+    // 索引队列已满时被拒绝的任务：最小的未索引消息 id（之前的 id），以及待删除的会话
+    private final AtomicLong missedAfterId = new AtomicLong(Long.MAX_VALUE);
+    private final Set<Long> pendingChatDeletes = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed = false;
+
+    public MessageSearchService(MessageRepository messageRepository,
+                                ArchivedMessageRepository archivedMessageRepository,
+                                MessageShardRouter messageShardRouter,
+                                RedisCacheService redisCacheService,
+                                RedisMessageListenerContainer listenerContainer,
+                                @Qualifier("messageIndexExecutor") ThreadPoolTaskExecutor messageIndexExecutor,
+                                @Qualifier("searchRebuildExecutor") ThreadPoolTaskExecutor searchRebuildExecutor) {
+        this.messageRepository = messageRepository;
+        this.archivedMessageRepository = archivedMessageRepository;
+        this.messageShardRouter = messageShardRouter;
+        this.redisCacheService = redisCacheService;
+        this.listenerContainer = listenerContainer;
+        this.messageIndexExecutor = messageIndexExecutor;
+        this.searchRebuildExecutor = searchRebuildExecutor;
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        for (int i = 0; i < shardCount; i++) {
+            Path shardDir = Paths.get(indexDir, "shard-" + i);
+            Files.createDirectories(shardDir);
+
+            IndexWriterConfig config = new IndexWriterConfig(indexAnalyzer);
+            config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            IndexWriter writer = new IndexWriter(FSDirectory.open(shardDir), config);
+
+            writers.add(writer);
+            searcherManagers.add(new SearcherManager(writer, null));
+        }
+        log.info("消息索引已打开: dir={}, shards={}", indexDir, shardCount);
+
+        // Read before any new message is indexed, which would move the maximum past the gap
+        long fromId = catchUpFrom(maxIndexedId());
+        listenerContainer.addMessageListener(this, new ChannelTopic(INDEX_CHANNEL));
+        searchRebuildExecutor.execute(() -> catchUp(fromId));
+    }
+
+    @PreDestroy
+    void close() {
+        closed = true;
+        for (int i = 0; i < shardCount; i++) {
+            try {
+                searcherManagers.get(i).close();
+                writers.get(i).close();
+            } catch (IOException e) {
+                log.error("关闭消息索引分片失败: shard={}", i, e);
+            }
+        }
+    }
+
+    /**
+     * 异步索引已提交的消息（回滚的消息不会进入索引），并通知其他实例
+     */
+    public void indexCommitted(Message message) {
+        if (!isIndexable(message)) {
+            return;
+        }
+        submitIndex(message);
+        publish(new IndexEvent(instanceId, IndexEvent.INDEX, message.getId(), message.getChatId(),
+                message.getContent(), epochMillis(message.getCreatedAt())));
+    }
+
+    /**
+     * 在当前事务提交后从所有实例的索引中删除会话的全部消息
+     */
+    public void deleteChatAfterCommit(Long chatId) {
+        AfterCommit.run(() -> {
+            submitDeleteChat(chatId);
+            publish(new IndexEvent(instanceId, IndexEvent.DELETE_CHAT, null, chatId, null, null));
+        });
+    }
+
+    /**
+     * 其他实例发送的消息或删除的会话
+     */
+    @Override
+    public void onMessage(org.springframework.data.redis.connection.Message message, byte[] pattern) {
+        IndexEvent event;
+        try {
+            event = EVENT_MAPPER.readValue(message.getBody(), IndexEvent.class);
+        } catch (IOException e) {
+            log.warn("无效的消息索引通知: {}", e.getMessage());
+            return;
+        }
+        if (instanceId.equals(event.origin())) {
+            return;
+        }
+        if (IndexEvent.DELETE_CHAT.equals(event.type())) {
+            submitDeleteChat(event.chatId());
+        } else if (IndexEvent.INDEX.equals(event.type())) {
+            Message indexed = new Message();
+            indexed.setId(event.id());
+            indexed.setChatId(event.chatId());
+            indexed.setContent(event.content());
+            if (event.createdAt() != null) {
+                indexed.setCreatedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(event.createdAt()), ZoneId.systemDefault()));
+            }
+            submitIndex(indexed);
+        }
+    }
+
+    /**
+     * 在指定聊天范围内检索消息
+     *
+     * @param chatIds 调用方所在的聊天（检索范围）
+     * @param byRecency true 时按时间倒序，否则按相关度、再按时间倒序
+     * @return 命中消息 id，按排序顺序
+     */
+    public List<Long> search(Collection<Long> chatIds, String queryText, int page, int size, boolean byRecency) {
+        if (chatIds.isEmpty() || queryText == null || queryText.isBlank()) {
+            return List.of();
+        }
+
+        Query textQuery = new QueryBuilder(queryAnalyzer)
+                .createBooleanQuery(FIELD_CONTENT, queryText.trim(), BooleanClause.Occur.MUST);
+        if (textQuery == null) {
+            return List.of();
+        }
+
+        Query query = new BooleanQuery.Builder()
+                .add(textQuery, BooleanClause.Occur.MUST)
+                .add(LongPoint.newSetQuery(FIELD_CHAT_ID, chatIds), BooleanClause.Occur.FILTER)
+                .build();
+
+        Sort sort = byRecency
+                ? new Sort(new SortField(FIELD_CREATED_AT, SortField.Type.LONG, true))
+                : new Sort(SortField.FIELD_SCORE, new SortField(FIELD_CREATED_AT, SortField.Type.LONG, true));
+
+        int offset = page * size;
+        int topN = Math.min(offset + size, MAX_RESULT_WINDOW);
+        if (offset >= topN) {
+            return List.of();
+        }
+
+        List<IndexSearcher> acquired = new ArrayList<>(shardCount);
+        try {
+            for (SearcherManager manager : searcherManagers) {
+                acquired.add(manager.acquire());
+            }
+            IndexReader[] readers = acquired.stream()
+                    .map(IndexSearcher::getIndexReader)
+                    .toArray(IndexReader[]::new);
+
+            try (MultiReader multiReader = new MultiReader(readers, false)) {
+                IndexSearcher searcher = new IndexSearcher(multiReader);
+                TopDocs topDocs = searcher.search(query, topN, sort, !byRecency);
+                StoredFields storedFields = searcher.storedFields();
+
+                List<Long> ids = new ArrayList<>(size);
+                ScoreDoc[] hits = topDocs.scoreDocs;
+                for (int i = offset; i < hits.length; i++) {
+                    ids.add(Long.parseLong(storedFields.document(hits[i].doc).get(FIELD_ID)));
+                }
+                return ids;
+            }
+        } catch (IOException e) {
+            log.error("消息检索失败: query={}", queryText, e);
+            return List.of();
+        } finally {
+            for (int i = 0; i < acquired.size(); i++) {
+                try {
+                    searcherManagers.get(i).release(acquired.get(i));
+                } catch (IOException e) {
+                    log.warn("释放索引 searcher 失败: shard={}", i, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 近实时刷新：让新写入的文档对检索可见
+     */
+    @Scheduled(fixedDelayString = "${search.message.refresh-ms:1000}")
+    public void refresh() {
+        for (SearcherManager manager : searcherManagers) {
+            try {
+                manager.maybeRefresh();
+            } catch (IOException e) {
+                log.warn("消息索引刷新失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 定期提交到磁盘（未提交的部分在重启时由 catchUp 补齐）
+     */
+    @Scheduled(fixedDelayString = "${search.message.commit-ms:30000}")
+    public void commit() {
+        for (IndexWriter writer : writers) {
+            try {
+                if (writer.hasUncommittedChanges()) {
+                    writer.commit();
+                }
+            } catch (IOException e) {
+                log.warn("消息索引提交失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 重新提交因索引队列已满而被拒绝的任务：删除会话重新排队，漏掉的消息从数据库补齐
+     */
+    @Scheduled(fixedDelayString = "${search.message.recover-ms:10000}")
+    public void recoverRejected() {
+        for (Long chatId : pendingChatDeletes) {
+            try {
+                messageIndexExecutor.execute(() -> deleteChat(chatId));
+                pendingChatDeletes.remove(chatId);
+            } catch (TaskRejectedException e) {
+                return;
+            }
+        }
+        long afterId = missedAfterId.getAndSet(Long.MAX_VALUE);
+        if (afterId != Long.MAX_VALUE) {
+            try {
+                searchRebuildExecutor.execute(() -> catchUp(afterId));
+            } catch (TaskRejectedException e) {
+                missedAfterId.accumulateAndGet(afterId, Math::min);
+            }
+        }
+    }
+
+    private void submitIndex(Message message) {
+        try {
+            messageIndexExecutor.execute(() -> index(message));
+        } catch (TaskRejectedException e) {
+            if (missedAfterId.getAndAccumulate(message.getId() - 1, Math::min) == Long.MAX_VALUE) {
+                log.warn("消息索引队列已满，稍后从数据库补齐: messageId={}", message.getId());
+            }
+        }
+    }
+
+    private void submitDeleteChat(Long chatId) {
+        try {
+            messageIndexExecutor.execute(() -> deleteChat(chatId));
+        } catch (TaskRejectedException e) {
+            log.warn("消息索引队列已满，稍后删除会话索引: chatId={}", chatId);
+            pendingChatDeletes.add(chatId);
+        }
+    }
+
+    private void publish(IndexEvent event) {
+        try {
+            redisCacheService.publishMessage(INDEX_CHANNEL, EVENT_MAPPER.writeValueAsString(event));
+        } catch (JsonProcessingException | RuntimeException e) {
+            // 其他实例在下次启动补齐时追上
+            log.warn("消息索引通知发送失败: type={}, chatId={}", event.type(), event.chatId(), e);
+        }
+    }
+
+    private void deleteChat(Long chatId) {
+        if (closed) {
+            return;
+        }
+        try {
+            writers.get(shardOf(chatId)).deleteDocuments(LongPoint.newExactQuery(FIELD_CHAT_ID, chatId));
+        } catch (IOException | RuntimeException e) {
+            log.error("删除会话消息索引失败: chatId={}", chatId, e);
+        }
+    }
+
+    private void index(Message message) {
+        if (closed) {
+            return;
+        }
+        try {
+            writers.get(shardOf(message.getChatId()))
+                    .updateDocument(new Term(FIELD_ID, String.valueOf(message.getId())), toDocument(message));
+        } catch (IOException | RuntimeException e) {
+            log.error("消息索引失败: messageId={}", message.getId(), e);
+        }
+    }
+
+    /**
+     * 从数据库补齐 id 大于 fromId 的消息（每个消息分片的归档表和热表各扫描一遍）。
+     * 启动时 fromId 为索引中最大消息 id 的时间戳回退 catch-up-window 后的 id
+     */
+    private void catchUp(long fromId) {
+        long indexed = 0;
+
+        try {
+            for (String shard : messageShardRouter.shards()) {
+                indexed += catchUpTable(fromId, afterId -> messageShardRouter.readOn(shard, () ->
+                        archivedMessageRepository.findByIdGreaterThanOrderByIdAsc(
+                                afterId, PageRequest.of(0, REBUILD_BATCH_SIZE)).stream()
+                                .map(MessageArchiveService::toMessage)
+                                .toList()));
+                indexed += catchUpTable(fromId, afterId -> messageShardRouter.readOn(shard, () ->
+                        messageRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE))));
+            }
+            commit();
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("消息索引补齐失败: fromId={}", fromId, e);
+        }
+
+        if (indexed > 0) {
+            log.info("消息索引补齐完成: 新增 {} 条, fromId={}", indexed, fromId);
+        }
+    }
+
+    private long catchUpTable(long afterId, LongFunction<List<Message>> batchLoader) {
+        long indexed = 0;
+        while (true) {
+            List<Message> batch = batchLoader.apply(afterId);
+            if (batch.isEmpty()) {
+                return indexed;
+            }
+            for (Message message : batch) {
+                if (isIndexable(message)) {
+                    index(message);
+                    indexed++;
+                }
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Snowflake ids carry their creation time; ids from before the switch to Snowflake are resumed as-is.
+     */
+    private long catchUpFrom(long maxIndexedId) {
+        Instant indexedUpTo = SnowflakeIdGenerator.timestampOf(maxIndexedId);
+        Instant rewound = indexedUpTo.minus(Duration.ofMillis(catchUpWindowMillis));
+        if (rewound.toEpochMilli() <= SnowflakeIdGenerator.EPOCH_MILLIS) {
+            return maxIndexedId;
+        }
+        return SnowflakeIdGenerator.lowestIdAt(rewound);
+    }
+
+    private long maxIndexedId() {
+        long max = 0;
+        Sort byIdDesc = new Sort(new SortField(FIELD_ID_SORT, SortField.Type.LONG, true));
+        for (int i = 0; i < shardCount; i++) {
+            SearcherManager manager = searcherManagers.get(i);
+            IndexSearcher searcher = null;
+            try {
+                manager.maybeRefreshBlocking();
+                searcher = manager.acquire();
+                TopDocs top = searcher.search(new MatchAllDocsQuery(), 1, byIdDesc);
+                if (top.scoreDocs.length > 0) {
+                    long id = Long.parseLong(searcher.storedFields().document(top.scoreDocs[0].doc).get(FIELD_ID));
+                    max = Math.max(max, id);
+                }
+            } catch (IOException e) {
+                log.warn("读取索引最大消息 id 失败: shard={}", i, e);
+            } finally {
+                if (searcher != null) {
+                    try {
+                        manager.release(searcher);
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+        return max;
+    }
+
+    private boolean isIndexable(Message message) {
+        return message.getId() != null
+                && message.getContent() != null
+                && !message.getContent().isBlank();
+    }
+
+    private Document toDocument(Message message) {
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_ID, String.valueOf(message.getId()), Field.Store.YES));
+        doc.add(new NumericDocValuesField(FIELD_ID_SORT, message.getId()));
+        doc.add(new LongPoint(FIELD_CHAT_ID, message.getChatId()));
+        doc.add(new TextField(FIELD_CONTENT, message.getContent(), Field.Store.NO));
+        Long createdAt = epochMillis(message.getCreatedAt());
+        doc.add(new NumericDocValuesField(FIELD_CREATED_AT, createdAt != null ? createdAt : System.currentTimeMillis()));
+        return doc;
+    }
+
+    private static Long epochMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : null;
+    }
+
+    private int shardOf(Long chatId) {
+        return (int) Math.floorMod(chatId, (long) shardCount);
+    }
+
+    /**
+     * Index change fanned out to the other instances; createdAt in epoch millis.
+     */
+    record IndexEvent(String origin, String type, Long id, Long chatId, String content, Long createdAt) {
+        static final String INDEX = "index";
+        static final String DELETE_CHAT = "delete-chat";
+    }
+
+    /**
+     * 中英文混合文本分词：标准分词 + 全半角归一 + 小写 + 中日韩字符双字切分，
+     * 单个汉字和词组都能命中。
+     */
+    private static final class ChatTextAnalyzer extends Analyzer {
+
+        private final boolean outputUnigrams;
+
+        ChatTextAnalyzer(boolean outputUnigrams) {
+            this.outputUnigrams = outputUnigrams;
+        }
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            StandardTokenizer tokenizer = new StandardTokenizer();
+            TokenStream stream = new CJKWidthFilter(tokenizer);
+            stream = new LowerCaseFilter(stream);
+            stream = new CJKBigramFilter(stream, CJKBigramFilter.HAN | CJKBigramFilter.HIRAGANA
+                    | CJKBigramFilter.KATAKANA | CJKBigramFilter.HANGUL, outputUnigrams);
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+    }
+}
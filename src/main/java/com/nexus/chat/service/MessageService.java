@@ -14,15 +14,19 @@ import com.nexus.chat.repository.MessageRepository;
 import com.nexus.chat.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -36,6 +40,17 @@ public class MessageService {
     private final MessageReadStatusRepository messageReadStatusRepository;
     private final FileUploadRepository fileUploadRepository;
     private final MessageSequenceService messageSequenceService;
+    private final MessageSearchService messageSearchService;
+    private final UserStatsService userStatsService;
+    private final ChannelService channelService;
+    private final RecentMessageCache recentMessageCache;
+    private final MessagingMetrics metrics;
+    private final SnowflakeIdGenerator idGenerator;
+    private final MessageArchiveService messageArchiveService;
+    private final MessageShardRouter messageShardRouter;
+
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int MAX_PULL_PAGE_SIZE = 200;
 
     /**
      * Send a message with sequence number and client message ID for deduplication.
@@ -44,24 +59,30 @@ public class MessageService {
     @Transactional
     public MessageDTO sendMessage(Long chatId, Long senderId, String content, Message.MessageType messageType,
             String fileUrl, String clientMsgId) {
+        long stageStart = System.nanoTime();
+
         // Verify sender is a member
         if (!chatMemberRepository.existsByChatIdAndUserId(chatId, senderId)) {
             throw new BusinessException("error.chat.not.member");
         }
+        stageStart = metrics.sendStage(MessagingMetrics.SendStage.MEMBERSHIP, stageStart);
 
         // Deduplication: check if message with this clientMsgId already exists
         if (clientMsgId != null && !clientMsgId.isEmpty()) {
-            if (messageRepository.existsByClientMessageId(clientMsgId)) {
+            if (messageShardRouter.read(chatId, () -> messageRepository.existsByClientMessageId(clientMsgId))) {
                 log.warn("重复消息被拒绝: clientMsgId={}", clientMsgId);
                 throw new BusinessException("error.message.duplicate");
             }
         }
+        stageStart = metrics.sendStage(MessagingMetrics.SendStage.DEDUP, stageStart);
 
         // Generate sequence number atomically
         long sequenceNumber = messageSequenceService.nextSequenceNumber(chatId);
+        stageStart = metrics.sendStage(MessagingMetrics.SendStage.SEQUENCE, stageStart);
 
         // Create message
         Message message = new Message();
+        message.setId(idGenerator.nextId());
         message.setChatId(chatId);
         message.setSenderId(senderId);
         message.setContent(content);
@@ -70,78 +91,257 @@ public class MessageService {
         message.setClientMessageId(clientMsgId);
         message.setSequenceNumber(sequenceNumber);
 
-        Message savedMessage = messageRepository.save(message);
-
-        // Create read status for all chat members except sender
-        List<ChatMember> members = chatMemberRepository.findByChatId(chatId);
-        for (ChatMember member : members) {
-            if (!member.getUserId().equals(senderId)) {
-                // Create read status
-                MessageReadStatus readStatus = new MessageReadStatus();
-                readStatus.setMessageId(savedMessage.getId());
-                readStatus.setUserId(member.getUserId());
-                readStatus.setIsRead(false);
-                messageReadStatusRepository.save(readStatus);
-            }
+        // Channels: no per-member rows or counters; unread is derived from the sequence number
+        boolean channel = channelService.isChannel(chatId);
+        // chat_members is not on the message shards, so the recipients are read here
+        List<Long> recipients = channel || !messageShardRouter.isEnabled()
+                ? List.of()
+                : chatMemberRepository.findOtherMemberIds(chatId, senderId);
+        User sender = userRepository.findById(senderId).orElse(null);
+
+        // Unread counters first: with sharding the message commits on its shard before this
+        // transaction does, so nothing that can fail (row locks on chat_members) may follow it
+        if (channel) {
+            channelService.markRead(chatId, senderId, sequenceNumber);
+        } else {
+            // Batch increment unread count for all members except sender (1 query)
+            chatMemberRepository.incrementUnreadForOthers(chatId, senderId);
+            stageStart = metrics.sendStage(MessagingMetrics.SendStage.UNREAD, stageStart);
         }
 
-        // Batch increment unread count for all members except sender (1 query)
-        chatMemberRepository.incrementUnreadForOthers(chatId, senderId);
+        // Message and its read statuses in one transaction on the chat's message shard
+        long insertStart = stageStart;
+        Message savedMessage = messageShardRouter.write(chatId, () -> {
+            // Flush now: the read-status INSERT ... SELECT references the row, and createdAt is set on insert
+            Message saved = messageRepository.saveAndFlush(message);
+            long readStatusStart = metrics.sendStage(MessagingMetrics.SendStage.INSERT, insertStart);
+            if (!channel) {
+                // Create read status for all chat members except sender (1 query)
+                if (messageShardRouter.isEnabled()) {
+                    messageReadStatusRepository.insertUnread(saved.getId(), recipients);
+                } else {
+                    messageReadStatusRepository.insertUnreadForOthers(saved.getId(), chatId, senderId);
+                }
+                metrics.sendStage(MessagingMetrics.SendStage.READ_STATUS, readStatusStart);
+            }
+            return saved;
+        });
+        MessageDTO dto = mapToDTO(savedMessage, sender);
 
-        return mapToDTO(savedMessage);
+        Runnable committed = () -> {
+            messageSearchService.indexCommitted(savedMessage);
+            userStatsService.messageSent(senderId);
+            recentMessageCache.appendCommitted(dto);
+        };
+        if (messageShardRouter.isEnabled()) {
+            // The message has already committed on its shard
+            committed.run();
+        } else {
+            AfterCommit.run(committed);
+        }
+        return dto;
     }
 
+    @Transactional(readOnly = true)
     public List<MessageDTO> getChatMessages(Long chatId, Long userId, int page, int size) {
         // Verify user is a member
         if (!chatMemberRepository.existsByChatIdAndUserId(chatId, userId)) {
             throw new BusinessException("error.chat.not.member");
         }
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").ascending());
-        Page<Message> messages = messageRepository.findByChatId(chatId, pageable);
+        // Chats short enough to fit in the recent-message window are paged in memory
+        RecentMessageCache.Window window = recentWindow(chatId);
+        if (window.complete()) {
+            return window.messages().stream()
+                    .skip((long) Math.max(page, 0) * size)
+                    .limit(size)
+                    .collect(Collectors.toList());
+        }
 
-        return messages.stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return mapToDTOs(messageArchiveService.findPage(chatId, page, size));
+    }
+
+    /**
+     * The newest messages of a chat, oldest first. Usually served from the recent-message cache.
+     */
+    @Transactional(readOnly = true)
+    public List<MessageDTO> getRecentMessages(Long chatId, Long userId, int limit) {
+        if (!chatMemberRepository.existsByChatIdAndUserId(chatId, userId)) {
+            throw new BusinessException("error.chat.not.member");
+        }
+
+        int size = Math.max(1, Math.min(limit, MAX_PULL_PAGE_SIZE));
+        if (size <= recentMessageCache.getCapacity()) {
+            List<MessageDTO> cached = recentWindow(chatId).last(size);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        List<Message> newest = new ArrayList<>(messageShardRouter.read(chatId,
+                () -> messageRepository.findByChatIdOrderByIdDesc(chatId, PageRequest.of(0, size))));
+        Collections.reverse(newest);
+        return mapToDTOs(newest);
+    }
+
+    /**
+     * Messages after a sequence number, oldest first. This is how channel members
+     * catch up after being offline (channels have no offline queue), and works for any chat.
+     */
+    @Transactional(readOnly = true)
+    public List<MessageDTO> getMessagesAfterSequence(Long chatId, Long userId, long afterSeq, int limit) {
+        if (!chatMemberRepository.existsByChatIdAndUserId(chatId, userId)) {
+            throw new BusinessException("error.chat.not.member");
+        }
+
+        int size = Math.max(1, Math.min(limit, MAX_PULL_PAGE_SIZE));
+        List<MessageDTO> cached = recentWindow(chatId).afterSequence(afterSeq);
+        if (cached != null) {
+            return cached.subList(0, Math.min(size, cached.size()));
+        }
+
+        return mapToDTOs(messageArchiveService.findAfterSequence(chatId, afterSeq, size));
+    }
+
+    /**
+     * Full-text search over messages in the user's chats, or in one chat when chatId is given.
+     */
+    @Transactional(readOnly = true)
+    public List<MessageDTO> searchMessages(Long userId, String query, Long chatId,
+                                           int page, int size, boolean byRecency) {
+        List<Long> chatIds;
+        if (chatId != null) {
+            if (!chatMemberRepository.existsByChatIdAndUserId(chatId, userId)) {
+                throw new BusinessException("error.chat.not.member");
+            }
+            chatIds = List.of(chatId);
+        } else {
+            chatIds = chatMemberRepository.findByUserId(userId).stream()
+                    .map(ChatMember::getChatId)
+                    .collect(Collectors.toList());
+        }
+
+        List<Long> ids = messageSearchService.search(chatIds, query, Math.max(page, 0),
+                Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE), byRecency);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Load hits in one query and keep the index ordering
+        Map<Long, Message> messagesById = messageArchiveService.findAllById(ids).stream()
+                .collect(Collectors.toMap(Message::getId, Function.identity()));
+        return mapToDTOs(ids.stream()
+                .map(messagesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
     }
 
     @Transactional
     public void markMessageAsRead(Long messageId, Long userId) {
-        MessageReadStatus readStatus = messageReadStatusRepository
-                .findByMessageIdAndUserId(messageId, userId)
-                .orElseThrow(() -> new RuntimeException("Read status not found"));
+        // Only the id is known, so every message shard is asked (a single lookup when not sharded)
+        Message message = messageShardRouter.readAll(() -> messageRepository.findById(messageId)).stream()
+                .flatMap(Optional::stream)
+                .findFirst()
+                .orElse(null);
+        if (message != null && channelService.isChannel(message.getChatId())) {
+            if (message.getSequenceNumber() != null) {
+                channelService.markRead(message.getChatId(), userId, message.getSequenceNumber());
+            }
+            return;
+        }
+        if (message == null) {
+            throw new RuntimeException("Read status not found");
+        }
 
-        if (!readStatus.getIsRead()) {
+        LocalDateTime readAt = LocalDateTime.now();
+        boolean marked = messageShardRouter.write(message.getChatId(), () -> {
+            MessageReadStatus readStatus = messageReadStatusRepository
+                    .findByMessageIdAndUserId(messageId, userId)
+                    .orElseThrow(() -> new RuntimeException("Read status not found"));
+            if (readStatus.getIsRead()) {
+                return false;
+            }
             readStatus.setIsRead(true);
-            readStatus.setReadAt(LocalDateTime.now());
+            readStatus.setReadAt(readAt);
             messageReadStatusRepository.save(readStatus);
+            return true;
+        }, wasMarked -> messageReadStatusRepository.upsertRead(List.of(messageId), userId, readAt));
 
+        if (marked) {
             // Decrement unread count
-            Message message = messageRepository.findById(messageId).orElse(null);
-            if (message != null) {
-                ChatMember member = chatMemberRepository
-                        .findByChatIdAndUserId(message.getChatId(), userId)
-                        .orElse(null);
-                if (member != null && member.getUnreadCount() > 0) {
-                    member.setUnreadCount(member.getUnreadCount() - 1);
-                    chatMemberRepository.save(member);
-                }
+            ChatMember member = chatMemberRepository
+                    .findByChatIdAndUserId(message.getChatId(), userId)
+                    .orElse(null);
+            if (member != null && member.getUnreadCount() > 0) {
+                member.setUnreadCount(member.getUnreadCount() - 1);
+                chatMemberRepository.save(member);
             }
         }
     }
 
     @Transactional
     public void markChatMessagesAsRead(Long chatId, Long userId) {
+        if (channelService.isChannel(chatId)) {
+            channelService.markAllRead(chatId, userId);
+            return;
+        }
+
         // Bulk mark all unread messages as read in 1 query (was 2000+ queries for 1000 messages)
-        messageReadStatusRepository.bulkMarkAsRead(chatId, userId, LocalDateTime.now());
+        LocalDateTime readAt = LocalDateTime.now();
+        if (messageShardRouter.isMigrating()) {
+            // The new owner is given exactly the rows marked here, as an upsert
+            messageShardRouter.write(chatId, () -> {
+                List<Long> messageIds = messageReadStatusRepository.findUnreadMessageIds(chatId, userId);
+                if (!messageIds.isEmpty()) {
+                    messageReadStatusRepository.markAsRead(messageIds, userId, readAt);
+                }
+                return messageIds;
+            }, messageIds -> messageReadStatusRepository.upsertRead(messageIds, userId, readAt));
+        } else {
+            messageShardRouter.run(chatId, () -> messageReadStatusRepository.bulkMarkAsRead(chatId, userId, readAt));
+        }
 
         // Reset unread count in 1 query (was find + set + save)
         chatMemberRepository.resetUnreadCount(chatId, userId);
     }
 
-    private MessageDTO mapToDTO(Message message) {
-        User sender = userRepository.findById(message.getSenderId()).orElse(null);
+    /**
+     * The chat's recent-message window, loaded from the database on a cache miss.
+     */
+    private RecentMessageCache.Window recentWindow(Long chatId) {
+        RecentMessageCache.Window window = recentMessageCache.get(chatId);
+        if (window != null) {
+            return window;
+        }
+        // Read before loading, so a message committed during the load keeps the stale window out
+        String version = recentMessageCache.version(chatId);
+        List<Message> newest = new ArrayList<>(messageShardRouter.read(chatId,
+                () -> messageRepository.findByChatIdOrderByIdDesc(chatId, PageRequest.of(0, recentMessageCache.getCapacity()))));
+        Collections.reverse(newest);
+        return recentMessageCache.warm(chatId, mapToDTOs(newest), version);
+    }
+
+    /**
+     * Map a batch of messages, loading all senders in one query.
+     */
+    private List<MessageDTO> mapToDTOs(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> senderIds = messages.stream().map(Message::getSenderId).collect(Collectors.toSet());
+        Map<Long, User> sendersById = userRepository.findAllByIdIn(senderIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return messages.stream()
+                .map(message -> mapToDTO(message, sendersById.get(message.getSenderId())))
+                .collect(Collectors.toList());
+    }
+
+    // package-private for the benchmarks module (MessageMappingBenchmark)
+    MessageDTO mapToDTO(Message message) {
+        return mapToDTO(message, userRepository.findById(message.getSenderId()).orElse(null));
+    }
 
+    private MessageDTO mapToDTO(Message message, User sender) {
         MessageDTO dto = new MessageDTO();
         dto.setId(message.getId());
         dto.setChatId(message.getChatId());
@@ -186,6 +386,9 @@ public class MessageService {
                     dto.setMimeType(fileUpload.getMimeType());
                     dto.setDownloadUrl("/api/files/download/" + fileUpload.getFileId());
                     dto.setPreviewUrl("/api/files/preview/" + fileUpload.getFileId());
+                    if (fileUpload.getMimeType() != null && fileUpload.getMimeType().startsWith("image/")) {
+                        dto.setThumbnailUrl("/api/files/thumbnail/" + fileUpload.getFileId());
+                    }
                 });
             }
         }
@@ -0,0 +1,231 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.config.ShardRoutingDataSource;
+import com.nexus.chat.repository.ChatRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 消息分片回填（在线重新分片）
+ *
+ * 配置 message-shard.migration-ring 后，新写入由 MessageShardRouter 双写到新归属分片，
+ * 这里把归属发生变化的会话的存量消息（热表、归档表）和已读状态按 id 分批复制到新归属分片。
+ * 消息复制使用 INSERT IGNORE，已读状态只会从未读变为已读（双写侧标记已读是 upsert，复制时合并），
+ * 与双写并发执行是安全的；进度（会话游标）记录在 Redis，
+ * 实例重启后继续。双写失败的会话（MessageShardRouter 记入重试集合）在每次运行时重新复制，
+ * 只有全量扫描完成且重试集合为空时才报告完成。之后把 message-shard.ring 切换为 migration-ring
+ * 并清空 migration-ring，旧分片上不再归属的数据可在确认后删除。
+ *
+ * 迁移期间消息归档暂停（MessageArchiveService），避免归档与回填交错。
+ */
+@Slf4j
+@Service
+public class MessageShardBackfillService {
+
+    private static final String BACKFILL_LOCK = "lock:message-shard-backfill";
+    private static final String STATE_KEY = "message-shard:backfill";
+    private static final int CHAT_BATCH_SIZE = 500;
+    private static final int RETRY_BATCH_SIZE = 100;
+
+    private static final String MESSAGE_COLUMNS = "id, chat_id, sender_id, content, message_type, "
+            + "file_url, sequence_number, client_message_id, created_at";
+    private static final String MESSAGE_PLACEHOLDERS = "?, ?, ?, ?, ?, ?, ?, ?, ?";
+
+    private final MessageShardRouter shards;
+    private final ObjectProvider<ShardRoutingDataSource> shardRoutingDataSource;
+    private final ChatRepository chatRepository;
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${message-shard.backfill-batch-size:1000}")
+    private int batchSize;
+
+    public MessageShardBackfillService(MessageShardRouter shards,
+                                       ObjectProvider<ShardRoutingDataSource> shardRoutingDataSource,
+                                       ChatRepository chatRepository,
+                                       StringRedisTemplate redisTemplate) {
+        this.shards = shards;
+        this.shardRoutingDataSource = shardRoutingDataSource;
+        this.chatRepository = chatRepository;
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 迁移期间定期运行，同一时间只有一个实例执行；全量扫描只做一次，之后只重试双写失败的会话
+     */
+    @Scheduled(initialDelayString = "${message-shard.backfill-interval-ms:60000}",
+               fixedDelayString = "${message-shard.backfill-interval-ms:60000}")
+    public void backfill() {
+        if (!shards.isMigrating()) {
+            return;
+        }
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(BACKFILL_LOCK, "1", Duration.ofHours(1));
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+
+        HashOperations<String, Object, Object> state = redisTemplate.opsForHash();
+        String signature = shards.migrationSignature();
+        long start = System.currentTimeMillis();
+        long copied = 0;
+        try {
+            // A different migration starts from scratch
+            if (!signature.equals(state.get(STATE_KEY, "signature"))) {
+                redisTemplate.delete(List.of(STATE_KEY, MessageShardRouter.DUAL_WRITE_RETRY_KEY));
+                state.put(STATE_KEY, "signature", signature);
+            }
+            if (!"true".equals(state.get(STATE_KEY, "scanned"))) {
+                copied += scan(state, start);
+            }
+            copied += retryFailedDualWrites();
+
+            Long pending = redisTemplate.opsForSet().size(MessageShardRouter.DUAL_WRITE_RETRY_KEY);
+            if (pending != null && pending > 0) {
+                state.delete(STATE_KEY, "done");
+                log.warn("消息分片回填: 仍有 {} 个会话待重试, 暂不可切换 ring", pending);
+            } else if (!"true".equals(state.get(STATE_KEY, "done"))) {
+                state.put(STATE_KEY, "done", "true");
+                log.info("消息分片回填完成, 耗时 {}ms; 可将 message-shard.ring 切换为 migration-ring",
+                        System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            log.error("消息分片回填失败: 本轮已复制 {} 行, cursor={}", copied, state.get(STATE_KEY, "cursor"), e);
+        } finally {
+            redisTemplate.delete(BACKFILL_LOCK);
+        }
+    }
+
+    /**
+     * 按会话游标全量扫描一遍，返回复制的行数
+     */
+    private long scan(HashOperations<String, Object, Object> state, long start) {
+        Object cursor = state.get(STATE_KEY, "cursor");
+        long afterChatId = cursor != null ? Long.parseLong(cursor.toString()) : 0L;
+        long copied = 0;
+
+        LocalDateTime now = LocalDateTime.now();
+        while (true) {
+            List<Long> chatIds = chatRepository.findIdsCreatedBefore(
+                    now, afterChatId, PageRequest.of(0, CHAT_BATCH_SIZE));
+            if (chatIds.isEmpty()) {
+                break;
+            }
+            for (Long chatId : chatIds) {
+                String from = shards.shardOf(chatId);
+                String to = shards.migrationShardOf(chatId);
+                if (!from.equals(to)) {
+                    copied += copyChat(chatId, from, to);
+                }
+            }
+            afterChatId = chatIds.get(chatIds.size() - 1);
+            state.put(STATE_KEY, "cursor", String.valueOf(afterChatId));
+            redisTemplate.expire(BACKFILL_LOCK, Duration.ofHours(1));
+        }
+        state.put(STATE_KEY, "scanned", "true");
+        log.info("消息分片回填全量扫描完成: {} 行, 耗时 {}ms", copied, System.currentTimeMillis() - start);
+        return copied;
+    }
+
+    /**
+     * 重新复制双写失败的会话；复制失败的放回集合，下次运行再试
+     */
+    private long retryFailedDualWrites() {
+        long copied = 0;
+        List<String> chatIds = redisTemplate.opsForSet().pop(MessageShardRouter.DUAL_WRITE_RETRY_KEY, RETRY_BATCH_SIZE);
+        while (chatIds != null && !chatIds.isEmpty()) {
+            for (int i = 0; i < chatIds.size(); i++) {
+                Long chatId = Long.valueOf(chatIds.get(i));
+                try {
+                    String from = shards.shardOf(chatId);
+                    String to = shards.migrationShardOf(chatId);
+                    if (!from.equals(to)) {
+                        copied += copyChat(chatId, from, to);
+                    }
+                } catch (RuntimeException e) {
+                    redisTemplate.opsForSet().add(MessageShardRouter.DUAL_WRITE_RETRY_KEY,
+                            chatIds.subList(i, chatIds.size()).toArray(new String[0]));
+                    throw e;
+                }
+            }
+            redisTemplate.expire(BACKFILL_LOCK, Duration.ofHours(1));
+            chatIds = redisTemplate.opsForSet().pop(MessageShardRouter.DUAL_WRITE_RETRY_KEY, RETRY_BATCH_SIZE);
+        }
+        return copied;
+    }
+
+    /**
+     * 复制一个会话的消息、归档消息和已读状态，按 id 游标分批，每批一条批量插入
+     */
+    private long copyChat(Long chatId, String from, String to) {
+        ShardRoutingDataSource routing = shardRoutingDataSource.getObject();
+        JdbcTemplate source = new JdbcTemplate(routing.shard(from));
+        JdbcTemplate target = new JdbcTemplate(routing.shard(to));
+
+        long copied = copyMessages(source, target, "messages", chatId)
+                + copyMessages(source, target, "messages_archive", chatId);
+
+        String select = "SELECT rs.id, rs.message_id, rs.user_id, rs.is_read, rs.read_at "
+                + "FROM message_read_status rs JOIN messages m ON m.id = rs.message_id "
+                + "WHERE m.chat_id = ? AND rs.id > ? ORDER BY rs.id LIMIT ?";
+        // Read status ids are per shard, the target assigns its own. A read only ever goes from
+        // unread to read, so a row already on the target keeps whichever side has read it
+        String insert = "INSERT INTO message_read_status (message_id, user_id, is_read, read_at) "
+                + "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE is_read = is_read OR VALUES(is_read), "
+                + "read_at = COALESCE(read_at, VALUES(read_at))";
+        long afterId = 0L;
+        while (true) {
+            List<Object[]> rows = source.query(select, (rs, i) -> new Object[]{
+                    rs.getLong(1), rs.getObject(2), rs.getObject(3), rs.getObject(4), rs.getObject(5)},
+                    chatId, afterId, batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            target.batchUpdate(insert, rows.stream()
+                    .map(row -> new Object[]{row[1], row[2], row[3], row[4]})
+                    .toList());
+            copied += rows.size();
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+            if (rows.size() < batchSize) {
+                break;
+            }
+        }
+        return copied;
+    }
+
+    private long copyMessages(JdbcTemplate source, JdbcTemplate target, String table, Long chatId) {
+        String select = "SELECT " + MESSAGE_COLUMNS + " FROM " + table
+                + " WHERE chat_id = ? AND id > ? ORDER BY id LIMIT ?";
+        String insert = "INSERT IGNORE INTO " + table + " (" + MESSAGE_COLUMNS + ") VALUES (" + MESSAGE_PLACEHOLDERS + ")";
+        long copied = 0;
+        long afterId = 0L;
+        while (true) {
+            List<Object[]> rows = source.query(select, (rs, i) -> {
+                Object[] row = new Object[9];
+                for (int column = 0; column < row.length; column++) {
+                    row[column] = rs.getObject(column + 1);
+                }
+                return row;
+            }, chatId, afterId, batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            target.batchUpdate(insert, rows);
+            copied += rows.size();
+            afterId = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+            if (rows.size() < batchSize) {
+                break;
+            }
+        }
+        return copied;
+    }
+}
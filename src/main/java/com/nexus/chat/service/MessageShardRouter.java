@@ -0,0 +1,290 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.config.MessageShardContext;
+import com.nexus.chat.config.MessageShardProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 消息分片路由
+ *
+ * messages / messages_archive / message_read_status 按 chatId 分布在一致性哈希环上的分片库中
+ * （分片 "main" 即应用主库），消息存储的读写都经由这里：
+ * - read / write / run：绑定会话所在分片，在该分片上新开事务执行（调用方的主库事务挂起）；
+ * - readByChats：按分片分组后并行查询（scatter-gather）并合并结果；
+ * - readAll：不以会话为键的查询（按消息 id、按发送者）在所有分片上并行执行。
+ *
+ * 重新分片时配置 migration-ring：读取仍走当前环，写入同时作用于当前归属和新归属分片（双写），
+ * MessageShardBackfillService 把存量数据回填到新归属分片，完成后把 ring 切换为 migration-ring。
+ * 双写失败的会话记入 Redis 集合，由回填任务重新复制；Redis 不可用时先记在本地，稍后补记。
+ * 当前归属分片提交后写入就算成功，双写侧的失败不会再抛给调用方。
+ *
+ * 未启用分片时所有方法直接在调用方的事务中执行，与单库行为一致。
+ */
+@Slf4j
+@Service
+public class MessageShardRouter {
+
+    // Chats whose dual write failed; MessageShardBackfillService copies them again
+    static final String DUAL_WRITE_RETRY_KEY = "message-shard:backfill:retry";
+
+    private final MessageShardProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final ThreadPoolTaskExecutor shardQueryExecutor;
+    private final TransactionTemplate writeTemplate;
+    private final TransactionTemplate readTemplate;
+
+    // Chats whose dual write failed while Redis was unavailable too
+    private final Set<Long> unrecordedRetries = ConcurrentHashMap.newKeySet();
+
+    private ConsistentHashRing ring;
+    private ConsistentHashRing migrationRing;
+
+    public MessageShardRouter(MessageShardProperties properties,
+                              StringRedisTemplate redisTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Qualifier("shardQueryExecutor") ThreadPoolTaskExecutor shardQueryExecutor) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.shardQueryExecutor = shardQueryExecutor;
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        this.writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTemplate = new TransactionTemplate(transactionManager);
+        this.readTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        ring = ringOf(properties.getRing());
+        if (!properties.getMigrationRing().isEmpty()) {
+            migrationRing = ringOf(properties.getMigrationRing());
+            log.warn("消息分片迁移中: {} -> {}, 写入双写到新归属分片", properties.getRing(), properties.getMigrationRing());
+        }
+    }
+
+    private ConsistentHashRing ringOf(List<String> shards) {
+        for (String shard : shards) {
+            if (!MessageShardContext.MAIN.equals(shard) && !properties.getShards().containsKey(shard)) {
+                throw new IllegalStateException("message-shard ring references an unknown shard: " + shard);
+            }
+        }
+        return new ConsistentHashRing(shards, properties.getVirtualNodes());
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    public boolean isMigrating() {
+        return migrationRing != null;
+    }
+
+    /**
+     * Shards of the current ring (just the main database when sharding is off).
+     */
+    public List<String> shards() {
+        return ring != null ? ring.shards() : List.of(MessageShardContext.MAIN);
+    }
+
+    public String shardOf(Long chatId) {
+        return ring != null ? ring.owner(chatId) : MessageShardContext.MAIN;
+    }
+
+    /**
+     * The chat's owner on the migration ring, or null when no migration is in progress.
+     */
+    public String migrationShardOf(Long chatId) {
+        return migrationRing != null ? migrationRing.owner(chatId) : null;
+    }
+
+    /**
+     * Migration identity (rings before and after), to tell one backfill from the next.
+     */
+    public String migrationSignature() {
+        return String.join(",", properties.getRing()) + "->" + String.join(",", properties.getMigrationRing());
+    }
+
+    /**
+     * Read-only work on the chat's shard.
+     */
+    public <T> T read(Long chatId, Supplier<T> work) {
+        return ring == null ? work.get() : onShard(ring.owner(chatId), readTemplate, work);
+    }
+
+    /**
+     * Read-only work on a given shard (scans that visit each shard in turn).
+     */
+    public <T> T readOn(String shard, Supplier<T> work) {
+        return ring == null ? work.get() : onShard(shard, readTemplate, work);
+    }
+
+    /**
+     * Work on the chat's shard, repeated on its new owner while resharding.
+     * The work must only touch message store tables.
+     */
+    public <T> T write(Long chatId, Supplier<T> work) {
+        return write(chatId, work, result -> work.get());
+    }
+
+    /**
+     * Work on the chat's shard; while resharding, the new owner gets migrationWork instead, with
+     * the owner's result (for writes that must be applied differently there, e.g. as an upsert
+     * because the row may not have been backfilled yet).
+     */
+    public <T> T write(Long chatId, Supplier<T> work, Consumer<T> migrationWork) {
+        if (ring == null) {
+            return work.get();
+        }
+        String owner = ring.owner(chatId);
+        T result = onShard(owner, writeTemplate, work);
+        if (migrationRing != null) {
+            String target = migrationRing.owner(chatId);
+            if (!target.equals(owner)) {
+                try {
+                    onShard(target, writeTemplate, () -> {
+                        migrationWork.accept(result);
+                        return null;
+                    });
+                } catch (RuntimeException e) {
+                    // 当前归属分片已提交，不能再让本次写入失败；由回填任务补齐新归属分片
+                    log.error("消息分片双写失败: chatId={}, shard={}, 已记入回填重试", chatId, target, e);
+                    recordDualWriteFailure(chatId);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void recordDualWriteFailure(Long chatId) {
+        try {
+            redisTemplate.opsForSet().add(DUAL_WRITE_RETRY_KEY, String.valueOf(chatId));
+        } catch (RuntimeException e) {
+            log.error("记录双写重试失败: chatId={}, 稍后重新记录", chatId, e);
+            unrecordedRetries.add(chatId);
+        }
+    }
+
+    /**
+     * Retry-set entries that could not be written to Redis when the dual write failed.
+     */
+    @Scheduled(fixedDelayString = "${message-shard.retry-flush-interval-ms:10000}")
+    public void flushDualWriteFailures() {
+        for (Long chatId : unrecordedRetries) {
+            try {
+                redisTemplate.opsForSet().add(DUAL_WRITE_RETRY_KEY, String.valueOf(chatId));
+                unrecordedRetries.remove(chatId);
+            } catch (RuntimeException e) {
+                log.warn("记录双写重试仍然失败: {} 个会话待记录, {}", unrecordedRetries.size(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    public void run(Long chatId, Runnable work) {
+        write(chatId, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Scatter-gather over the shards owning the given chats: each shard gets its own chat ids,
+     * shards are queried in parallel and the results concatenated (in no particular order).
+     */
+    public <T> List<T> readByChats(Collection<Long> chatIds, Function<List<Long>, List<T>> work) {
+        if (chatIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (ring == null) {
+            return work.apply(List.copyOf(chatIds));
+        }
+        Map<String, List<Long>> chatIdsByShard = chatIds.stream()
+                .distinct()
+                .collect(Collectors.groupingBy(ring::owner, LinkedHashMap::new, Collectors.toList()));
+        List<Supplier<List<T>>> tasks = new ArrayList<>(chatIdsByShard.size());
+        chatIdsByShard.forEach((shard, ids) -> tasks.add(() -> onShard(shard, readTemplate, () -> work.apply(ids))));
+
+        List<T> results = new ArrayList<>();
+        scatter(tasks).forEach(results::addAll);
+        return results;
+    }
+
+    /**
+     * The same read on every shard in parallel, one result per shard.
+     */
+    public <T> List<T> readAll(Supplier<T> work) {
+        if (ring == null) {
+            return Collections.singletonList(work.get());
+        }
+        return scatter(ring.shards().stream()
+                .map(shard -> (Supplier<T>) () -> onShard(shard, readTemplate, work))
+                .collect(Collectors.toList()));
+    }
+
+    private <T> List<T> scatter(List<Supplier<T>> tasks) {
+        if (tasks.size() == 1) {
+            return Collections.singletonList(tasks.get(0).get());
+        }
+        // Replica routing reads the acting user from the SecurityContext
+        SecurityContext context = SecurityContextHolder.getContext();
+        List<CompletableFuture<T>> futures = tasks.stream()
+                .map(task -> CompletableFuture.supplyAsync(() -> {
+                    SecurityContext previous = SecurityContextHolder.getContext();
+                    SecurityContextHolder.setContext(context);
+                    try {
+                        return task.get();
+                    } finally {
+                        SecurityContextHolder.setContext(previous);
+                    }
+                }, shardQueryExecutor))
+                .collect(Collectors.toList());
+
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        return results;
+    }
+
+    private <T> T onShard(String shard, TransactionTemplate template, Supplier<T> work) {
+        String previous = MessageShardContext.bind(shard);
+        try {
+            return template.execute(status -> work.get());
+        } finally {
+            MessageShardContext.restore(previous);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.nexus.chat.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 消息链路指标（Micrometer，经 /actuator/prometheus 暴露）
+ *
+ * - chat.message.send.stage{stage}：sendMessage 各阶段耗时
+ * - chat.fanout.recipients / chat.fanout.duration{type}：逐成员投递的人数与耗时
+ * - chat.relay.published{kind} / chat.relay.consumed{result} / chat.relay.lag：Redis 中继
+ * - chat.delivery.hop{hop} / chat.delivery.latency{path}：消息从收到发送帧到交给接收方会话的分段与端到端耗时
+ * - chat.offline.queue.depth / chat.offline.drained：离线队列
+ * - chat.presence.*：在线用户数与会话连接/断开
+ * - cache.gets{cache,result}：Redis 缓存命中率
+ *
+ * 所有计量器在启动时或首次使用时注册，热路径上只做记录。
+ */
+@Component
+public class MessagingMetrics {
+
+    public enum SendStage {
+        MEMBERSHIP, DEDUP, SEQUENCE, INSERT, READ_STATUS, UNREAD;
+
+        final String tag = name().toLowerCase().replace('_', '-');
+    }
+
+    public enum FanoutType {
+        MESSAGE, TYPING, READ;
+
+        final String tag = name().toLowerCase();
+    }
+
+    public enum DeliveryHop {
+        INBOUND, PERSIST, PUBLISH, RELAY, OUTBOUND;
+
+        final String tag = name().toLowerCase();
+    }
+
+    public enum DeliveryPath {
+        LOCAL, RELAY, TOPIC;
+
+        final String tag = name().toLowerCase();
+    }
+
+    private final MeterRegistry registry;
+    private final Map<SendStage, Timer> sendStages = new EnumMap<>(SendStage.class);
+    private final Map<FanoutType, DistributionSummary> fanoutRecipients = new EnumMap<>(FanoutType.class);
+    private final Map<FanoutType, Timer> fanoutDurations = new EnumMap<>(FanoutType.class);
+    private final Map<DeliveryHop, Timer> deliveryHops = new EnumMap<>(DeliveryHop.class);
+    private final Map<DeliveryPath, Timer> deliveryLatencies = new EnumMap<>(DeliveryPath.class);
+    private final Counter relayPublishedUser;
+    private final Counter relayPublishedTopic;
+    private final Counter relayConsumedOwn;
+    private final Counter relayConsumedDelivered;
+    private final Counter relayConsumedIgnored;
+    private final Counter relayConsumedFailed;
+    private final Timer relayLag;
+    private final DistributionSummary offlineQueueDepth;
+    private final DistributionSummary offlineDrained;
+    private final Counter sessionsConnected;
+    private final Counter sessionsDisconnected;
+    private final Map<String, Counter> cacheHits = new ConcurrentHashMap<>();
+    private final Map<String, Counter> cacheMisses = new ConcurrentHashMap<>();
+
+    public MessagingMetrics(MeterRegistry registry, ObjectProvider<SimpUserRegistry> userRegistry) {
+        this.registry = registry;
+        for (SendStage stage : SendStage.values()) {
+            sendStages.put(stage, Timer.builder("chat.message.send.stage")
+                    .description("Time spent in each stage of MessageService.sendMessage")
+                    .tag("stage", stage.tag)
+                    .register(registry));
+        }
+        for (FanoutType type : FanoutType.values()) {
+            fanoutRecipients.put(type, DistributionSummary.builder("chat.fanout.recipients")
+                    .description("Members a WebSocket event was delivered to one by one")
+                    .tag("type", type.tag)
+                    .register(registry));
+            fanoutDurations.put(type, Timer.builder("chat.fanout.duration")
+                    .description("Time to deliver a WebSocket event to every member")
+                    .tag("type", type.tag)
+                    .register(registry));
+        }
+        for (DeliveryHop hop : DeliveryHop.values()) {
+            deliveryHops.put(hop, Timer.builder("chat.delivery.hop")
+                    .description("Time a traced chat message spent in each delivery hop")
+                    .tag("hop", hop.tag)
+                    .register(registry));
+        }
+        for (DeliveryPath path : DeliveryPath.values()) {
+            deliveryLatencies.put(path, Timer.builder("chat.delivery.latency")
+                    .description("SEND frame received to message handed to the recipient's session")
+                    .tag("path", path.tag)
+                    .register(registry));
+        }
+        relayPublishedUser = relayPublished("user");
+        relayPublishedTopic = relayPublished("topic");
+        relayConsumedOwn = relayConsumed("own");
+        relayConsumedDelivered = relayConsumed("delivered");
+        relayConsumedIgnored = relayConsumed("ignored");
+        relayConsumedFailed = relayConsumed("failed");
+        relayLag = Timer.builder("chat.relay.lag")
+                .description("Publish-to-consume delay of relayed messages (wall clock across instances)")
+                .register(registry);
+        offlineQueueDepth = DistributionSummary.builder("chat.offline.queue.depth")
+                .description("Length of a user's offline queue after an enqueue")
+                .register(registry);
+        offlineDrained = DistributionSummary.builder("chat.offline.drained")
+                .description("Messages delivered from the offline queue when a user reconnects")
+                .register(registry);
+        // Looked up lazily: the WebSocket configuration itself depends on services that use these metrics
+        Gauge.builder("chat.presence.local.users", userRegistry,
+                        provider -> provider.getObject().getUserCount())
+                .description("Users with a STOMP session on this instance")
+                .register(registry);
+        sessionsConnected = presenceSessions("connect");
+        sessionsDisconnected = presenceSessions("disconnect");
+    }
+
+    // ==================== Send pipeline ====================
+
+    /**
+     * Record a send stage that began at {@code startNanos}.
+     *
+     * @return the current {@link System#nanoTime()}, the start of the next stage
+     */
+    public long sendStage(SendStage stage, long startNanos) {
+        long now = System.nanoTime();
+        sendStages.get(stage).record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    // ==================== Fan-out ====================
+
+    public void fanout(FanoutType type, int recipients, long startNanos) {
+        fanoutRecipients.get(type).record(recipients);
+        fanoutDurations.get(type).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // ==================== Delivery tracing ====================
+
+    public void deliveryHop(DeliveryHop hop, long micros) {
+        deliveryHops.get(hop).record(Math.max(0, micros), TimeUnit.MICROSECONDS);
+    }
+
+    public void deliveryLatency(DeliveryPath path, long micros) {
+        deliveryLatencies.get(path).record(Math.max(0, micros), TimeUnit.MICROSECONDS);
+    }
+
+    // ==================== Relay ====================
+
+    public void relayPublished(boolean topic) {
+        (topic ? relayPublishedTopic : relayPublishedUser).increment();
+    }
+
+    public void relayOwnMessage() {
+        relayConsumedOwn.increment();
+    }
+
+    public void relayConsumed(boolean delivered, long publishedAtMillis) {
+        (delivered ? relayConsumedDelivered : relayConsumedIgnored).increment();
+        if (publishedAtMillis > 0) {
+            relayLag.record(Math.max(0, System.currentTimeMillis() - publishedAtMillis), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void relayFailed() {
+        relayConsumedFailed.increment();
+    }
+
+    // ==================== Offline queue ====================
+
+    public void offlineQueued(long depth) {
+        offlineQueueDepth.record(depth);
+    }
+
+    public void offlineDrained(int count) {
+        offlineDrained.record(count);
+    }
+
+    // ==================== Presence ====================
+
+    public void session(boolean connected) {
+        (connected ? sessionsConnected : sessionsDisconnected).increment();
+    }
+
+    /**
+     * Users online on any instance, read on each scrape.
+     */
+    public void onlineUsersGauge(Supplier<Number> onlineUsers) {
+        Gauge.builder("chat.presence.online.users", onlineUsers)
+                .description("Users online across all instances")
+                .register(registry);
+    }
+
+    // ==================== Caches ====================
+
+    public void cacheGet(String cache, boolean hit) {
+        Map<String, Counter> counters = hit ? cacheHits : cacheMisses;
+        counters.computeIfAbsent(cache, name -> Counter.builder("cache.gets")
+                .description("Cache lookups")
+                .tag("cache", name)
+                .tag("result", hit ? "hit" : "miss")
+                .register(registry))
+                .increment();
+    }
+
+    private Counter presenceSessions(String event) {
+        return Counter.builder("chat.presence.sessions")
+                .description("WebSocket sessions opened and closed on this instance")
+                .tag("event", event)
+                .register(registry);
+    }
+
+    private Counter relayPublished(String kind) {
+        return Counter.builder("chat.relay.published")
+                .description("Messages published to the cross-instance Redis relay")
+                .tag("kind", kind)
+                .register(registry);
+    }
+
+    private Counter relayConsumed(String result) {
+        return Counter.builder("chat.relay.consumed")
+                .description("Relay messages received from Redis, by outcome")
+                .tag("result", result)
+                .register(registry);
+    }
+}
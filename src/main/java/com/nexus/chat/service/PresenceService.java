@@ -1,5 +1,6 @@
 package com.nexus.chat.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -19,6 +20,12 @@ import java.util.Set;
 public class PresenceService {
 
     private final RedisCacheService redisCacheService;
+    private final MessagingMetrics metrics;
+
+    @PostConstruct
+    void registerMetrics() {
+        metrics.onlineUsersGauge(redisCacheService::getOnlineUserCount);
+    }
 
     /**
      * Register a user as online when they connect via WebSocket.
@@ -27,6 +34,7 @@ public class PresenceService {
         redisCacheService.registerWsSession(userId, sessionId);
         // instanceId is "default" for single-instance; Phase 5 will pass actual instance ID
         redisCacheService.setUserOnline(userId, sessionId, "default");
+        metrics.session(true);
         log.info("用户上线: userId={}, sessionId={}", userId, sessionId);
     }
 
@@ -44,6 +52,7 @@ public class PresenceService {
      */
     public boolean userDisconnected(Long userId, String sessionId) {
         redisCacheService.unregisterWsSession(userId, sessionId);
+        metrics.session(false);
         Set<String> remainingSessions = redisCacheService.getWsSessions(userId);
 
         if (remainingSessions == null || remainingSessions.isEmpty()) {
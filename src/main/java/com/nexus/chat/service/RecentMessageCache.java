@@ -0,0 +1,283 @@
+package com.nexus.chat.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nexus.chat.config.BoundedCache;
+import com.nexus.chat.dto.MessageDTO;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 会话最近消息缓存（热消息环形缓冲）
+ *
+ * 每个会话最近 N 条消息（按 id 升序）保存在 Redis 列表 chat:recent:{chatId} 中供所有实例共享，
+ * 本地再按会话做一层 LRU 缓存。发送消息在事务提交后把会话的提交版本
+ * chat:recent-version:{chatId} 设为该消息 id 并追加到列表（只追加到已预热的列表，见 recent_push.lua），
+ * 发送失败或尚未提交的消息不影响版本。打开会话读取最近历史时通常不需要查库：
+ * - 本地条目的版本与 Redis 中的提交版本一致时直接使用（一次 GET）；
+ * - 否则读取 Redis 列表（一次 LRANGE）并刷新本地条目；
+ * - 列表不存在时由调用方读取提交版本、从数据库加载最近 N 条并写回（见 recent_warm.lua 的并发保护）。
+ *
+ * 窗口中少于 N 条时即为该会话的全部历史。
+ */
+@Slf4j
+@Service
+public class RecentMessageCache {
+
+    private static final String RECENT_PREFIX = "chat:recent:";
+    private static final String VERSION_PREFIX = "chat:recent-version:";
+    private static final String COMMITTED_SEQ_PREFIX = "chat:recent-seq:";
+    // Commit version of a chat with no committed message since the keys expired
+    private static final String NO_VERSION = "0";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisScript<String> pushScript;
+    private final RedisScript<Long> warmScript;
+    private final ObjectMapper objectMapper;
+
+    @Value("${message-cache.capacity:50}")
+    private int capacity;
+
+    @Value("${message-cache.max-chats:10000}")
+    private int maxChats;
+
+    @Value("${message-cache.ttl:30m}")
+    private Duration ttl;
+
+    // chatId -> 最近消息窗口
+    private BoundedCache<Long, Window> windows;
+
+    /**
+     * Recent messages of a chat, ascending by id. {@code complete} means the chat has no older messages;
+     * {@code version} is the chat's commit version the window was loaded at.
+     */
+    public record Window(List<MessageDTO> messages, boolean complete, long loadedAt, String version) {
+
+        long lastSequenceNumber() {
+            return messages.stream()
+                    .map(MessageDTO::getSequenceNumber)
+                    .filter(seq -> seq != null)
+                    .mapToLong(Long::longValue)
+                    .max()
+                    .orElse(0L);
+        }
+
+        /**
+         * The last {@code limit} messages, or null if the window is too short to know them.
+         */
+        public List<MessageDTO> last(int limit) {
+            if (limit > messages.size() && !complete) {
+                return null;
+            }
+            return messages.subList(Math.max(0, messages.size() - limit), messages.size());
+        }
+
+        /**
+         * Messages created after {@code since}, or null if some of them may be older than the window.
+         */
+        public List<MessageDTO> since(LocalDateTime since) {
+            if (!complete && (messages.isEmpty() || messages.get(0).getCreatedAt().isAfter(since))) {
+                return null;
+            }
+            return messages.stream()
+                    .filter(m -> m.getCreatedAt().isAfter(since))
+                    .toList();
+        }
+
+        /**
+         * Messages with a sequence number above {@code afterSeq}, or null if the window does not reach back that far.
+         */
+        public List<MessageDTO> afterSequence(long afterSeq) {
+            if (!complete) {
+                Long oldest = messages.isEmpty() ? null : messages.get(0).getSequenceNumber();
+                if (oldest == null || oldest > afterSeq + 1) {
+                    return null;
+                }
+            }
+            return messages.stream()
+                    .filter(m -> m.getSequenceNumber() != null && m.getSequenceNumber() > afterSeq)
+                    .sorted(Comparator.comparing(MessageDTO::getSequenceNumber))
+                    .toList();
+        }
+    }
+
+    public RecentMessageCache(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.pushScript = RedisScript.of(new ClassPathResource("scripts/recent_push.lua"), String.class);
+        this.warmScript = RedisScript.of(new ClassPathResource("scripts/recent_warm.lua"), Long.class);
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    @PostConstruct
+    void init() {
+        windows = new BoundedCache<>(maxChats);
+    }
+
+    /**
+     * Number of most recent messages kept per chat (the size of a warm-up load).
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * The chat's current commit version; read it before loading a window from the database for {@link #warm}.
+     */
+    public String version(Long chatId) {
+        String version = redisTemplate.opsForValue().get(VERSION_PREFIX + chatId);
+        return version != null ? version : NO_VERSION;
+    }
+
+    /**
+     * The chat's cached window, or null when it has to be loaded from the database via {@link #warm}.
+     */
+    public Window get(Long chatId) {
+        try {
+            // Read before the list: a list newer than the version only costs a reload later
+            String version = version(chatId);
+            long now = System.currentTimeMillis();
+            Window local = windows.get(chatId);
+            if (isCurrent(local, version, now)) {
+                return local;
+            }
+
+            List<String> items = redisTemplate.opsForList().range(RECENT_PREFIX + chatId, 0, -1);
+            if (items == null || items.isEmpty()) {
+                windows.remove(chatId);
+                return null;
+            }
+            Window window = toWindow(readAll(items), now, version);
+            windows.put(chatId, window);
+            return window;
+        } catch (Exception e) {
+            log.error("读取最近消息缓存失败: chatId={}, {}", chatId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Cached windows for several chats, local entries only (validated with one MGET).
+     * Chats without a current local window are absent from the result.
+     */
+    public Map<Long, Window> getLocal(List<Long> chatIds) {
+        Map<Long, Window> result = new HashMap<>();
+        if (chatIds.isEmpty()) {
+            return result;
+        }
+        try {
+            List<String> versions = redisTemplate.opsForValue().multiGet(chatIds.stream()
+                    .map(chatId -> VERSION_PREFIX + chatId)
+                    .toList());
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < chatIds.size(); i++) {
+                Window local = windows.get(chatIds.get(i));
+                String version = versions != null && versions.get(i) != null ? versions.get(i) : NO_VERSION;
+                if (isCurrent(local, version, now)) {
+                    result.put(chatIds.get(i), local);
+                }
+            }
+        } catch (Exception e) {
+            log.error("读取最近消息缓存失败: {}", e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Store the newest {@code capacity} messages of a chat, loaded from the database (ascending by id)
+     * after reading {@code version}. Skipped when a message was committed after that.
+     */
+    public Window warm(Long chatId, List<MessageDTO> newest, String version) {
+        Window window = toWindow(newest, System.currentTimeMillis(), version);
+        try {
+            List<String> args = new ArrayList<>(newest.size() + 3);
+            args.add(version);
+            args.add(String.valueOf(window.lastSequenceNumber()));
+            args.add(String.valueOf(ttl.toSeconds()));
+            for (MessageDTO message : window.messages()) {
+                args.add(objectMapper.writeValueAsString(message));
+            }
+            Long stored = redisTemplate.execute(warmScript, keys(chatId), args.toArray());
+            if (Long.valueOf(1).equals(stored)) {
+                windows.put(chatId, window);
+            }
+        } catch (Exception e) {
+            log.error("写入最近消息缓存失败: chatId={}, {}", chatId, e.getMessage());
+        }
+        return window;
+    }
+
+    /**
+     * 已提交的新消息：追加到 Redis 列表和本地窗口
+     */
+    public void appendCommitted(MessageDTO message) {
+        Long chatId = message.getChatId();
+        String version = String.valueOf(message.getId());
+        String previous;
+        try {
+            previous = redisTemplate.execute(pushScript, keys(chatId),
+                    objectMapper.writeValueAsString(message),
+                    String.valueOf(capacity), String.valueOf(ttl.toSeconds()),
+                    String.valueOf(message.getSequenceNumber() != null ? message.getSequenceNumber() : 0L),
+                    version);
+        } catch (Exception e) {
+            log.error("追加最近消息缓存失败: chatId={}, {}", chatId, e.getMessage());
+            windows.remove(chatId);
+            return;
+        }
+        // Only a window that saw every earlier commit can take this one
+        windows.computeIfPresent(chatId, (id, window) -> {
+            if (!window.version().equals(previous)) {
+                return null;
+            }
+            List<MessageDTO> messages = new ArrayList<>(window.messages());
+            messages.add(message);
+            return toWindow(messages, window.loadedAt(), window.complete(), version);
+        });
+    }
+
+    private boolean isCurrent(Window window, String version, long now) {
+        return window != null && now - window.loadedAt() < ttl.toMillis() && window.version().equals(version);
+    }
+
+    private static List<String> keys(Long chatId) {
+        return List.of(RECENT_PREFIX + chatId, VERSION_PREFIX + chatId, COMMITTED_SEQ_PREFIX + chatId);
+    }
+
+    private Window toWindow(List<MessageDTO> messages, long loadedAt, String version) {
+        return toWindow(messages, loadedAt, messages.size() < capacity, version);
+    }
+
+    private Window toWindow(List<MessageDTO> messages, long loadedAt, boolean complete, String version) {
+        List<MessageDTO> sorted = new ArrayList<>(messages);
+        // 并发发送的追加顺序可能与 id 顺序不同
+        sorted.sort(Comparator.comparing(MessageDTO::getId));
+        if (sorted.size() > capacity) {
+            sorted = sorted.subList(sorted.size() - capacity, sorted.size());
+            complete = false;
+        }
+        return new Window(List.copyOf(sorted), complete, loadedAt, version);
+    }
+
+    private List<MessageDTO> readAll(List<String> items) throws JsonProcessingException {
+        List<MessageDTO> messages = new ArrayList<>(items.size());
+        for (String item : items) {
+            messages.add(objectMapper.readValue(item, MessageDTO.class));
+        }
+        return messages;
+    }
+}
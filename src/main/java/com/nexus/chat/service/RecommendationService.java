@@ -0,0 +1,221 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.repository.ChatMemberRepository;
+import com.nexus.chat.repository.ContactRepository;
+import com.nexus.chat.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 好友推荐
+ *
+ * 每个用户的候选列表预先计算并以 ZSET 存入 Redis（user:recs:{userId}），
+ * 候选来自好友的好友（按共同好友数计分）和共同群组成员（按共同群数计分），
+ * 已是好友的用户被排除。接口读取时只需 ZREVRANGE，不再对 users 表 ORDER BY RAND()。
+ *
+ * 联系人或群成员变化时，受影响的用户被加入 recs:dirty 集合，
+ * 后台任务按批 SPOP 并重算（多实例下同一用户只会被一个实例取到）。
+ * 列表另有 TTL，过期后在下次读取时重算。
+ */
+@Slf4j
+@Service
+public class RecommendationService {
+
+    private static final String RECS_PREFIX = "user:recs:";
+    private static final String DIRTY_SET = "recs:dirty";
+    // 计算结果为空时写入的占位成员，用于区分"已计算但无候选"和"未计算"
+    private static final String EMPTY_MARKER = "0";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ContactRepository contactRepository;
+    private final ChatMemberRepository chatMemberRepository;
+    private final UserRepository userRepository;
+
+    @Value("${recommendation.max-candidates:100}")
+    private int maxCandidates;
+
+    @Value("${recommendation.mutual-contact-weight:3}")
+    private double mutualContactWeight;
+
+    @Value("${recommendation.shared-group-weight:1}")
+    private double sharedGroupWeight;
+
+    @Value("${recommendation.max-group-size:500}")
+    private int maxGroupSize;
+
+    @Value("${recommendation.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${recommendation.refresh-batch-size:200}")
+    private int refreshBatchSize;
+
+    public RecommendationService(StringRedisTemplate redisTemplate,
+                                 ContactRepository contactRepository,
+                                 ChatMemberRepository chatMemberRepository,
+                                 UserRepository userRepository) {
+        this.redisTemplate = redisTemplate;
+        this.contactRepository = contactRepository;
+        this.chatMemberRepository = chatMemberRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Recommended user IDs for the user, best first.
+     * Computed inline on a cache miss; topped up with the newest users when
+     * the social graph yields fewer than {@code limit} candidates.
+     */
+    public List<Long> getRecommendations(Long userId, int limit) {
+        String key = RECS_PREFIX + userId;
+        Set<String> cached = null;
+        try {
+            cached = redisTemplate.opsForZSet().reverseRange(key, 0, limit);
+            if (cached == null || cached.isEmpty()) {
+                recompute(userId);
+                cached = redisTemplate.opsForZSet().reverseRange(key, 0, limit);
+            }
+        } catch (Exception e) {
+            log.error("读取推荐列表失败: userId={}, {}", userId, e.getMessage());
+        }
+
+        Set<Long> result = new LinkedHashSet<>();
+        if (cached != null) {
+            for (String member : cached) {
+                if (!EMPTY_MARKER.equals(member) && result.size() < limit) {
+                    result.add(Long.parseLong(member));
+                }
+            }
+        }
+
+        if (result.size() < limit) {
+            Set<Long> exclude = new HashSet<>(contactRepository.findContactUserIds(userId));
+            int missing = limit - result.size();
+            List<Long> newest = userRepository.findNewestUserIds(userId,
+                    PageRequest.of(0, missing + exclude.size() + result.size()));
+            for (Long id : newest) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                if (!exclude.contains(id)) {
+                    result.add(id);
+                }
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * 联系人关系变化：双方及双方的好友（他们的"好友的好友"也变了）都需要重算。
+     * 在事务提交后执行。
+     */
+    public void onContactsChanged(Long userId, Long otherUserId) {
+        AfterCommit.run(() -> {
+            Set<Long> affected = new HashSet<>();
+            affected.add(userId);
+            affected.add(otherUserId);
+            affected.addAll(contactRepository.findContactUserIds(userId));
+            affected.addAll(contactRepository.findContactUserIds(otherUserId));
+            markDirty(affected);
+        });
+    }
+
+    /**
+     * 群成员变化：只重算加入/离开的用户，其余成员等 TTL 到期后自然刷新
+     */
+    public void onGroupMembershipChanged(Collection<Long> userIds) {
+        List<Long> ids = List.copyOf(userIds);
+        AfterCommit.run(() -> markDirty(ids));
+    }
+
+    /**
+     * Recompute recommendation lists for users whose graph has changed.
+     */
+    @Scheduled(fixedDelayString = "${recommendation.refresh-interval-ms:30000}")
+    public void refreshDirty() {
+        List<String> batch;
+        try {
+            batch = redisTemplate.opsForSet().pop(DIRTY_SET, refreshBatchSize);
+        } catch (Exception e) {
+            log.error("读取待重算推荐列表失败: {}", e.getMessage());
+            return;
+        }
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+
+        List<Long> failed = new ArrayList<>();
+        for (String id : batch) {
+            try {
+                recompute(Long.parseLong(id));
+            } catch (Exception e) {
+                log.error("推荐列表重算失败: userId={}, {}", id, e.getMessage());
+                failed.add(Long.parseLong(id));
+            }
+        }
+        // 失败的用户放回集合，下一轮再算
+        markDirty(failed);
+        log.debug("推荐列表已重算: {} 个用户, {} 个失败", batch.size() - failed.size(), failed.size());
+    }
+
+    private void markDirty(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForSet().add(DIRTY_SET,
+                    userIds.stream().map(String::valueOf).toArray(String[]::new));
+        } catch (Exception e) {
+            log.error("标记推荐列表失效失败: {}", e.getMessage());
+        }
+    }
+
+    private void recompute(Long userId) {
+        Map<Long, Double> scores = new HashMap<>();
+        for (Object[] row : contactRepository.countFriendsOfFriends(userId)) {
+            scores.merge((Long) row[0], ((Long) row[1]) * mutualContactWeight, Double::sum);
+        }
+        for (Object[] row : chatMemberRepository.countSharedGroupMembers(userId, maxGroupSize)) {
+            scores.merge((Long) row[0], ((Long) row[1]) * sharedGroupWeight, Double::sum);
+        }
+        scores.remove(userId);
+        contactRepository.findContactUserIds(userId).forEach(scores::remove);
+
+        // 候选超过上限时，同分的保留 id 大的（较新注册的用户）；
+        // 读取时 ZREVRANGE 对同分成员按成员字符串逆序返回，不保证按 id 排序
+        Set<ZSetOperations.TypedTuple<String>> tuples = scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed()))
+                .limit(maxCandidates)
+                .map(e -> new DefaultTypedTuple<>(String.valueOf(e.getKey()), e.getValue()))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (tuples.isEmpty()) {
+            tuples.add(new DefaultTypedTuple<>(EMPTY_MARKER, 0d));
+        }
+
+        // 先写临时 key 再 RENAME，读取方不会看到写了一半的列表；临时 key 每次调用唯一，
+        // 多个实例或读取时的即时重算同时写同一用户也不会互相干扰（后完成的覆盖先完成的）。
+        // TTL 设在临时 key 上并随 RENAME 带过去，中途失败留下的临时 key 也会过期
+        String key = RECS_PREFIX + userId;
+        String tmpKey = key + ":tmp:" + UUID.randomUUID();
+        redisTemplate.opsForZSet().add(tmpKey, tuples);
+        redisTemplate.expire(tmpKey, ttl);
+        redisTemplate.rename(tmpKey, key);
+    }
+}
@@ -1,10 +1,13 @@
 package com.nexus.chat.service;
 
+import com.nexus.chat.dto.ContactRequestDTO;
 import com.nexus.chat.dto.WebSocketMessage;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
@@ -20,6 +23,7 @@ public class RedisCacheService {
     private final RedisTemplate<String, Object> redisTemplate;
     private final StringRedisTemplate stringRedisTemplate;
     private final ObjectMapper objectMapper;
+    private final MessagingMetrics metrics;
 
     // Key prefixes
     private static final String PRESENCE_PREFIX = "presence:";
@@ -38,9 +42,11 @@ public class RedisCacheService {
     private static final String PENDING_REQS_PREFIX = "user:pendingreqs:";
 
     public RedisCacheService(RedisTemplate<String, Object> redisTemplate,
-                             StringRedisTemplate stringRedisTemplate) {
+                             StringRedisTemplate stringRedisTemplate,
+                             MessagingMetrics metrics) {
         this.redisTemplate = redisTemplate;
         this.stringRedisTemplate = stringRedisTemplate;
+        this.metrics = metrics;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
     }
@@ -96,6 +102,11 @@ public class RedisCacheService {
         return result;
     }
 
+    public long getOnlineUserCount() {
+        Long count = stringRedisTemplate.opsForSet().size(PRESENCE_ONLINE_SET);
+        return count != null ? count : 0;
+    }
+
     public Set<Long> getOnlineUserIds() {
         Set<String> members = stringRedisTemplate.opsForSet().members(PRESENCE_ONLINE_SET);
         if (members == null) return Collections.emptySet();
@@ -114,7 +125,9 @@ public class RedisCacheService {
     @SuppressWarnings("unchecked")
     public <T> T getCachedUserProfile(Long userId) {
         String key = USER_PROFILE_PREFIX + userId;
-        return (T) redisTemplate.opsForValue().get(key);
+        Object value = redisTemplate.opsForValue().get(key);
+        metrics.cacheGet("user-profile", value != null);
+        return (T) value;
     }
 
     public void invalidateUserProfile(Long userId) {
@@ -131,7 +144,9 @@ public class RedisCacheService {
     @SuppressWarnings("unchecked")
     public <T> T getCachedUserContacts(Long userId) {
         String key = USER_CONTACTS_PREFIX + userId;
-        return (T) redisTemplate.opsForValue().get(key);
+        Object value = redisTemplate.opsForValue().get(key);
+        metrics.cacheGet("user-contacts", value != null);
+        return (T) value;
     }
 
     public void invalidateUserContacts(Long userId) {
@@ -148,7 +163,9 @@ public class RedisCacheService {
     @SuppressWarnings("unchecked")
     public <T> T getCachedUserChatList(Long userId) {
         String key = USER_CHATLIST_PREFIX + userId;
-        return (T) redisTemplate.opsForValue().get(key);
+        Object value = redisTemplate.opsForValue().get(key);
+        metrics.cacheGet("user-chatlist", value != null);
+        return (T) value;
     }
 
     public void invalidateUserChatList(Long userId) {
@@ -165,7 +182,9 @@ public class RedisCacheService {
     @SuppressWarnings("unchecked")
     public List<Long> getCachedChatMembers(Long chatId) {
         String key = CHAT_MEMBERS_PREFIX + chatId;
-        return (List<Long>) redisTemplate.opsForValue().get(key);
+        Object value = redisTemplate.opsForValue().get(key);
+        metrics.cacheGet("chat-members", value != null);
+        return (List<Long>) value;
     }
 
     public void invalidateChatMembers(Long chatId) {
@@ -208,7 +227,10 @@ public class RedisCacheService {
         try {
             String key = OFFLINE_QUEUE_PREFIX + userId;
             String json = objectMapper.writeValueAsString(message);
-            stringRedisTemplate.opsForList().rightPush(key, json);
+            Long depth = stringRedisTemplate.opsForList().rightPush(key, json);
+            if (depth != null) {
+                metrics.offlineQueued(depth);
+            }
             // Set TTL of 7 days for offline queue
             stringRedisTemplate.expire(key, 7, TimeUnit.DAYS);
             log.debug("Queued offline message for user {}", userId);
@@ -224,6 +246,7 @@ public class RedisCacheService {
         while ((msg = stringRedisTemplate.opsForList().leftPop(key)) != null) {
             messages.add(msg);
         }
+        metrics.offlineDrained(messages.size());
         if (!messages.isEmpty()) {
             log.info("Drained {} offline messages for user {}", messages.size(), userId);
         }
@@ -237,6 +260,20 @@ public class RedisCacheService {
         return stringRedisTemplate.opsForValue().increment(key);
     }
 
+    /**
+     * Latest sequence numbers already issued, per chat (0 when none), in the order given.
+     */
+    public List<Long> getCurrentSequenceNumbers(List<Long> chatIds) {
+        List<String> keys = chatIds.stream().map(id -> CHAT_SEQ_PREFIX + id).collect(Collectors.toList());
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+        List<Long> result = new ArrayList<>(chatIds.size());
+        for (int i = 0; i < chatIds.size(); i++) {
+            String value = values != null ? values.get(i) : null;
+            result.add(value != null ? Long.parseLong(value) : 0L);
+        }
+        return result;
+    }
+
     // ==================== WebSocket Session Registry ====================
 
     public void registerWsSession(Long userId, String sessionInfo) {
@@ -256,9 +293,37 @@ public class RedisCacheService {
 
     // ==================== Pending Requests Cache ====================
 
-    public void cachePendingRequests(Long userId, Object requests) {
-        String key = PENDING_REQS_PREFIX + userId;
-        redisTemplate.opsForValue().set(key, requests, 2, TimeUnit.MINUTES);
+    public void cachePendingRequests(Long userId, List<ContactRequestDTO> requests) {
+        try {
+            String key = PENDING_REQS_PREFIX + userId;
+            stringRedisTemplate.opsForValue().set(key, objectMapper.writeValueAsString(requests), 2, TimeUnit.MINUTES);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize pending requests for user {}", userId, e);
+        }
+    }
+
+    /**
+     * @return the cached pending request view, or null on a miss
+     */
+    public List<ContactRequestDTO> getCachedPendingRequests(Long userId) {
+        String json;
+        try {
+            json = stringRedisTemplate.opsForValue().get(PENDING_REQS_PREFIX + userId);
+        } catch (DataAccessException e) {
+            // Redis unavailable: treat as a miss so the caller falls back to the database
+            log.warn("Failed to read pending requests cache for user {}: {}", userId, e.getMessage());
+            json = null;
+        }
+        metrics.cacheGet("pending-requests", json != null);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<List<ContactRequestDTO>>() {});
+        } catch (JsonProcessingException e) {
+            log.warn("Discarding unreadable pending requests cache for user {}", userId);
+            return null;
+        }
     }
 
     public void invalidatePendingRequests(Long userId) {
@@ -3,6 +3,9 @@ package com.nexus.chat.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nexus.chat.dto.MessageTrace;
+import com.nexus.chat.dto.WebSocketMessage;
+import com.nexus.chat.service.MessagingMetrics.DeliveryPath;
 import jakarta.annotation.PostConstruct;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -36,6 +39,8 @@ public class RedisMessageRelay implements MessageListener {
     private final RedisCacheService redisCacheService;
     private final SimpMessagingTemplate messagingTemplate;
     private final SimpUserRegistry userRegistry;
+    private final MessagingMetrics metrics;
+    private final DeliveryTracer deliveryTracer;
 
     private static final String BROADCAST_CHANNEL = "ws:broadcast";
     private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
@@ -64,9 +69,12 @@ public class RedisMessageRelay implements MessageListener {
             relayMsg.setTargetUserId(targetUserId);
             relayMsg.setDestination(destination);
             relayMsg.setPayload(mapper.writeValueAsString(payload));
+            relayMsg.setPublishedAt(System.currentTimeMillis());
+            relayMsg.setTrace(trace(payload));
 
             String json = mapper.writeValueAsString(relayMsg);
             redisCacheService.publishMessage(BROADCAST_CHANNEL, json);
+            metrics.relayPublished(targetUserId == null);
         } catch (JsonProcessingException e) {
             log.error("[Relay] Failed to serialize relay message", e);
         }
@@ -83,18 +91,31 @@ public class RedisMessageRelay implements MessageListener {
         // Check if user has a local STOMP session
         if (userRegistry.getUser(userIdStr) != null) {
             messagingTemplate.convertAndSend(destination, payload);
+            deliveryTracer.delivered(trace(payload), DeliveryPath.LOCAL, destination);
         } else {
             // User not on this instance; relay via Redis
             broadcast(targetUserId, destination, payload);
         }
     }
 
+    /**
+     * Publish to a shared topic (e.g. a channel) on every instance.
+     * Each instance's broker delivers to its own subscribers, so the cost is one
+     * publish per message regardless of how many members the topic has.
+     */
+    public void sendToTopic(String destination, Object payload) {
+        messagingTemplate.convertAndSend(destination, payload);
+        deliveryTracer.delivered(trace(payload), DeliveryPath.TOPIC, destination);
+        broadcast(null, destination, payload);
+    }
+
     /**
      * Redis message listener callback.
      * Called when any instance publishes to ws:broadcast.
      */
     @Override
     public void onMessage(Message message, byte[] pattern) {
+        long receivedAt = DeliveryTracer.nowMicros();
         try {
             ObjectMapper mapper = new ObjectMapper();
             mapper.registerModule(new JavaTimeModule());
@@ -104,18 +125,33 @@ public class RedisMessageRelay implements MessageListener {
 
             // Skip messages from this instance (already delivered locally)
             if (instanceId.equals(relayMsg.getOriginInstance())) {
+                metrics.relayOwnMessage();
+                return;
+            }
+
+            // Topic message: deliver to this instance's subscribers
+            if (relayMsg.getTargetUserId() == null) {
+                messagingTemplate.convertAndSend(relayMsg.getDestination(), relayMsg.getPayload());
+                metrics.relayConsumed(true, relayMsg.getPublishedAt());
+                deliveryTracer.relayed(relayMsg.getTrace(), DeliveryPath.TOPIC, relayMsg.getPublishedAt(),
+                        receivedAt, relayMsg.getDestination());
                 return;
             }
 
             // Check if the target user is connected to THIS instance
             String userIdStr = String.valueOf(relayMsg.getTargetUserId());
-            if (userRegistry.getUser(userIdStr) != null) {
+            boolean local = userRegistry.getUser(userIdStr) != null;
+            if (local) {
                 // Deliver locally
                 messagingTemplate.convertAndSend(relayMsg.getDestination(), relayMsg.getPayload());
                 log.debug("[Relay] Delivered relayed message to user {} on instance {}",
                         relayMsg.getTargetUserId(), instanceId);
+                deliveryTracer.relayed(relayMsg.getTrace(), DeliveryPath.RELAY, relayMsg.getPublishedAt(),
+                        receivedAt, relayMsg.getDestination());
             }
+            metrics.relayConsumed(local, relayMsg.getPublishedAt());
         } catch (Exception e) {
+            metrics.relayFailed();
             log.error("[Relay] Failed to process relayed message", e);
         }
     }
@@ -133,5 +169,13 @@ public class RedisMessageRelay implements MessageListener {
         private Long targetUserId;
         private String destination;
         private String payload;
+        // Epoch millis at publish, for the relay lag metric (0 from older instances)
+        private long publishedAt;
+        // Delivery trace of a chat message (null for other events)
+        private MessageTrace trace;
+    }
+
+    private static MessageTrace trace(Object payload) {
+        return payload instanceof WebSocketMessage wsMessage ? wsMessage.getTrace() : null;
     }
 }
@@ -0,0 +1,217 @@
+package com.nexus.chat.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按时间有序的分布式消息 ID 生成器（Snowflake 风格）
+ *
+ * 布局共 53 位，保证浏览器端作为 JSON number 仍能精确表示：
+ *   40 位毫秒时间戳（自 2024-01-01 起，约 34 年）| 6 位 worker id（64 个实例）| 7 位毫秒内计数（每实例每毫秒 128 个）
+ *
+ * - 无锁：上次的时间戳和计数打包在一个 AtomicLong 中，用 CAS 分配
+ * - 时钟回拨：继续沿用上次的时间戳（逻辑时钟），既不阻塞也不重复；毫秒内计数用尽时进位借用下一毫秒
+ * - worker id：配置 snowflake.worker-id 固定指定，否则启动时在 Redis 中租用（SET NX + 定期续期）。
+ *   续期在独立线程上执行；距上次确认续期超过 lease-ttl 减去安全余量时拒绝发号，
+ *   避免租约过期后被其他实例接管同一 worker id 而产生重复 ID
+ *
+ * ID 远大于原 AUTO_INCREMENT 的值，因此新旧消息按 id 排序仍然有序。
+ */
+@Slf4j
+@Service
+public class SnowflakeIdGenerator {
+
+    // 2024-01-01T00:00:00Z
+    static final long EPOCH_MILLIS = 1704067200000L;
+    static final int WORKER_BITS = 6;
+    static final int SEQUENCE_BITS = 7;
+    static final long MAX_WORKER_ID = (1L << WORKER_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = WORKER_BITS + SEQUENCE_BITS;
+
+    private static final String LEASE_PREFIX = "snowflake:worker:";
+    // 逻辑时钟领先系统时钟超过此值时告警
+    private static final long DRIFT_WARN_MILLIS = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final String leaseOwner = UUID.randomUUID().toString();
+
+    @Value("${snowflake.worker-id:-1}")
+    private int configuredWorkerId;
+
+    @Value("${snowflake.lease-ttl:60s}")
+    private Duration leaseTtl;
+
+    @Value("${snowflake.lease-renew-ms:20000}")
+    private long leaseRenewMillis;
+
+    private ScheduledExecutorService leaseRenewer;
+
+    // (timestamp << SEQUENCE_BITS) | sequence of the last issued id
+    private final AtomicLong state = new AtomicLong();
+    private volatile long workerId = -1;
+    private volatile boolean leased;
+    // System.nanoTime() of the last time Redis confirmed the lease is ours
+    private volatile long leaseConfirmedAt;
+    private long leaseValidNanos;
+    private volatile long lastDriftWarning;
+
+    public SnowflakeIdGenerator(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @PostConstruct
+    void init() {
+        if (configuredWorkerId >= 0) {
+            if (configuredWorkerId > MAX_WORKER_ID) {
+                throw new IllegalStateException("snowflake.worker-id must be between 0 and " + MAX_WORKER_ID);
+            }
+            workerId = configuredWorkerId;
+            log.info("[Snowflake] Using configured worker id {}", workerId);
+        } else {
+            // Stop issuing a quarter TTL before the lease could have expired in Redis
+            leaseValidNanos = leaseTtl.toNanos() - leaseTtl.toNanos() / 4;
+            if (leaseRenewMillis * 1_000_000L >= leaseValidNanos) {
+                throw new IllegalStateException("snowflake.lease-renew-ms must be well below snowflake.lease-ttl");
+            }
+            acquireLease();
+            // Own thread: @Scheduled jobs share a pool with long-running work that could delay renewal
+            leaseRenewer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "snowflake-lease");
+                thread.setDaemon(true);
+                return thread;
+            });
+            leaseRenewer.scheduleWithFixedDelay(this::renewLease,
+                    leaseRenewMillis, leaseRenewMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Next id. Never blocks; safe for concurrent callers.
+     * Fails while the worker id lease has not been confirmed recently enough to be sure it is still ours.
+     */
+    public long nextId() {
+        long worker = workerId;
+        if (worker < 0) {
+            throw new IllegalStateException("Snowflake worker id not assigned");
+        }
+        if (leased && System.nanoTime() - leaseConfirmedAt > leaseValidNanos) {
+            throw new IllegalStateException("Snowflake worker id lease not renewed in time");
+        }
+        while (true) {
+            long current = state.get();
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            // A new millisecond restarts the counter; otherwise (same millisecond, or the clock moved back)
+            // take the next counter value, carrying into the timestamp when it runs out
+            long next = now > (current >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : current + 1;
+            if (state.compareAndSet(current, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                if (timestamp - now > DRIFT_WARN_MILLIS) {
+                    warnDrift(timestamp - now);
+                }
+                return (timestamp << TIMESTAMP_SHIFT) | (worker << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * When an id was generated (only meaningful for ids from this generator).
+     */
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> TIMESTAMP_SHIFT) + EPOCH_MILLIS);
+    }
+
+    /**
+     * The smallest id that can be generated at or after {@code time}, for id-range queries by time.
+     */
+    public static long lowestIdAt(Instant time) {
+        return Math.max(0, time.toEpochMilli() - EPOCH_MILLIS) << TIMESTAMP_SHIFT;
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    // ==================== Worker id lease ====================
+
+    private void acquireLease() {
+        int start = ThreadLocalRandom.current().nextInt((int) MAX_WORKER_ID + 1);
+        for (int i = 0; i <= MAX_WORKER_ID; i++) {
+            long candidate = (start + i) & MAX_WORKER_ID;
+            Boolean acquired = redisTemplate.opsForValue()
+                    .setIfAbsent(LEASE_PREFIX + candidate, leaseOwner, leaseTtl);
+            if (Boolean.TRUE.equals(acquired)) {
+                workerId = candidate;
+                leaseConfirmedAt = System.nanoTime();
+                leased = true;
+                log.info("[Snowflake] Leased worker id {}", candidate);
+                return;
+            }
+        }
+        throw new IllegalStateException("No free Snowflake worker id (all " + (MAX_WORKER_ID + 1) + " leased)");
+    }
+
+    void renewLease() {
+        if (!leased) {
+            return;
+        }
+        String key = LEASE_PREFIX + workerId;
+        try {
+            long attemptAt = System.nanoTime();
+            String holder = redisTemplate.opsForValue().get(key);
+            if (leaseOwner.equals(holder) && Boolean.TRUE.equals(redisTemplate.expire(key, leaseTtl))) {
+                leaseConfirmedAt = attemptAt;
+            } else if (holder == null && Boolean.TRUE.equals(
+                    redisTemplate.opsForValue().setIfAbsent(key, leaseOwner, leaseTtl))) {
+                leaseConfirmedAt = attemptAt;
+                log.warn("[Snowflake] Lease on worker id {} had expired; re-acquired", workerId);
+            } else {
+                // Another instance took the id while our lease was lapsed: move to a free one
+                log.error("[Snowflake] Worker id {} was taken over; leasing a new one", workerId);
+                acquireLease();
+            }
+        } catch (Exception e) {
+            log.error("[Snowflake] Failed to renew worker id lease: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void releaseLease() {
+        if (leaseRenewer != null) {
+            leaseRenewer.shutdownNow();
+        }
+        if (!leased) {
+            return;
+        }
+        try {
+            String key = LEASE_PREFIX + workerId;
+            if (leaseOwner.equals(redisTemplate.opsForValue().get(key))) {
+                redisTemplate.delete(key);
+            }
+        } catch (Exception e) {
+            log.warn("[Snowflake] Failed to release worker id lease: {}", e.getMessage());
+        }
+    }
+
+    private void warnDrift(long driftMillis) {
+        long now = System.currentTimeMillis();
+        if (now - lastDriftWarning > 10_000) {
+            lastDriftWarning = now;
+            log.warn("[Snowflake] Issuing ids {} ms ahead of the system clock (clock moved back or counter exhausted)",
+                    driftMillis);
+        }
+    }
+}
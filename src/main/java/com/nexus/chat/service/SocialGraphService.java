@@ -0,0 +1,163 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.config.BoundedCache;
+import com.nexus.chat.repository.ContactRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 内存社交关系图
+ *
+ * 每个用户的联系人 id 以有序 long[] 缓存在本地（按需加载、LRU 淘汰），
+ * 是否好友用二分查找，共同好友用有序数组归并求交集，不再逐条查库。
+ * 联系人增删在事务提交后让本地条目失效，并通过 Redis 频道通知其他实例；
+ * 条目另有过期时间，作为丢失通知时的兜底。
+ */
+@Slf4j
+@Service
+public class SocialGraphService implements MessageListener {
+
+    private static final String INVALIDATE_CHANNEL = "graph:invalidate";
+    private static final long[] EMPTY = new long[0];
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final ContactRepository contactRepository;
+    private final RedisCacheService redisCacheService;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${social-graph.cache-size:50000}")
+    private int cacheSize;
+
+    @Value("${social-graph.ttl:10m}")
+    private Duration ttl;
+
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+
+    // userId -> 有序联系人数组
+    private BoundedCache<Long, Adjacency> cache;
+
+    // 按 userId 分段的失效计数；加载期间计数变化说明结果可能已过时，不再缓存
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private record Adjacency(long[] contactIds, long loadedAt) {
+    }
+
+    public SocialGraphService(ContactRepository contactRepository,
+                              RedisCacheService redisCacheService,
+                              RedisMessageListenerContainer listenerContainer) {
+        this.contactRepository = contactRepository;
+        this.redisCacheService = redisCacheService;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    void init() {
+        cache = new BoundedCache<>(cacheSize);
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * Sorted contact user IDs of the user. The returned array must not be modified.
+     */
+    public long[] getContactIds(Long userId) {
+        long now = System.currentTimeMillis();
+        Adjacency cached = cache.get(userId);
+        if (cached != null && now - cached.loadedAt() < ttl.toMillis()) {
+            return cached.contactIds();
+        }
+
+        int stripe = stripe(userId);
+        long generation = generations.get(stripe);
+        List<Long> ids = contactRepository.findContactUserIds(userId);
+        long[] sorted = ids.isEmpty() ? EMPTY : ids.stream().mapToLong(Long::longValue).sorted().toArray();
+        cache.put(userId, new Adjacency(sorted, now));
+        // An invalidation during the load may have run before the put; drop the possibly stale entry
+        if (generations.get(stripe) != generation) {
+            cache.remove(userId);
+        }
+        return sorted;
+    }
+
+    public boolean isContact(Long userId, Long contactUserId) {
+        return Arrays.binarySearch(getContactIds(userId), contactUserId) >= 0;
+    }
+
+    /**
+     * Contacts the two users have in common, in ascending ID order.
+     */
+    public long[] getMutualContactIds(Long userId1, Long userId2) {
+        long[] a = getContactIds(userId1);
+        long[] b = getContactIds(userId2);
+        long[] out = new long[Math.min(a.length, b.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * 联系人关系变化：事务提交后使双方的本地条目失效，并通知其他实例
+     */
+    public void invalidateAfterCommit(Long userId, Long otherUserId) {
+        Runnable task = () -> {
+            invalidate(userId);
+            invalidate(otherUserId);
+            redisCacheService.publishMessage(INVALIDATE_CHANNEL,
+                    instanceId + ":" + userId + "," + otherUserId);
+        };
+
+        AfterCommit.run(task);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.indexOf(':');
+        if (sep < 0 || body.substring(0, sep).equals(instanceId)) {
+            return;
+        }
+        try {
+            for (String id : body.substring(sep + 1).split(",")) {
+                invalidate(Long.parseLong(id));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("无效的关系图失效通知: {}", body);
+        }
+    }
+
+    /**
+     * Bump the generation before removing, so a load that read the old generation sees the change after its put.
+     */
+    private void invalidate(Long userId) {
+        generations.incrementAndGet(stripe(userId));
+        cache.remove(userId);
+    }
+
+    private static int stripe(Long userId) {
+        return (int) (userId & (GENERATION_STRIPES - 1));
+    }
+}
@@ -0,0 +1,123 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.model.FileUpload;
+import com.nexus.chat.repository.FileUploadRepository;
+import com.nexus.chat.storage.BlobStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 缩略图生成服务
+ * 图片上传完成后在后台线程池中生成限定尺寸的缩略图（仅依赖 JDK ImageIO），
+ * 并回写 FileUpload.thumbnailPath，聊天记录渲染只需拉取 KB 级的缩略图。
+ */
+@Slf4j
+@Service
+public class ThumbnailService {
+
+    private static final String THUMBNAIL_DIR = "thumbnails/";
+
+    private final FileUploadRepository fileUploadRepository;
+    private final ImageScaler imageScaler;
+    private final BlobStorage blobStorage;
+    private final ThreadPoolTaskExecutor thumbnailExecutor;
+
+    // 正在生成中的文件，避免重复提交同一任务
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Value("${file.thumbnail.max-size:320}")
+    private int maxSize;
+
+    public ThumbnailService(FileUploadRepository fileUploadRepository,
+                            ImageScaler imageScaler,
+                            BlobStorage blobStorage,
+                            @Qualifier("thumbnailExecutor") ThreadPoolTaskExecutor thumbnailExecutor) {
+        this.fileUploadRepository = fileUploadRepository;
+        this.imageScaler = imageScaler;
+        this.blobStorage = blobStorage;
+        this.thumbnailExecutor = thumbnailExecutor;
+    }
+
+    /**
+     * 是否为可生成缩略图的图片类型
+     */
+    public boolean supports(FileUpload file) {
+        return file.getMimeType() != null
+                && file.getMimeType().startsWith("image/")
+                && Boolean.TRUE.equals(file.getUploadComplete());
+    }
+
+    /**
+     * 异步提交缩略图生成任务（调用方无需等待）
+     */
+    public void scheduleThumbnail(FileUpload file) {
+        if (!supports(file) || file.getThumbnailPath() != null) {
+            return;
+        }
+        if (!inFlight.add(file.getId())) {
+            return;
+        }
+        try {
+            thumbnailExecutor.execute(() -> {
+                try {
+                    generateThumbnail(file);
+                } finally {
+                    inFlight.remove(file.getId());
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(file.getId());
+            log.warn("缩略图任务提交失败: fileId={}, reason={}", file.getFileId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 生成缩略图并回写路径
+     */
+    private void generateThumbnail(FileUpload file) {
+        try {
+            BufferedImage image;
+            try (InputStream source = blobStorage.open(file.getFilePath())) {
+                image = imageScaler.read(source, maxSize);
+            } catch (NoSuchFileException e) {
+                log.warn("缩略图源文件不存在: fileId={}, path={}", file.getFileId(), file.getFilePath());
+                return;
+            }
+            if (image == null) {
+                log.debug("ImageIO 不支持该图片格式，跳过缩略图: fileId={}, mimeType={}",
+                        file.getFileId(), file.getMimeType());
+                return;
+            }
+
+            BufferedImage thumbnail = imageScaler.fit(image, maxSize);
+            String format = imageScaler.formatFor(thumbnail);
+
+            String dateDir = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
+            String thumbnailPath = THUMBNAIL_DIR + dateDir + "/" + file.getFileId() + "." + format;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            imageScaler.write(thumbnail, out);
+            blobStorage.put(thumbnailPath, out.toByteArray(), "png".equals(format) ? "image/png" : "image/jpeg");
+
+            fileUploadRepository.updateThumbnailPath(file.getId(), thumbnailPath);
+            file.setThumbnailPath(thumbnailPath);
+
+            log.debug("缩略图生成成功: fileId={}, size={}x{}, bytes={}",
+                    file.getFileId(), thumbnail.getWidth(), thumbnail.getHeight(), out.size());
+        } catch (IOException | RuntimeException e) {
+            log.error("缩略图生成失败: fileId={}", file.getFileId(), e);
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.model.User;
+import com.nexus.chat.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户目录检索（边输入边搜索）
+ *
+ * 用户名、昵称、邮箱预先切成前缀词元和双字片段写入本地 Lucene 索引，
+ * 查询只做词项查找，不再对 users 表做 LIKE '%q%' 全表扫描。
+ * 索引在启动时按主键从数据库重建，之后随用户注册/资料修改增量更新；
+ * 修改通过 Redis 频道通知其他实例各自重建该用户的索引条目。
+ * 重建完成之前检索回退到数据库查询。
+ */
+@Slf4j
+@Service
+public class UserSearchService implements MessageListener {
+
+    private static final String INDEX_CHANNEL = "user:index";
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_ID_SORT = "idSort";
+    private static final String FIELD_USERNAME = "username";
+    private static final String FIELD_USERNAME_PREFIX = "usernamePrefix";
+    private static final String FIELD_NAME_PREFIX = "namePrefix";
+    private static final String FIELD_EMAIL_PREFIX = "emailPrefix";
+    private static final String FIELD_INFIX = "infix";
+
+    private static final int MAX_PREFIX_LENGTH = 32;
+    private static final int MAX_INFIX_SOURCE_LENGTH = 64;
+    private static final int MAX_QUERY_TERMS = 5;
+    private static final int REBUILD_BATCH_SIZE = 5000;
+
+    private static final Sort SORT = new Sort(SortField.FIELD_SCORE,
+            new SortField(FIELD_ID_SORT, SortField.Type.LONG));
+
+    private final UserRepository userRepository;
+    private final RedisCacheService redisCacheService;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ThreadPoolTaskExecutor userIndexExecutor;
+    private final ThreadPoolTaskExecutor searchRebuildExecutor;
+
+    @Value("${search.user.index-dir:data/user-index}")
+    private String indexDir;
+
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    private volatile boolean ready = false;
+    private volatile boolean rebuilding = false;
+    // 重建期间被修改过的用户，重建结束后重新索引，避免被旧快照覆盖
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    // 索引队列已满时被拒绝的用户，稍后从数据库重新加载
+    private final Set<Long> rejected = ConcurrentHashMap.newKeySet();
+
+    /**
+     * One page of matching user ids; nextCursor is null on the last page.
+     */
+    public record SearchPage(List<Long> userIds, String nextCursor) {
+    }
+
+    public UserSearchService(UserRepository userRepository,
+                             RedisCacheService redisCacheService,
+                             RedisMessageListenerContainer listenerContainer,
+                             @Qualifier("userIndexExecutor") ThreadPoolTaskExecutor userIndexExecutor,
+                             @Qualifier("searchRebuildExecutor") ThreadPoolTaskExecutor searchRebuildExecutor) {
+        this.userRepository = userRepository;
+        this.redisCacheService = redisCacheService;
+        this.listenerContainer = listenerContainer;
+        this.userIndexExecutor = userIndexExecutor;
+        this.searchRebuildExecutor = searchRebuildExecutor;
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        Path dir = Paths.get(indexDir);
+        Files.createDirectories(dir);
+
+        // 每次启动都从数据库重建，索引目录只是堆外缓存
+        IndexWriterConfig config = new IndexWriterConfig(new KeywordAnalyzer());
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        writer = new IndexWriter(FSDirectory.open(dir), config);
+        searcherManager = new SearcherManager(writer, null);
+
+        // Set before any incremental update can run next to the rebuild
+        rebuilding = true;
+        listenerContainer.addMessageListener(this, new ChannelTopic(INDEX_CHANNEL));
+        searchRebuildExecutor.execute(this::rebuild);
+    }
+
+    @PreDestroy
+    void close() {
+        try {
+            searcherManager.close();
+            writer.close();
+        } catch (IOException e) {
+            log.error("关闭用户索引失败", e);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 事务提交后更新该用户的索引条目，并通知其他实例
+     */
+    public void indexAfterCommit(User user) {
+        Long userId = user.getId();
+        String username = user.getUsername();
+        String nickname = user.getNickname();
+        String email = user.getEmail();
+
+        Runnable task = () -> {
+            submit(userId, () -> index(userId, username, nickname, email));
+            redisCacheService.publishMessage(INDEX_CHANNEL, instanceId + ":" + userId);
+        };
+
+        AfterCommit.run(task);
+    }
+
+    /**
+     * 其他实例修改了用户资料：从数据库重新加载并索引
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.indexOf(':');
+        if (sep < 0 || body.substring(0, sep).equals(instanceId)) {
+            return;
+        }
+        try {
+            Long userId = Long.parseLong(body.substring(sep + 1));
+            submit(userId, () -> reload(userId));
+        } catch (NumberFormatException e) {
+            log.warn("无效的用户索引通知: {}", body);
+        }
+    }
+
+    /**
+     * 检索用户：按匹配程度（用户名全等 > 用户名前缀 > 昵称前缀 > 邮箱前缀 > 片段匹配）排序，
+     * 同分按用户 id 排序，游标为上一页最后一条的 (score, id)。
+     */
+    public SearchPage search(String queryText, String cursor, int limit) {
+        List<String> terms = normalizeQuery(queryText);
+        if (terms.isEmpty()) {
+            return new SearchPage(List.of(), null);
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String term : terms) {
+            query.add(termQuery(term), BooleanClause.Occur.MUST);
+        }
+
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            FieldDoc after = parseCursor(cursor);
+            TopFieldDocs topDocs = after != null
+                    ? searcher.searchAfter(after, query.build(), limit, SORT, true)
+                    : searcher.search(query.build(), limit, SORT, true);
+
+            List<Long> ids = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc hit : topDocs.scoreDocs) {
+                ids.add(Long.parseLong(searcher.storedFields().document(hit.doc).get(FIELD_ID)));
+            }
+
+            String nextCursor = null;
+            if (topDocs.scoreDocs.length == limit) {
+                FieldDoc last = (FieldDoc) topDocs.scoreDocs[topDocs.scoreDocs.length - 1];
+                nextCursor = last.fields[0] + "_" + last.fields[1];
+            }
+            return new SearchPage(ids, nextCursor);
+        } catch (IOException e) {
+            log.error("用户检索失败: query={}", queryText, e);
+            return new SearchPage(List.of(), null);
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${search.user.refresh-ms:1000}")
+    public void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.warn("用户索引刷新失败: {}", e.getMessage());
+        }
+        for (Long userId : rejected) {
+            rejected.remove(userId);
+            submit(userId, () -> reload(userId));
+        }
+    }
+
+    /**
+     * 索引任务不在调用方线程（请求线程、Redis 监听线程）上执行；队列已满时记下用户稍后重新加载
+     */
+    private void submit(Long userId, Runnable task) {
+        try {
+            userIndexExecutor.execute(task);
+        } catch (TaskRejectedException e) {
+            if (rejected.add(userId)) {
+                log.warn("用户索引队列已满，稍后重新索引: userId={}", userId);
+            }
+        }
+    }
+
+    private void rebuild() {
+        long afterId = 0L;
+        long count = 0;
+        long start = System.currentTimeMillis();
+
+        try {
+            while (true) {
+                List<Object[]> batch = userRepository.findSearchFieldsAfter(
+                        afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : batch) {
+                    Long id = (Long) row[0];
+                    writer.updateDocument(new Term(FIELD_ID, String.valueOf(id)),
+                            toDocument(id, (String) row[1], (String) row[2], (String) row[3]));
+                    afterId = id;
+                }
+                count += batch.size();
+            }
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+
+            ready = true;
+            log.info("用户索引重建完成: {} 个用户, 耗时 {}ms", count, System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            log.error("用户索引重建失败，检索将回退到数据库: lastId={}", afterId, e);
+        } finally {
+            rebuilding = false;
+        }
+
+        for (Long userId : changedDuringRebuild) {
+            changedDuringRebuild.remove(userId);
+            submit(userId, () -> reload(userId));
+        }
+    }
+
+    private void reload(Long userId) {
+        userRepository.findById(userId).ifPresentOrElse(
+                user -> index(user.getId(), user.getUsername(), user.getNickname(), user.getEmail()),
+                () -> delete(userId));
+    }
+
+    private void index(Long userId, String username, String nickname, String email) {
+        if (rebuilding) {
+            changedDuringRebuild.add(userId);
+        }
+        try {
+            writer.updateDocument(new Term(FIELD_ID, String.valueOf(userId)),
+                    toDocument(userId, username, nickname, email));
+        } catch (IOException | RuntimeException e) {
+            log.error("用户索引更新失败: userId={}", userId, e);
+        }
+    }
+
+    private void delete(Long userId) {
+        try {
+            writer.deleteDocuments(new Term(FIELD_ID, String.valueOf(userId)));
+        } catch (IOException e) {
+            log.error("用户索引删除失败: userId={}", userId, e);
+        }
+    }
+
+    private Document toDocument(Long id, String username, String nickname, String email) {
+        String user = lower(username);
+        String name = lower(nickname);
+        String mail = lower(email);
+
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_ID, String.valueOf(id), Field.Store.YES));
+        doc.add(new NumericDocValuesField(FIELD_ID_SORT, id));
+        if (!user.isEmpty()) {
+            doc.add(new StringField(FIELD_USERNAME, user, Field.Store.NO));
+        }
+
+        addAll(doc, FIELD_USERNAME_PREFIX, prefixes(user));
+
+        Set<String> namePrefixes = prefixes(name);
+        for (String word : name.split("\\s+")) {
+            namePrefixes.addAll(prefixes(word));
+        }
+        addAll(doc, FIELD_NAME_PREFIX, namePrefixes);
+
+        addAll(doc, FIELD_EMAIL_PREFIX, prefixes(mail));
+
+        Set<String> grams = bigrams(user);
+        grams.addAll(bigrams(name));
+        grams.addAll(bigrams(mail));
+        addAll(doc, FIELD_INFIX, grams);
+        return doc;
+    }
+
+    private Query termQuery(String term) {
+        BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+        anyField.add(boosted(new TermQuery(new Term(FIELD_USERNAME, term)), 8), BooleanClause.Occur.SHOULD);
+        anyField.add(boosted(new TermQuery(new Term(FIELD_USERNAME_PREFIX, term)), 4), BooleanClause.Occur.SHOULD);
+        anyField.add(boosted(new TermQuery(new Term(FIELD_NAME_PREFIX, term)), 3), BooleanClause.Occur.SHOULD);
+        anyField.add(boosted(new TermQuery(new Term(FIELD_EMAIL_PREFIX, term)), 2), BooleanClause.Occur.SHOULD);
+
+        // 片段匹配：查询词的所有双字片段都出现（不要求相邻，命中后按得分排在前缀匹配之后）
+        Set<String> grams = bigrams(term);
+        if (!grams.isEmpty()) {
+            BooleanQuery.Builder infix = new BooleanQuery.Builder();
+            for (String gram : grams) {
+                infix.add(new TermQuery(new Term(FIELD_INFIX, gram)), BooleanClause.Occur.FILTER);
+            }
+            anyField.add(boosted(infix.build(), 1), BooleanClause.Occur.SHOULD);
+        }
+        return anyField.build();
+    }
+
+    private Query boosted(Query query, float boost) {
+        return new BoostQuery(new ConstantScoreQuery(query), boost);
+    }
+
+    private List<String> normalizeQuery(String queryText) {
+        if (queryText == null) {
+            return List.of();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String word : lower(queryText).trim().split("\\s+")) {
+            if (!word.isEmpty() && terms.size() < MAX_QUERY_TERMS) {
+                terms.add(truncate(word, MAX_PREFIX_LENGTH));
+            }
+        }
+        return terms;
+    }
+
+    private FieldDoc parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        int sep = cursor.lastIndexOf('_');
+        try {
+            float score = Float.parseFloat(cursor.substring(0, sep));
+            long id = Long.parseLong(cursor.substring(sep + 1));
+            return new FieldDoc(0, score, new Object[]{score, id});
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void addAll(Document doc, String field, Set<String> tokens) {
+        for (String token : tokens) {
+            doc.add(new StringField(field, token, Field.Store.NO));
+        }
+    }
+
+    private static Set<String> prefixes(String value) {
+        Set<String> result = new LinkedHashSet<>();
+        int[] codePoints = value.codePoints().limit(MAX_PREFIX_LENGTH).toArray();
+        for (int end = 1; end <= codePoints.length; end++) {
+            result.add(new String(codePoints, 0, end));
+        }
+        return result;
+    }
+
+    private static Set<String> bigrams(String value) {
+        Set<String> result = new LinkedHashSet<>();
+        int[] codePoints = value.codePoints()
+                .filter(cp -> !Character.isWhitespace(cp))
+                .limit(MAX_INFIX_SOURCE_LENGTH)
+                .toArray();
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            result.add(new String(codePoints, i, 2));
+        }
+        return result;
+    }
+
+    private static String truncate(String value, int maxCodePoints) {
+        int[] codePoints = value.codePoints().limit(maxCodePoints).toArray();
+        return new String(codePoints, 0, codePoints.length);
+    }
+
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -8,21 +8,19 @@ import com.nexus.chat.model.UserSocialLink;
 import com.nexus.chat.model.UserSecuritySettings;
 import com.nexus.chat.model.UserActivity;
 import com.nexus.chat.repository.*;
+import com.nexus.chat.storage.BlobStorage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -32,23 +30,26 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final UserPrivacySettingsRepository privacySettingsRepository;
-    private final ContactRepository contactRepository;
-    private final ChatRepository chatRepository;
-    private final MessageRepository messageRepository;
     private final UserSocialLinkRepository socialLinkRepository;
     private final UserSecuritySettingsRepository securitySettingsRepository;
     private final UserSessionRepository sessionRepository;
     private final UserActivityRepository activityRepository;
+    private final AvatarService avatarService;
+    private final BlobStorage blobStorage;
+    private final UserSearchService userSearchService;
+    private final RecommendationService recommendationService;
+    private final UserStatsService userStatsService;
 
-    // Avatar upload directory (can be configured)
-    private static final String AVATAR_UPLOAD_DIR = "uploads/avatars/";
+    private static final int MAX_USER_PAGE_SIZE = 50;
 
+    @Transactional(readOnly = true)
     public UserDTO getUserById(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new BusinessException("error.user.not.found"));
         return mapToDTO(user);
     }
 
+    @Transactional(readOnly = true)
     public UserDTO getUserByUsername(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new BusinessException("error.user.not.found"));
@@ -70,10 +71,20 @@ public class UserService {
             user.setNickname(nickname);
         }
         if (avatarUrl != null) {
+            if (AvatarService.isInlineImage(avatarUrl)) {
+                try {
+                    avatarUrl = avatarService.storeBase64Avatar(avatarUrl);
+                } catch (IOException e) {
+                    throw new BusinessException("error.user.file.image.only", e);
+                }
+            }
             user.setAvatarUrl(avatarUrl);
         }
 
         User updated = userRepository.save(user);
+        if (nickname != null) {
+            userSearchService.indexAfterCommit(updated);
+        }
         return mapToDTO(updated);
     }
 
@@ -115,9 +126,10 @@ public class UserService {
         profile.setShowPhone(privacy.getShowPhone());
 
         // Statistics
-        profile.setContactCount((long) contactRepository.findByUserId(userId).size());
-        profile.setGroupCount(chatRepository.countUserGroups(userId));
-        profile.setMessageCount(messageRepository.countBySenderId(userId));
+        UserStatsDTO stats = userStatsService.getStats(userId);
+        profile.setContactCount(stats.getContactCount());
+        profile.setGroupCount(stats.getGroupCount());
+        profile.setMessageCount(stats.getMessageCount());
 
         // Social links
         profile.setSocialLinks(getSocialLinksMap(userId));
@@ -134,12 +146,13 @@ public class UserService {
     /**
      * Get user profile for viewing by another user (respects privacy settings)
      */
+    @Transactional(readOnly = true)
     public UserProfileDTO getUserProfileForViewer(Long userId, Long viewerId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new BusinessException("error.user.not.found"));
 
         UserPrivacySettings privacy = privacySettingsRepository.findByUserId(userId)
-                .orElse(createDefaultPrivacySettings(userId));
+                .orElseGet(() -> defaultPrivacySettings(userId));
 
         UserProfileDTO profile = new UserProfileDTO();
         profile.setId(user.getId());
@@ -201,6 +214,7 @@ public class UserService {
         }
 
         userRepository.save(user);
+        userSearchService.indexAfterCommit(user);
         return getUserProfile(userId);
     }
 
@@ -222,25 +236,8 @@ public class UserService {
             throw new BusinessException("error.user.file.image.only");
         }
 
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null && originalFilename.contains(".")
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : ".png";
-        String filename = "avatar_" + userId + "_" + UUID.randomUUID().toString() + extension;
-
-        // Create upload directory if not exists
-        Path uploadPath = Paths.get(AVATAR_UPLOAD_DIR);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-
-        // Save file
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-        // Update user avatar URL
-        String avatarUrl = "/uploads/avatars/" + filename;
+        // Decode, resize and store under a content hash
+        String avatarUrl = avatarService.storeAvatar(file.getBytes());
         user.setAvatarUrl(avatarUrl);
         userRepository.save(user);
 
@@ -255,12 +252,12 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new BusinessException("error.user.not.found"));
 
-        // For simplicity, store Base64 directly (suitable for smaller images)
-        // In production, consider decoding and saving as file
-        user.setAvatarUrl(base64Image);
+        // Decode and store as resized files; only the short URL goes into users.avatar_url
+        String avatarUrl = avatarService.storeBase64Avatar(base64Image);
+        user.setAvatarUrl(avatarUrl);
         userRepository.save(user);
 
-        return base64Image;
+        return avatarUrl;
     }
 
     /**
@@ -271,15 +268,11 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new BusinessException("error.user.not.found"));
 
-        // Delete old file if it's a path
+        // Delete old file if it's a legacy per-user path.
+        // Content-hashed avatars (/api/avatars/) may be shared by several users and are kept.
         String oldAvatar = user.getAvatarUrl();
         if (oldAvatar != null && oldAvatar.startsWith("/uploads/")) {
-            try {
-                Path oldPath = Paths.get(oldAvatar.substring(1));
-                Files.deleteIfExists(oldPath);
-            } catch (IOException e) {
-                // Ignore deletion errors
-            }
+            blobStorage.delete(oldAvatar.substring("/uploads/".length()));
         }
 
         user.setAvatarUrl(null);
@@ -333,33 +326,48 @@ public class UserService {
      * Get user statistics
      */
     public UserStatsDTO getUserStats(Long userId) {
-        long contactCount = contactRepository.findByUserId(userId).size();
-        long groupCount = chatRepository.countUserGroups(userId);
-        long messageCount = messageRepository.countBySenderId(userId);
-
-        return new UserStatsDTO(contactCount, groupCount, messageCount);
+        return userStatsService.getStats(userId);
     }
 
     /**
-     * Search users by query
+     * Search users by query, ranked exact username > prefix > substring match.
+     * Pass the previous page's nextCursor to continue.
      */
-    public List<UserDTO> searchUsers(String query) {
+    public UserSearchResultDTO searchUsers(String query, String cursor, int limit) {
         if (query == null || query.trim().isEmpty()) {
-            return List.of();
+            return new UserSearchResultDTO(List.of(), null);
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_USER_PAGE_SIZE));
+
+        if (!userSearchService.isReady()) {
+            // 索引尚未建好：回退到数据库扫描，只返回第一页
+            List<UserDTO> users = userRepository.searchUsers(query.trim(), PageRequest.of(0, pageSize)).stream()
+                    .map(this::mapToDTO)
+                    .collect(Collectors.toList());
+            return new UserSearchResultDTO(users, null);
         }
 
-        List<User> users = userRepository.searchUsers(query.trim());
-        return users.stream()
+        UserSearchService.SearchPage page = userSearchService.search(query, cursor, pageSize);
+        Map<Long, User> usersById = userRepository.findAllByIdIn(page.userIds()).stream()
+                .collect(Collectors.toMap(User::getId, u -> u));
+        List<UserDTO> users = page.userIds().stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
                 .map(this::mapToDTO)
                 .collect(Collectors.toList());
+        return new UserSearchResultDTO(users, page.nextCursor());
     }
 
     /**
-     * Get recommended users
+     * Get recommended users (friends-of-friends and shared group members, precomputed)
      */
     public List<UserDTO> getRecommendedUsers(Long userId, int limit) {
-        List<User> users = userRepository.findRecommendedUsers(userId, limit);
-        return users.stream()
+        List<Long> ids = recommendationService.getRecommendations(userId, Math.max(1, Math.min(limit, MAX_USER_PAGE_SIZE)));
+        Map<Long, User> usersById = userRepository.findAllByIdIn(ids).stream()
+                .collect(Collectors.toMap(User::getId, u -> u));
+        return ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
                 .map(this::mapToDTO)
                 .collect(Collectors.toList());
     }
@@ -370,15 +378,20 @@ public class UserService {
     private UserPrivacySettings createDefaultPrivacySettings(Long userId) {
         // Check if already exists to avoid duplicate entry error
         return privacySettingsRepository.findByUserId(userId)
-                .orElseGet(() -> {
-                    UserPrivacySettings settings = new UserPrivacySettings();
-                    settings.setUserId(userId);
-                    settings.setShowOnlineStatus(true);
-                    settings.setShowLastSeen(true);
-                    settings.setShowEmail(false);
-                    settings.setShowPhone(false);
-                    return privacySettingsRepository.save(settings);
-                });
+                .orElseGet(() -> privacySettingsRepository.save(defaultPrivacySettings(userId)));
+    }
+
+    /**
+     * Default privacy settings, not saved (read-only lookups)
+     */
+    private UserPrivacySettings defaultPrivacySettings(Long userId) {
+        UserPrivacySettings settings = new UserPrivacySettings();
+        settings.setUserId(userId);
+        settings.setShowOnlineStatus(true);
+        settings.setShowLastSeen(true);
+        settings.setShowEmail(false);
+        settings.setShowPhone(false);
+        return settings;
     }
 
     private UserDTO mapToDTO(User user) {
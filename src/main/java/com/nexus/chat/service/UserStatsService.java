@@ -0,0 +1,249 @@
+package com.nexus.chat.service;
+
+import com.nexus.chat.dto.UserStatsDTO;
+import com.nexus.chat.model.ContactRequest.RequestStatus;
+import com.nexus.chat.repository.ArchivedMessageRepository;
+import com.nexus.chat.repository.ChatRepository;
+import com.nexus.chat.repository.ContactRepository;
+import com.nexus.chat.repository.ContactRequestRepository;
+import com.nexus.chat.repository.MessageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 用户统计计数器（联系人数、群组数、消息数、待处理好友申请数）
+ *
+ * 计数保存在 Redis 哈希 user:stats:{userId} 中，资料页读取只需一次 HMGET。
+ * 首次读取时从数据库 COUNT 播种；之后由联系人、群组、消息的写路径在事务提交后增减。
+ * 未播种的哈希不会被增减（见 stats_incr.lua），因此不会出现只含增量的残缺计数。
+ * 播种期间（COUNT 与写入之间）发生的增减可能没有计入，这类用户记入脏集合 user:stats:dirty，
+ * 定时对账任务每轮取出有限数量的脏用户，用数据库重新计算并写回；哈希带版本号，
+ * 计数期间有新增减时放弃写回、留到下一轮（见 stats_store.lua）。普通的增减不会触发重新计数。
+ */
+@Slf4j
+@Service
+public class UserStatsService {
+
+    private static final String STATS_PREFIX = "user:stats:";
+    private static final String DIRTY_KEY = "user:stats:dirty";
+    private static final String SEEDING_PREFIX = "user:stats:seeding:";
+    // Longer than counting a user takes
+    private static final Duration SEEDING_TTL = Duration.ofMinutes(1);
+    private static final String RECONCILE_LOCK = "lock:user-stats:reconcile";
+    private static final String VERSION = "version";
+    private static final String SEED = "seed";
+
+    private static final String CONTACTS = "contacts";
+    private static final String GROUPS = "groups";
+    private static final String MESSAGES = "messages";
+    private static final String PENDING_REQUESTS = "pendingRequests";
+    private static final List<Object> FIELDS = List.of(CONTACTS, GROUPS, MESSAGES, PENDING_REQUESTS);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ContactRepository contactRepository;
+    private final ChatRepository chatRepository;
+    private final MessageRepository messageRepository;
+    private final ArchivedMessageRepository archivedMessageRepository;
+    private final ContactRequestRepository contactRequestRepository;
+    private final MessageShardRouter messageShardRouter;
+    private final RedisScript<Long> incrScript;
+    private final RedisScript<Long> storeScript;
+    private final RedisScript<Long> unlockScript;
+
+    @Value("${user-stats.ttl:7d}")
+    private Duration ttl;
+
+    @Value("${user-stats.reconcile-batch-size:1000}")
+    private int reconcileBatchSize;
+
+    public UserStatsService(StringRedisTemplate redisTemplate,
+                            ContactRepository contactRepository,
+                            ChatRepository chatRepository,
+                            MessageRepository messageRepository,
+                            ArchivedMessageRepository archivedMessageRepository,
+                            ContactRequestRepository contactRequestRepository,
+                            MessageShardRouter messageShardRouter) {
+        this.redisTemplate = redisTemplate;
+        this.contactRepository = contactRepository;
+        this.chatRepository = chatRepository;
+        this.messageRepository = messageRepository;
+        this.archivedMessageRepository = archivedMessageRepository;
+        this.contactRequestRepository = contactRequestRepository;
+        this.messageShardRouter = messageShardRouter;
+        this.incrScript = RedisScript.of(new ClassPathResource("scripts/stats_incr.lua"), Long.class);
+        this.storeScript = RedisScript.of(new ClassPathResource("scripts/stats_store.lua"), Long.class);
+        this.unlockScript = RedisScript.of(new ClassPathResource("scripts/lock_release.lua"), Long.class);
+    }
+
+    /**
+     * Current counters for the user; seeded from the database on first access.
+     */
+    public UserStatsDTO getStats(Long userId) {
+        long[] counts = load(userId);
+        return new UserStatsDTO(counts[0], counts[1], counts[2]);
+    }
+
+    /**
+     * Pending incoming contact requests (the badge count).
+     */
+    public long getPendingRequestCount(Long userId) {
+        return load(userId)[3];
+    }
+
+    public void contactsChanged(Long userId, long delta) {
+        adjustAfterCommit(List.of(userId), CONTACTS, delta);
+    }
+
+    public void groupsChanged(Collection<Long> userIds, long delta) {
+        adjustAfterCommit(userIds, GROUPS, delta);
+    }
+
+    /**
+     * Called once the message has committed (the caller knows which transaction that is).
+     */
+    public void messageSent(Long userId) {
+        adjust(List.of(userId), MESSAGES, 1);
+    }
+
+    public void pendingRequestsChanged(Long userId, long delta) {
+        adjustAfterCommit(List.of(userId), PENDING_REQUESTS, delta);
+    }
+
+    /**
+     * Recount up to reconcile-batch-size users whose seed may have missed an increment,
+     * to correct that drift. Only one instance runs a pass at a time.
+     */
+    @Scheduled(fixedDelayString = "${user-stats.reconcile-interval-ms:300000}",
+            initialDelayString = "${user-stats.reconcile-initial-delay-ms:600000}")
+    public void reconcile() {
+        String token = UUID.randomUUID().toString();
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(RECONCILE_LOCK, token, Duration.ofMinutes(30));
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        int count = 0;
+        List<String> retry = new ArrayList<>();
+        try {
+            List<String> userIds = redisTemplate.opsForSet().pop(DIRTY_KEY, reconcileBatchSize);
+            for (String userId : userIds != null ? userIds : List.<String>of()) {
+                String key = STATS_PREFIX + userId;
+                // An unseeded user is counted on first read
+                if (!Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+                    continue;
+                }
+                Object version = redisTemplate.opsForHash().get(key, VERSION);
+                long[] counts = countFromDatabase(Long.parseLong(userId));
+                if (store(key, version != null ? version.toString() : "0", counts) == 0) {
+                    // Changed while counting; recount next pass
+                    retry.add(userId);
+                }
+                count++;
+            }
+            log.info("用户统计对账完成: {} 个用户, {} 个待重试, 耗时 {}ms",
+                    count, retry.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("用户统计对账失败: 已处理 {} 个用户", count, e);
+        } finally {
+            if (!retry.isEmpty()) {
+                redisTemplate.opsForSet().add(DIRTY_KEY, retry.toArray(new String[0]));
+            }
+            redisTemplate.execute(unlockScript, List.of(RECONCILE_LOCK), token);
+        }
+    }
+
+    /**
+     * @return counts in FIELDS order
+     */
+    private long[] load(Long userId) {
+        try {
+            List<Object> values = redisTemplate.opsForHash().multiGet(STATS_PREFIX + userId, FIELDS);
+            if (values.stream().allMatch(v -> v != null)) {
+                return values.stream().mapToLong(v -> Long.parseLong((String) v)).toArray();
+            }
+        } catch (Exception e) {
+            log.error("读取用户统计失败: userId={}, {}", userId, e.getMessage());
+            return countFromDatabase(userId);
+        }
+
+        // Increments that land while counting mark the user dirty (stats_incr.lua); the marker
+        // just expires, a few extra recounts right after a seed are cheap
+        String seeding = SEEDING_PREFIX + userId;
+        try {
+            redisTemplate.opsForValue().set(seeding, "1", SEEDING_TTL);
+        } catch (Exception e) {
+            log.error("标记用户统计播种失败: userId={}, {}", userId, e.getMessage());
+            return countFromDatabase(userId);
+        }
+        long[] counts = countFromDatabase(userId);
+        store(STATS_PREFIX + userId, SEED, counts);
+        return counts;
+    }
+
+    private long[] countFromDatabase(Long userId) {
+        return new long[]{
+                contactRepository.countByUserId(userId),
+                chatRepository.countUserGroups(userId),
+                countSentMessages(userId),
+                contactRequestRepository.countByToUserIdAndStatus(userId, RequestStatus.PENDING)
+        };
+    }
+
+    // A sender's messages can be on every message shard
+    private long countSentMessages(Long userId) {
+        return messageShardRouter.readAll(() ->
+                        messageRepository.countBySenderId(userId) + archivedMessageRepository.countBySenderId(userId))
+                .stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    /**
+     * Write the counts unless the hash changed since {@code expectedVersion} was read
+     * ({@code seed}: only if the hash does not exist yet).
+     *
+     * @return the stats_store.lua result, -1 on error
+     */
+    private long store(String key, String expectedVersion, long[] counts) {
+        try {
+            Long result = redisTemplate.execute(storeScript, List.of(key), expectedVersion,
+                    String.valueOf(ttl.toSeconds()),
+                    CONTACTS, String.valueOf(counts[0]),
+                    GROUPS, String.valueOf(counts[1]),
+                    MESSAGES, String.valueOf(counts[2]),
+                    PENDING_REQUESTS, String.valueOf(counts[3]));
+            return result != null ? result : -1;
+        } catch (Exception e) {
+            log.error("写入用户统计失败: key={}, {}", key, e.getMessage());
+            return -1;
+        }
+    }
+
+    private void adjustAfterCommit(Collection<Long> userIds, String field, long delta) {
+        List<Long> ids = List.copyOf(userIds);
+        AfterCommit.run(() -> adjust(ids, field, delta));
+    }
+
+    private void adjust(Collection<Long> userIds, String field, long delta) {
+        for (Long userId : userIds) {
+            try {
+                redisTemplate.execute(incrScript, List.of(STATS_PREFIX + userId, DIRTY_KEY, SEEDING_PREFIX + userId),
+                        field, String.valueOf(delta), String.valueOf(userId));
+            } catch (Exception e) {
+                log.error("更新用户统计失败: userId={}, field={}, {}", userId, field, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.nexus.chat.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Storage backend for uploaded files, thumbnails and avatars.
+ *
+ * Keys are relative, slash-separated paths such as {@code 2024/01/01/uuid.png}
+ * or {@code avatars/ab/abcdef_160.jpg}; they are what gets persisted in the
+ * database, so switching backends only requires copying objects, never
+ * rewriting rows. Selected with {@code storage.type} (local, sharded, s3).
+ */
+public interface BlobStorage {
+
+    /**
+     * Store content under the key, replacing any existing object.
+     * Readers never observe a partially written object.
+     */
+    void put(String key, InputStream content, long size, String contentType) throws IOException;
+
+    default void put(String key, byte[] content, String contentType) throws IOException {
+        put(key, new ByteArrayInputStream(content), content.length, contentType);
+    }
+
+    /**
+     * Open the object for reading.
+     *
+     * @throws java.nio.file.NoSuchFileException if the key does not exist
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Load the object as a resource suitable for a ResponseEntity body.
+     *
+     * @return the resource, or null if the key does not exist
+     */
+    Resource load(String key) throws IOException;
+
+    boolean exists(String key);
+
+    /**
+     * Delete the object. Deleting a missing key is not an error.
+     *
+     * @return true if the key no longer exists
+     */
+    boolean delete(String key);
+}
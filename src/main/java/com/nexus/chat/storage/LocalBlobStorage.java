@@ -0,0 +1,88 @@
+package com.nexus.chat.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * Local disk storage: keys map directly to files under a single root directory
+ * (the original "uploads/" layout).
+ */
+@Slf4j
+public class LocalBlobStorage implements BlobStorage {
+
+    private final Path root;
+
+    public LocalBlobStorage(String root) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+
+        // 先写临时文件再原子替换，读取方不会看到写了一半的文件
+        Path tmp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.copy(content, tmp);
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public Resource load(String key) {
+        Path path = resolve(key);
+        return Files.isRegularFile(path) ? new FileSystemResource(path) : null;
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public boolean delete(String key) {
+        try {
+            Files.deleteIfExists(resolve(key));
+            return true;
+        } catch (IOException e) {
+            log.warn("删除文件失败: root={}, key={}, reason={}", root, key, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Map a key to a path, rejecting keys that would escape the root.
+     */
+    private Path resolve(String key) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("Storage key must not be empty");
+        }
+        Path path = root.resolve(key.startsWith("/") ? key.substring(1) : key).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("Storage key escapes root: " + key);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,141 @@
+package com.nexus.chat.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * S3-compatible object storage (AWS S3, MinIO, etc).
+ * Set storage.s3.endpoint for non-AWS services; path-style access is used in
+ * that case so no wildcard DNS is needed (e.g. a local MinIO on :9000).
+ */
+@Slf4j
+public class S3BlobStorage implements BlobStorage, AutoCloseable {
+
+    private final S3Client client;
+    private final String bucket;
+    private final String prefix;
+
+    public S3BlobStorage(String endpoint, String region, String bucket, String prefix,
+                         String accessKey, String secretKey) {
+        S3ClientBuilder builder = S3Client.builder()
+                .httpClientBuilder(UrlConnectionHttpClient.builder())
+                .region(Region.of(region));
+
+        if (accessKey != null && !accessKey.isBlank()) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(
+                    AwsBasicCredentials.create(accessKey, secretKey)));
+        } else {
+            builder.credentialsProvider(DefaultCredentialsProvider.create());
+        }
+
+        if (endpoint != null && !endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint))
+                    .forcePathStyle(true);
+        }
+
+        this.client = builder.build();
+        this.bucket = bucket;
+        this.prefix = prefix == null || prefix.isBlank() ? "" : (prefix.endsWith("/") ? prefix : prefix + "/");
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        try {
+            client.putObject(builder -> builder
+                            .bucket(bucket)
+                            .key(objectKey(key))
+                            .contentType(contentType != null ? contentType : "application/octet-stream")
+                            .contentLength(size),
+                    RequestBody.fromInputStream(content, size));
+        } catch (SdkException e) {
+            throw new IOException("S3 put failed: " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return getObject(key);
+    }
+
+    @Override
+    public Resource load(String key) throws IOException {
+        ResponseInputStream<GetObjectResponse> stream;
+        try {
+            stream = getObject(key);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        long length = stream.response().contentLength();
+        // 长度来自响应头，避免 Spring 为计算 Content-Length 读取整个流
+        return new InputStreamResource(stream, key) {
+            @Override
+            public long contentLength() {
+                return length;
+            }
+        };
+    }
+
+    @Override
+    public boolean exists(String key) {
+        try {
+            client.headObject(builder -> builder.bucket(bucket).key(objectKey(key)));
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean delete(String key) {
+        try {
+            client.deleteObject(builder -> builder.bucket(bucket).key(objectKey(key)));
+            return true;
+        } catch (SdkException e) {
+            log.warn("S3 删除对象失败: bucket={}, key={}, reason={}", bucket, key, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    private ResponseInputStream<GetObjectResponse> getObject(String key) throws IOException {
+        try {
+            return client.getObject(builder -> builder.bucket(bucket).key(objectKey(key)));
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (SdkException e) {
+            throw new IOException("S3 get failed: " + key, e);
+        }
+    }
+
+    private String objectKey(String key) {
+        return prefix + (key.startsWith("/") ? key.substring(1) : key);
+    }
+}
@@ -0,0 +1,67 @@
+package com.nexus.chat.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Spreads objects across several local directories (typically one per volume)
+ * by a stable hash of the key, so disk I/O scales with the number of volumes.
+ *
+ * The shard is a pure function of the key and the configured root list:
+ * roots may be remounted elsewhere, but adding or reordering roots relocates
+ * keys and requires moving existing files.
+ */
+public class ShardedBlobStorage implements BlobStorage {
+
+    private final List<LocalBlobStorage> shards;
+
+    public ShardedBlobStorage(List<String> roots) {
+        this.shards = roots == null ? List.of() : roots.stream()
+                .map(String::trim)
+                .filter(root -> !root.isEmpty())
+                .map(LocalBlobStorage::new)
+                .toList();
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("storage.sharded.roots must list at least one directory");
+        }
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        shardFor(key).put(key, content, size, contentType);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return shardFor(key).open(key);
+    }
+
+    @Override
+    public Resource load(String key) throws IOException {
+        return shardFor(key).load(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return shardFor(key).exists(key);
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return shardFor(key).delete(key);
+    }
+
+    private LocalBlobStorage shardFor(String key) {
+        if (shards.size() == 1) {
+            return shards.get(0);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(key.getBytes(StandardCharsets.UTF_8));
+        return shards.get((int) (crc.getValue() % shards.size()));
+    }
+}
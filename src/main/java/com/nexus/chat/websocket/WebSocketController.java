@@ -1,5 +1,6 @@
 package com.nexus.chat.websocket;
 
+import com.nexus.chat.config.MessageTraceInterceptor;
 import com.nexus.chat.config.MessageValidationInterceptor;
 import com.nexus.chat.dto.*;
 import com.nexus.chat.model.ChatMember;
@@ -8,6 +9,7 @@ import com.nexus.chat.repository.ChatMemberRepository;
 import com.nexus.chat.service.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -26,6 +28,7 @@ import java.util.Map;
  * - Sequence numbers: monotonic ordering per chat
  * - Typing indicators via user channel (not chat topic)
  * - XSS sanitization on message content
+ * - Channels (large groups): one publish to /topic/channel.{chatId}, no per-member fan-out
  */
 @Slf4j
 @Controller
@@ -41,6 +44,9 @@ public class WebSocketController {
     private final PresenceService presenceService;
     private final RedisCacheService redisCacheService;
     private final RedisMessageRelay redisMessageRelay;
+    private final ChannelService channelService;
+    private final MessagingMetrics metrics;
+    private final DeliveryTracer deliveryTracer;
 
     /**
      * Handle sending chat messages (direct and group).
@@ -48,7 +54,9 @@ public class WebSocketController {
      * Includes ACK + offline queue + sequence number + deduplication.
      */
     @MessageMapping("/chat.sendMessage")
-    public void sendMessage(@Payload Map<String, Object> payload) {
+    public void sendMessage(@Payload Map<String, Object> payload,
+                            @Header(name = MessageTraceInterceptor.RECEIVED_AT_HEADER, required = false) Long receivedAt) {
+        MessageTrace trace = deliveryTracer.start(receivedAt);
         Long chatId = null;
         Long senderId = null;
         String clientMsgId = null;
@@ -75,10 +83,12 @@ public class WebSocketController {
 
             // Send message with clientMsgId for deduplication, sequence number is generated inside
             MessageDTO message = messageService.sendMessage(chatId, senderId, content, messageType, fileUrl, clientMsgId);
+            deliveryTracer.committed(trace);
 
             WebSocketMessage wsMessage = new WebSocketMessage(
                     WebSocketMessage.MessageType.CHAT_MESSAGE,
-                    message);
+                    message,
+                    trace);
 
             // Send ACK to sender first (sequenceNumber is already set in message from service)
             WebSocketMessage ackMessage = new WebSocketMessage(
@@ -91,7 +101,14 @@ public class WebSocketController {
             messagingTemplate.convertAndSend(
                     "/topic/user." + senderId + ".messages", ackMessage);
 
+            // Channel: one publish to the shared topic; offline members pull by sequence number
+            if (channelService.isChannel(chatId)) {
+                channelService.publish(chatId, wsMessage);
+                return;
+            }
+
             // Deliver to each member (unified channel - no more /topic/chat/{id})
+            long fanoutStart = System.nanoTime();
             List<ChatMember> members = chatMemberRepository.findByChatId(chatId);
             for (ChatMember member : members) {
                 if (!member.getUserId().equals(senderId)) {
@@ -104,6 +121,7 @@ public class WebSocketController {
                     }
                 }
             }
+            metrics.fanout(MessagingMetrics.FanoutType.MESSAGE, members.size() - 1, fanoutStart);
         } catch (Exception e) {
             log.error("发送消息失败: chatId={}, senderId={}", chatId, senderId, e);
             if (senderId != null) {
@@ -162,6 +180,11 @@ public class WebSocketController {
             Long userId = Long.valueOf(payload.get("userId").toString());
             Boolean isTyping = (Boolean) payload.get("isTyping");
 
+            // Channels have no typing indicator: it would reach every subscriber on each keystroke
+            if (channelService.isChannel(chatId)) {
+                return;
+            }
+
             WebSocketMessage wsMessage = new WebSocketMessage(
                     WebSocketMessage.MessageType.TYPING,
                     Map.of("chatId", chatId, "userId", userId, "isTyping", isTyping));
@@ -172,12 +195,14 @@ public class WebSocketController {
             }
 
             // Broadcast to chat members via user channel (relay-aware)
+            long fanoutStart = System.nanoTime();
             List<ChatMember> members = chatMemberRepository.findByChatId(chatId);
             for (ChatMember member : members) {
                 if (!member.getUserId().equals(userId)) {
                     sendToUserChannel(member.getUserId(), wsMessage);
                 }
             }
+            metrics.fanout(MessagingMetrics.FanoutType.TYPING, members.size() - 1, fanoutStart);
         } catch (Exception e) {
             log.error("处理输入状态失败: chatId={}, userId={}", payload.get("chatId"), payload.get("userId"), e);
         }
@@ -200,13 +225,20 @@ public class WebSocketController {
                     WebSocketMessage.MessageType.MESSAGE_READ,
                     Map.of("chatId", chatId, "userId", userId, "messageId", messageId != null ? messageId : "all"));
 
+            // Channels have no per-member read receipts
+            if (channelService.isChannel(chatId)) {
+                return;
+            }
+
             // Deliver read receipt to chat members via user channel (relay-aware)
+            long fanoutStart = System.nanoTime();
             List<ChatMember> members = chatMemberRepository.findByChatId(chatId);
             for (ChatMember member : members) {
                 if (!member.getUserId().equals(userId)) {
                     sendToUserChannel(member.getUserId(), wsMessage);
                 }
             }
+            metrics.fanout(MessagingMetrics.FanoutType.READ, members.size() - 1, fanoutStart);
         } catch (Exception e) {
             log.error("处理消息已读状态失败: chatId={}, userId={}", payload.get("chatId"), payload.get("userId"), e);
         }
@@ -237,12 +269,14 @@ public class WebSocketController {
             Boolean isPrivate = (Boolean) payload.getOrDefault("isPrivate", false);
             @SuppressWarnings("unchecked")
             List<Long> memberIds = (List<Long>) payload.get("memberIds");
+            Boolean channel = (Boolean) payload.getOrDefault("channel", false);
 
             CreateGroupRequest request = new CreateGroupRequest();
             request.setName(name);
             request.setDescription(description);
             request.setIsPrivate(isPrivate);
             request.setMemberIds(memberIds);
+            request.setChannel(channel);
 
             GroupDTO group = groupService.createGroup(userId, request);
 
@@ -284,6 +318,11 @@ public class WebSocketController {
                     WebSocketMessage.MessageType.GROUP_MEMBER_JOINED,
                     Map.of("groupId", groupId, "user", user));
 
+            if (channelService.isChannel(groupId)) {
+                channelService.publish(groupId, wsMessage);
+                return;
+            }
+
             // Broadcast to group members via user channel (relay-aware)
             List<ChatMember> members = chatMemberRepository.findByChatId(groupId);
             for (ChatMember member : members) {
@@ -303,8 +342,10 @@ public class WebSocketController {
             Long groupId = Long.valueOf(payload.get("groupId").toString());
             Long userId = Long.valueOf(payload.get("userId").toString());
 
+            boolean channel = channelService.isChannel(groupId);
+
             // Get members before leaving
-            List<ChatMember> members = chatMemberRepository.findByChatId(groupId);
+            List<ChatMember> members = channel ? List.of() : chatMemberRepository.findByChatId(groupId);
 
             groupService.leaveGroup(groupId, userId);
 
@@ -312,6 +353,11 @@ public class WebSocketController {
                     WebSocketMessage.MessageType.GROUP_MEMBER_LEFT,
                     Map.of("groupId", groupId, "userId", userId));
 
+            if (channel) {
+                channelService.publish(groupId, wsMessage);
+                return;
+            }
+
             // Notify remaining members via user channel (relay-aware)
             for (ChatMember member : members) {
                 sendToUserChannel(member.getUserId(), wsMessage);
@@ -325,7 +371,9 @@ public class WebSocketController {
      * Handle group message (unified with chat.sendMessage for groups)
      */
     @MessageMapping("/group.message")
-    public void sendGroupMessage(@Payload Map<String, Object> payload) {
+    public void sendGroupMessage(@Payload Map<String, Object> payload,
+                                 @Header(name = MessageTraceInterceptor.RECEIVED_AT_HEADER, required = false) Long receivedAt) {
+        MessageTrace trace = deliveryTracer.start(receivedAt);
         try {
             Long groupId = Long.valueOf(payload.get("groupId").toString());
             Long senderId = Long.valueOf(payload.get("senderId").toString());
@@ -344,12 +392,20 @@ public class WebSocketController {
 
             // Send message with clientMsgId for deduplication
             MessageDTO message = messageService.sendMessage(groupId, senderId, content, messageType, null, clientMsgId);
+            deliveryTracer.committed(trace);
 
             WebSocketMessage wsMessage = new WebSocketMessage(
                     WebSocketMessage.MessageType.CHAT_MESSAGE,
-                    message);
+                    message,
+                    trace);
+
+            if (channelService.isChannel(groupId)) {
+                channelService.publish(groupId, wsMessage);
+                return;
+            }
 
             // Deliver to all group members via user channel (relay-aware)
+            long fanoutStart = System.nanoTime();
             List<ChatMember> members = chatMemberRepository.findByChatId(groupId);
             for (ChatMember member : members) {
                 if (presenceService.isUserOnline(member.getUserId())) {
@@ -358,6 +414,7 @@ public class WebSocketController {
                     redisCacheService.queueOfflineMessage(member.getUserId(), wsMessage);
                 }
             }
+            metrics.fanout(MessagingMetrics.FanoutType.MESSAGE, members.size(), fanoutStart);
         } catch (Exception e) {
             log.error("发送群组消息失败: groupId={}, senderId={}", payload.get("groupId"), payload.get("senderId"), e);
         }
@@ -0,0 +1,45 @@
+-- Message store tables on a message shard (see MessageShardProperties).
+-- Same layout as schema.sql; chats and users live in the main database, so there are no foreign keys to them.
+
+CREATE TABLE IF NOT EXISTS messages (
+    id BIGINT PRIMARY KEY,
+    chat_id BIGINT NOT NULL,
+    sender_id BIGINT NOT NULL,
+    content BLOB,
+    message_type ENUM('text', 'image', 'file', 'emoji') NOT NULL DEFAULT 'text',
+    file_url TEXT,
+    sequence_number BIGINT DEFAULT NULL,
+    client_message_id VARCHAR(36) DEFAULT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_chat_id_created_at (chat_id, created_at),
+    INDEX idx_messages_chat_seq (chat_id, sequence_number),
+    INDEX idx_sender_id (sender_id),
+    UNIQUE INDEX idx_messages_client_msg_id (client_message_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS messages_archive (
+    id BIGINT PRIMARY KEY,
+    chat_id BIGINT NOT NULL,
+    sender_id BIGINT NOT NULL,
+    content BLOB,
+    message_type ENUM('text', 'image', 'file', 'emoji') NOT NULL DEFAULT 'text',
+    file_url TEXT,
+    sequence_number BIGINT DEFAULT NULL,
+    client_message_id VARCHAR(36) DEFAULT NULL,
+    created_at TIMESTAMP NULL,
+    INDEX idx_messages_archive_chat_seq (chat_id, sequence_number),
+    INDEX idx_messages_archive_chat_id (chat_id, id),
+    INDEX idx_messages_archive_sender (sender_id)
+) ENGINE=InnoDB ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS message_read_status (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    message_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    is_read BOOLEAN DEFAULT FALSE,
+    read_at TIMESTAMP NULL,
+    FOREIGN KEY (message_id) REFERENCES messages(id) ON DELETE CASCADE,
+    UNIQUE KEY unique_read_status (message_id, user_id),
+    INDEX idx_message_id (message_id),
+    INDEX idx_user_id_is_read (user_id, is_read)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
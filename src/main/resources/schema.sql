@@ -8,7 +8,7 @@ CREATE TABLE IF NOT EXISTS users (
     phone VARCHAR(20),
     password_hash VARCHAR(255) NOT NULL,
     nickname VARCHAR(100) NOT NULL,
-    avatar_url MEDIUMTEXT,
+    avatar_url MEDIUMBLOB, -- CompressedTextConverter
     bio VARCHAR(150) DEFAULT NULL,
     is_online BOOLEAN DEFAULT FALSE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
@@ -47,13 +47,14 @@ CREATE TABLE IF NOT EXISTS contacts (
 -- Chats Table (supports both direct and group chats)
 CREATE TABLE IF NOT EXISTS chats (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
-    type ENUM('direct', 'group') NOT NULL,
+    type ENUM('direct', 'group', 'channel') NOT NULL,
     name VARCHAR(100),
     description VARCHAR(200) DEFAULT NULL,
-    avatar_url MEDIUMTEXT,
+    avatar_url MEDIUMBLOB, -- CompressedTextConverter
     is_private BOOLEAN DEFAULT FALSE,
     created_by BIGINT NOT NULL,
     member_count INT DEFAULT 1,
+    archived_count BIGINT DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     last_message_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (created_by) REFERENCES users(id) ON DELETE CASCADE,
@@ -71,6 +72,7 @@ CREATE TABLE IF NOT EXISTS chat_members (
     is_admin BOOLEAN DEFAULT FALSE,
     joined_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     unread_count INT DEFAULT 0,
+    last_read_seq BIGINT DEFAULT 0,
     FOREIGN KEY (chat_id) REFERENCES chats(id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     UNIQUE KEY unique_chat_member (chat_id, user_id),
@@ -80,10 +82,10 @@ CREATE TABLE IF NOT EXISTS chat_members (
 
 -- Messages Table
 CREATE TABLE IF NOT EXISTS messages (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    id BIGINT PRIMARY KEY, -- assigned by the application (time-ordered Snowflake-style id)
     chat_id BIGINT NOT NULL,
     sender_id BIGINT NOT NULL,
-    content TEXT,
+    content BLOB, -- CompressedTextConverter
     message_type ENUM('text', 'image', 'file', 'emoji') NOT NULL DEFAULT 'text',
     file_url TEXT,
     sequence_number BIGINT DEFAULT NULL,
@@ -92,10 +94,28 @@ CREATE TABLE IF NOT EXISTS messages (
     FOREIGN KEY (chat_id) REFERENCES chats(id) ON DELETE CASCADE,
     FOREIGN KEY (sender_id) REFERENCES users(id) ON DELETE CASCADE,
     INDEX idx_chat_id_created_at (chat_id, created_at),
+    INDEX idx_messages_chat_seq (chat_id, sequence_number),
     INDEX idx_sender_id (sender_id),
     UNIQUE INDEX idx_messages_client_msg_id (client_message_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Archived (cold) messages, moved out of messages by MessageArchiveService.
+-- Same columns and ids, no foreign keys, compressed pages.
+CREATE TABLE IF NOT EXISTS messages_archive (
+    id BIGINT PRIMARY KEY,
+    chat_id BIGINT NOT NULL,
+    sender_id BIGINT NOT NULL,
+    content BLOB, -- CompressedTextConverter
+    message_type ENUM('text', 'image', 'file', 'emoji') NOT NULL DEFAULT 'text',
+    file_url TEXT,
+    sequence_number BIGINT DEFAULT NULL,
+    client_message_id VARCHAR(36) DEFAULT NULL,
+    created_at TIMESTAMP NULL,
+    INDEX idx_messages_archive_chat_seq (chat_id, sequence_number),
+    INDEX idx_messages_archive_chat_id (chat_id, id),
+    INDEX idx_messages_archive_sender (sender_id)
+) ENGINE=InnoDB ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- Message Read Status Table
 CREATE TABLE IF NOT EXISTS message_read_status (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
@@ -288,3 +308,41 @@ CREATE TABLE IF NOT EXISTS file_uploads (
   -- ALTER TABLE messages ADD COLUMN sequence_number BIGINT DEFAULT NULL;
   -- ALTER TABLE messages ADD COLUMN client_message_id VARCHAR(36) DEFAULT NULL;
   -- CREATE UNIQUE INDEX idx_messages_client_msg_id ON messages(client_message_id);
+
+  -- ============================================
+  -- 12. Channels (large broadcast groups, pull-based delivery)
+  -- ============================================
+  -- Migration for existing databases:
+  -- ALTER TABLE chats MODIFY COLUMN type ENUM('direct', 'group', 'channel') NOT NULL;
+  -- ALTER TABLE chat_members ADD COLUMN last_read_seq BIGINT DEFAULT 0;
+  -- CREATE INDEX idx_messages_chat_seq ON messages(chat_id, sequence_number);
+
+  -- ============================================
+  -- 13. Application-assigned message ids
+  -- ============================================
+  -- New messages get time-ordered ids from SnowflakeIdGenerator, far above existing AUTO_INCREMENT values.
+  -- Existing tables need no change (an explicit id is accepted by an AUTO_INCREMENT column). Optionally:
+  -- ALTER TABLE messages MODIFY COLUMN id BIGINT NOT NULL;
+
+  -- ============================================
+  -- 14. Cold message archive
+  -- ============================================
+  -- Migration for existing databases (Hibernate creates the table uncompressed; compress it once):
+  -- ALTER TABLE chats ADD COLUMN archived_count BIGINT DEFAULT 0;
+  -- ALTER TABLE messages_archive ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8;
+
+  -- ============================================
+  -- 15. Message shards
+  -- ============================================
+  -- Shard databases get their message tables from db/message-shard-schema.sql (message-shard.initialize-schema).
+  -- The main database keeps its message tables; they are the "main" shard while it is on message-shard.ring.
+
+  -- ============================================
+  -- 16. Compressed large text columns (CompressedTextConverter)
+  -- ============================================
+  -- Existing rows keep reading as plain text. Convert the columns to binary, then set storage.compression.enabled=true:
+  -- ALTER TABLE messages MODIFY COLUMN content BLOB;
+  -- ALTER TABLE messages_archive MODIFY COLUMN content BLOB;
+  -- ALTER TABLE users MODIFY COLUMN avatar_url MEDIUMBLOB, MODIFY COLUMN profile_background MEDIUMBLOB;
+  -- ALTER TABLE chats MODIFY COLUMN avatar_url MEDIUMBLOB;
+  -- The same ALTERs for messages and messages_archive on every message shard.
@@ -0,0 +1,12 @@
+-- Release a lock only if it is still held by the caller (the lock value is the owner token),
+-- so an owner whose lock expired cannot delete a lock taken over by someone else.
+--
+-- KEYS[1]  lock key
+-- ARGV[1]  owner token
+--
+-- Returns 1 if released, 0 otherwise
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
@@ -0,0 +1,34 @@
+-- Record a committed message and append it to the chat's recent-message list, but only
+-- append if the list has been warmed. A missing list is left alone so the next read warms
+-- it from the database; creating it here would produce a list holding only the newest message.
+--
+-- Runs after the send commits. Every committed message becomes the chat's commit version
+-- (its message id, unique, so a version that expired and came back cannot match an old one;
+-- cached windows are validated against it) and raises the newest committed sequence number.
+-- A send that fails or is still in flight changes neither.
+--
+-- KEYS[1]  recent-message list
+-- KEYS[2]  commit version (id of the last committed message)
+-- KEYS[3]  newest committed sequence number
+-- ARGV[1]  message JSON
+-- ARGV[2]  capacity
+-- ARGV[3]  ttl in seconds
+-- ARGV[4]  sequence number of the message (0 if none)
+-- ARGV[5]  message id
+--
+-- Returns the previous commit version ('0' if none)
+
+local previous = redis.call('GET', KEYS[2]) or '0'
+redis.call('SET', KEYS[2], ARGV[5], 'EX', ARGV[3])
+if tonumber(ARGV[4]) > tonumber(redis.call('GET', KEYS[3]) or '0') then
+    redis.call('SET', KEYS[3], ARGV[4], 'EX', ARGV[3])
+else
+    redis.call('EXPIRE', KEYS[3], ARGV[3])
+end
+
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    redis.call('RPUSH', KEYS[1], ARGV[1])
+    redis.call('LTRIM', KEYS[1], -tonumber(ARGV[2]), -1)
+    redis.call('EXPIRE', KEYS[1], ARGV[3])
+end
+return previous
@@ -0,0 +1,33 @@
+-- Replace a chat's recent-message list with a window loaded from the database,
+-- unless a message was committed after that window was read.
+--
+-- The caller reads the chat's commit version before loading and passes it with the
+-- sequence number of the newest message it loaded. If the version has moved, a send
+-- committed meanwhile may already have tried (and skipped) its append, so storing the
+-- window would lose that message. If the newest committed sequence number is above the
+-- loaded one, the load missed a committed message (e.g. a lagging replica). In both
+-- cases nothing is written. Sends still in flight append normally once they commit.
+--
+-- KEYS[1]  recent-message list
+-- KEYS[2]  commit version (id of the last committed message)
+-- KEYS[3]  newest committed sequence number
+-- ARGV[1]  commit version read before loading
+-- ARGV[2]  sequence number of the newest loaded message (0 if none)
+-- ARGV[3]  ttl in seconds
+-- ARGV[4..] message JSON, oldest first
+--
+-- Returns 1 if the window is current (and stored when non-empty), 0 otherwise
+
+if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then
+    return 0
+end
+if tonumber(redis.call('GET', KEYS[3]) or '0') > tonumber(ARGV[2]) then
+    return 0
+end
+
+redis.call('DEL', KEYS[1])
+if #ARGV > 3 then
+    redis.call('RPUSH', KEYS[1], unpack(ARGV, 4))
+    redis.call('EXPIRE', KEYS[1], ARGV[3])
+end
+return 1
@@ -0,0 +1,30 @@
+-- Adjust a counter in a user stats hash, but only if the hash has been seeded.
+-- An unseeded hash is left alone so the next read seeds it from the database;
+-- incrementing it here would create a partial hash holding only the delta.
+-- If a seed is being counted right now, the change may be missing from it, so the
+-- user is marked dirty for the reconcile job. Otherwise the hash version is bumped
+-- so a reconcile that counted before this change does not overwrite it.
+--
+-- KEYS[1]  stats hash
+-- KEYS[2]  dirty user set
+-- KEYS[3]  seeding marker of the user
+-- ARGV[1]  field
+-- ARGV[2]  delta
+-- ARGV[3]  user id
+--
+-- Returns the new value, or false if the hash does not exist
+
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    if redis.call('EXISTS', KEYS[3]) == 1 then
+        redis.call('SADD', KEYS[2], ARGV[3])
+    end
+    return false
+end
+
+redis.call('HINCRBY', KEYS[1], 'version', 1)
+local value = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])
+if value < 0 then
+    redis.call('HSET', KEYS[1], ARGV[1], 0)
+    value = 0
+end
+return value
@@ -0,0 +1,27 @@
+-- Store counts recomputed from the database into a user stats hash, unless the hash
+-- changed since the caller read it (an increment landed between the COUNT and now).
+--
+-- KEYS[1]  stats hash
+-- ARGV[1]  'seed' to create a missing hash, otherwise the version read before counting
+-- ARGV[2]  ttl in seconds
+-- ARGV[3..] field, value pairs
+--
+-- Returns 1 if stored, 0 if the hash changed (or already exists when seeding),
+-- -1 if the hash to reconcile no longer exists
+
+if ARGV[1] == 'seed' then
+    if redis.call('EXISTS', KEYS[1]) == 1 then
+        return 0
+    end
+else
+    if redis.call('EXISTS', KEYS[1]) == 0 then
+        return -1
+    end
+    if (redis.call('HGET', KEYS[1], 'version') or '0') ~= ARGV[1] then
+        return 0
+    end
+end
+
+redis.call('HSET', KEYS[1], unpack(ARGV, 3))
+redis.call('EXPIRE', KEYS[1], ARGV[2])
+return 1
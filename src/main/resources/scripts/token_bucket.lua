@@ -0,0 +1,43 @@
+-- Token bucket, evaluated atomically.
+--
+-- KEYS[1]  bucket hash (fields: tokens, ts)
+-- ARGV[1]  capacity
+-- ARGV[2]  window in ms (time to refill from empty to full)
+-- ARGV[3]  current time in ms
+-- ARGV[4]  requests already admitted by the caller's local bucket, charged unconditionally
+-- ARGV[5]  tokens requested now
+--
+-- Returns { allowed (0|1), remaining tokens }
+
+local capacity = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local pending = tonumber(ARGV[4])
+local requested = tonumber(ARGV[5])
+
+local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(bucket[1])
+local ts = tonumber(bucket[2])
+
+if tokens == nil or ts == nil then
+    tokens = capacity
+    ts = now
+end
+
+if now > ts then
+    tokens = math.min(capacity, tokens + (now - ts) * capacity / window)
+    ts = now
+end
+
+tokens = math.max(0, tokens - pending)
+
+local allowed = 0
+if tokens >= requested then
+    tokens = tokens - requested
+    allowed = 1
+end
+
+redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(ts))
+redis.call('PEXPIRE', KEYS[1], window)
+
+return { tostring(allowed), tostring(tokens) }